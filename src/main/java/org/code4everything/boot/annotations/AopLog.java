@@ -21,4 +21,32 @@ public @interface AopLog {
      * @since 1.0.0
      */
     String value() default "";
+
+    /**
+     * 采样率，取值范围0到1，为1时保存所有日志，发生异常或执行缓慢的调用不受采样率限制
+     *
+     * @return 采样率
+     *
+     * @since 1.0.7
+     */
+    double sampleRate() default 1;
+
+    /**
+     * 每秒最多保存的日志条数，小于等于0时不限制，发生异常或执行缓慢的调用不受限制
+     *
+     * @return 每秒最多保存的日志条数
+     *
+     * @since 1.0.7
+     */
+    double permitsPerSecond() default 0;
+
+    /**
+     * 慢调用阈值（毫秒），执行时长不小于该值的调用总是保存日志，小于0时不启用，仅对 {@link
+     * org.aspectj.lang.annotation.Around}注解的方法有效
+     *
+     * @return 慢调用阈值（毫秒）
+     *
+     * @since 1.0.7
+     */
+    long slowThreshold() default -1;
 }
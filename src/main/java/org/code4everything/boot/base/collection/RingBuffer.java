@@ -0,0 +1,178 @@
+package org.code4everything.boot.base.collection;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列，每个槽位带有序号，生产者通过CAS抢占写入位置，不需要加锁
+ *
+ * @author pantao
+ * @since 2019/1/26
+ */
+@ThreadSafe
+public class RingBuffer<E> {
+
+    /**
+     * 数据槽
+     *
+     * @since 1.0.7
+     */
+    private final AtomicReferenceArray<E> buffer;
+
+    /**
+     * 槽位序号，等于写入位置时可写，等于写入位置加一时可读
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * 下一个写入位置
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个读取位置
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 容量，会向上取整为2的幂
+     *
+     * @since 1.0.7
+     */
+    public RingBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity must between 1 and 2^30");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param e 元素，不能为NULL
+     *
+     * @return 队列已满时返回 false
+     *
+     * @since 1.0.7
+     */
+    public boolean offer(E e) {
+        Preconditions.checkNotNull(e);
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, e);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 槽位还未被消费
+                return false;
+            }
+            // 其他生产者已抢占该位置，重试
+        }
+    }
+
+    /**
+     * 取出元素
+     *
+     * @return 队列为空时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public E poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return e;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 批量取出元素
+     *
+     * @param consumer 消费者
+     * @param limit 最多取出的元素个数
+     *
+     * @return 取出的元素个数
+     *
+     * @since 1.0.7
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int count = 0;
+        E e;
+        while (count < limit && (e = poll()) != null) {
+            consumer.accept(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 获取元素个数（近似值）
+     *
+     * @return 元素个数
+     *
+     * @since 1.0.7
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * 获取容量
+     *
+     * @return 容量
+     *
+     * @since 1.0.7
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 是否为空（近似值）
+     *
+     * @return 是否为空
+     *
+     * @since 1.0.7
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,167 @@
+package org.code4everything.boot.base.collection;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 基于时间轮过期的并发映射，每个槽位是一个分段加锁的 {@link ConcurrentHashMap}，后台线程每个刻度将最旧的槽位整体丢弃
+ *
+ * <p>与逐条记录写入时间的缓存相比，写入和读取时不需要读取时间，也不需要扫描过期条目，条目的实际存活时间在 ttl 到 ttl + tick 之间</p>
+ *
+ * @author pantao
+ * @since 2019/1/27
+ */
+@ThreadSafe
+public class TimeWheelMap<K, V> implements AutoCloseable {
+
+    /**
+     * 共享的时间轮推进线程
+     *
+     * @since 1.0.7
+     */
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("boot-time-wheel-%d").setDaemon(true).build());
+
+    /**
+     * 槽位
+     *
+     * @since 1.0.7
+     */
+    private final AtomicReferenceArray<Map<K, V>> wheel;
+
+    /**
+     * 当前写入的槽位
+     *
+     * @since 1.0.7
+     */
+    private volatile int cursor = 0;
+
+    /**
+     * 推进任务，不再使用时需要调用 {@link #close()}取消
+     *
+     * @since 1.0.7
+     */
+    private final ScheduledFuture<?> ticker;
+
+    /**
+     * 构造函数
+     *
+     * @param ttl 条目的最短存活时长
+     * @param tick 时间轮刻度
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public TimeWheelMap(long ttl, long tick, TimeUnit unit) {
+        Preconditions.checkArgument(ttl > 0 && tick > 0, "ttl and tick must be positive");
+        // 多出的一个槽位保证条目至少存活 ttl
+        int size = (int) ((ttl + tick - 1) / tick) + 1;
+        this.wheel = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.set(i, new ConcurrentHashMap<>(16));
+        }
+        this.ticker = TICKER.scheduleAtFixedRate(this::advance, tick, tick, unit);
+    }
+
+    /**
+     * 添加条目
+     *
+     * @param key 键
+     * @param value 值
+     *
+     * @since 1.0.7
+     */
+    public void put(K key, V value) {
+        wheel.get(cursor).put(key, value);
+    }
+
+    /**
+     * 获取条目
+     *
+     * @param key 键
+     *
+     * @return 值，不存在或已过期时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public V get(K key) {
+        int size = wheel.length();
+        int current = cursor;
+        // 从最新的槽位向最旧的槽位查找
+        for (int i = 0; i < size; i++) {
+            V value = wheel.get((current - i + size) % size).get(key);
+            if (Objects.nonNull(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 移除并返回条目
+     *
+     * @param key 键
+     *
+     * @return 值，不存在或已过期时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public V remove(K key) {
+        int size = wheel.length();
+        int current = cursor;
+        V removed = null;
+        for (int i = 0; i < size; i++) {
+            V value = wheel.get((current - i + size) % size).remove(key);
+            if (Objects.isNull(removed)) {
+                removed = value;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 获取条目个数（包括已过期但未丢弃的条目）
+     *
+     * @return 条目个数
+     *
+     * @since 1.0.7
+     */
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < wheel.length(); i++) {
+            count += wheel.get(i).size();
+        }
+        return count;
+    }
+
+    /**
+     * 停止推进时间轮
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        ticker.cancel(false);
+    }
+
+    /**
+     * 推进一个刻度，最旧的槽位被替换为新的空槽位并成为当前槽位
+     *
+     * @since 1.0.7
+     */
+    private void advance() {
+        int next = (cursor + 1) % wheel.length();
+        wheel.set(next, new ConcurrentHashMap<>(16));
+        cursor = next;
+    }
+}
@@ -29,6 +29,13 @@ public class ConfigBean implements BaseBean {
      */
     private String[] interceptPrefixes;
 
+    /**
+     * 限流规则，按顺序匹配第一个规则
+     *
+     * @since 1.0.7
+     */
+    private RateLimitBean[] rateLimits;
+
     /**
      * 获取黑名单前缀
      *
@@ -101,4 +108,29 @@ public class ConfigBean implements BaseBean {
         this.interceptPrefixes = interceptPrefixes;
         return this;
     }
+
+    /**
+     * 获取限流规则
+     *
+     * @return 限流规则
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean[] getRateLimits() {
+        return rateLimits;
+    }
+
+    /**
+     * 设置限流规则
+     *
+     * @param rateLimits 限流规则，按顺序匹配第一个规则
+     *
+     * @return {@link ConfigBean}
+     *
+     * @since 1.0.7
+     */
+    public ConfigBean setRateLimits(RateLimitBean... rateLimits) {
+        this.rateLimits = rateLimits;
+        return this;
+    }
 }
@@ -1,5 +1,8 @@
 package org.code4everything.boot.bean;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import org.code4everything.boot.log.ArgsSerializer;
+
 /**
  * 日志信息
  *
@@ -29,6 +32,13 @@ public class LogBean implements BaseBean {
      */
     private String args;
 
+    /**
+     * 原始参数，在首次获取参数时才序列化
+     *
+     * @since 1.0.7
+     */
+    private transient Object[] rawArgs;
+
     /**
      * 方法描述
      *
@@ -43,6 +53,38 @@ public class LogBean implements BaseBean {
      */
     private Long executedTime;
 
+    /**
+     * 方法执行时长（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private Long executedNanos;
+
+    /**
+     * 获取方法执行时长（纳秒）
+     *
+     * @return 方法执行时长（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public Long getExecutedNanos() {
+        return executedNanos;
+    }
+
+    /**
+     * 设置方法执行时长（纳秒）
+     *
+     * @param executedNanos 方法执行时长（纳秒）
+     *
+     * @return {@link LogBean}
+     *
+     * @since 1.0.7
+     */
+    public LogBean setExecutedNanos(Long executedNanos) {
+        this.executedNanos = executedNanos;
+        return this;
+    }
+
     /**
      * 获取方法执行时长（毫秒）
      *
@@ -119,13 +161,17 @@ public class LogBean implements BaseBean {
     }
 
     /**
-     * 获取参数
+     * 获取参数，设置了原始参数时会在首次获取时通过 {@link ArgsSerializer}序列化
      *
      * @return 参数
      *
      * @since 1.0.0
      */
     public String getArgs() {
+        if (args == null && rawArgs != null) {
+            args = ArgsSerializer.serialize(rawArgs);
+            rawArgs = null;
+        }
         return args;
     }
 
@@ -140,6 +186,34 @@ public class LogBean implements BaseBean {
      */
     public LogBean setArgs(String args) {
         this.args = args;
+        this.rawArgs = null;
+        return this;
+    }
+
+    /**
+     * 获取未序列化的原始参数
+     *
+     * @return 原始参数，已经序列化时返回NULL
+     *
+     * @since 1.0.7
+     */
+    @JSONField(serialize = false)
+    public Object[] getRawArgs() {
+        return rawArgs;
+    }
+
+    /**
+     * 设置原始参数，延迟到首次获取参数时才序列化，不需要保存的日志将不会序列化参数
+     *
+     * @param rawArgs 原始参数
+     *
+     * @return {@link LogBean}
+     *
+     * @since 1.0.7
+     */
+    public LogBean setRawArgs(Object[] rawArgs) {
+        this.rawArgs = rawArgs;
+        this.args = null;
         return this;
     }
 
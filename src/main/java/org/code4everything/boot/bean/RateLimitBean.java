@@ -0,0 +1,193 @@
+package org.code4everything.boot.bean;
+
+/**
+ * 限流规则，请求路径以前缀开头时按规则限流，多个节点共享 Redis 中的计数
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class RateLimitBean implements BaseBean {
+
+    /**
+     * 限流的维度
+     *
+     * @since 1.0.7
+     */
+    public enum KeyType {
+
+        /**
+         * 所有请求共享一个限额
+         */
+        GLOBAL,
+
+        /**
+         * 每个客户端IP一个限额
+         */
+        IP,
+
+        /**
+         * 每个令牌一个限额，没有令牌时按IP限流
+         */
+        TOKEN
+    }
+
+    /**
+     * 请求路径的前缀
+     *
+     * @since 1.0.7
+     */
+    private String prefix;
+
+    /**
+     * 每秒允许的请求数
+     *
+     * @since 1.0.7
+     */
+    private double permitsPerSecond;
+
+    /**
+     * 允许突发的请求数，小于1时等于每秒允许的请求数
+     *
+     * @since 1.0.7
+     */
+    private int burst;
+
+    /**
+     * 限流的维度
+     *
+     * @since 1.0.7
+     */
+    private KeyType keyType = KeyType.IP;
+
+    /**
+     * 每次从 Redis 预取的令牌数，小于等于1时每个请求都访问 Redis
+     *
+     * @since 1.0.7
+     */
+    private int leaseSize;
+
+    /**
+     * 获取请求路径的前缀
+     *
+     * @return 请求路径的前缀
+     *
+     * @since 1.0.7
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 设置请求路径的前缀
+     *
+     * @param prefix 请求路径的前缀
+     *
+     * @return {@link RateLimitBean}
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean setPrefix(String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    /**
+     * 获取每秒允许的请求数
+     *
+     * @return 每秒允许的请求数
+     *
+     * @since 1.0.7
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 设置每秒允许的请求数
+     *
+     * @param permitsPerSecond 每秒允许的请求数
+     *
+     * @return {@link RateLimitBean}
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        return this;
+    }
+
+    /**
+     * 获取允许突发的请求数
+     *
+     * @return 允许突发的请求数
+     *
+     * @since 1.0.7
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * 设置允许突发的请求数
+     *
+     * @param burst 允许突发的请求数，小于1时等于每秒允许的请求数
+     *
+     * @return {@link RateLimitBean}
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean setBurst(int burst) {
+        this.burst = burst;
+        return this;
+    }
+
+    /**
+     * 获取限流的维度
+     *
+     * @return 限流的维度
+     *
+     * @since 1.0.7
+     */
+    public KeyType getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * 设置限流的维度
+     *
+     * @param keyType 限流的维度
+     *
+     * @return {@link RateLimitBean}
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean setKeyType(KeyType keyType) {
+        this.keyType = keyType;
+        return this;
+    }
+
+    /**
+     * 获取每次从 Redis 预取的令牌数
+     *
+     * @return 每次从 Redis 预取的令牌数
+     *
+     * @since 1.0.7
+     */
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    /**
+     * 设置每次从 Redis 预取的令牌数
+     *
+     * @param leaseSize 每次从 Redis 预取的令牌数，小于等于1时每个请求都访问 Redis
+     *
+     * @return {@link RateLimitBean}
+     *
+     * @since 1.0.7
+     */
+    public RateLimitBean setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+        return this;
+    }
+}
@@ -0,0 +1,449 @@
+package org.code4everything.boot.bean;
+
+/**
+ * Redis 连接池配置，默认值与 Jedis 连接池的默认值一致
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+public class RedisPoolBean implements BaseBean {
+
+    /**
+     * 连接的校验策略
+     *
+     * @since 1.0.7
+     */
+    public enum ValidationPolicy {
+
+        /**
+         * 不校验
+         */
+        NONE,
+
+        /**
+         * 获取连接时校验，每次获取连接多一次往返
+         */
+        ON_BORROW,
+
+        /**
+         * 空闲时由后台线程定期校验
+         */
+        WHILE_IDLE
+    }
+
+    /**
+     * 主机
+     *
+     * @since 1.0.7
+     */
+    private String hostName = "localhost";
+
+    /**
+     * 端口
+     *
+     * @since 1.0.7
+     */
+    private int port = 6379;
+
+    /**
+     * 数据库
+     *
+     * @since 1.0.7
+     */
+    private int database;
+
+    /**
+     * 密码，为空时不使用密码
+     *
+     * @since 1.0.7
+     */
+    private String password;
+
+    /**
+     * 客户端名称，为空时不设置
+     *
+     * @since 1.0.7
+     */
+    private String clientName;
+
+    /**
+     * 最大连接数
+     *
+     * @since 1.0.7
+     */
+    private int maxTotal = 8;
+
+    /**
+     * 最大空闲连接数
+     *
+     * @since 1.0.7
+     */
+    private int maxIdle = 8;
+
+    /**
+     * 最小空闲连接数
+     *
+     * @since 1.0.7
+     */
+    private int minIdle;
+
+    /**
+     * 获取连接的最长等待时间（毫秒），小于0时一直等待
+     *
+     * @since 1.0.7
+     */
+    private long maxWaitMillis = -1;
+
+    /**
+     * 连接超时时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private long connectTimeoutMillis = 2000;
+
+    /**
+     * 读取超时时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private long readTimeoutMillis = 2000;
+
+    /**
+     * 启动时预先建立的连接数，不超过最大连接数
+     *
+     * @since 1.0.7
+     */
+    private int warmUpConnections;
+
+    /**
+     * 连接的校验策略
+     *
+     * @since 1.0.7
+     */
+    private ValidationPolicy validationPolicy = ValidationPolicy.WHILE_IDLE;
+
+    /**
+     * 获取主机
+     *
+     * @return 主机
+     *
+     * @since 1.0.7
+     */
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * 设置主机
+     *
+     * @param hostName 主机
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setHostName(String hostName) {
+        this.hostName = hostName;
+        return this;
+    }
+
+    /**
+     * 获取端口
+     *
+     * @return 端口
+     *
+     * @since 1.0.7
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 设置端口
+     *
+     * @param port 端口
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * 获取数据库
+     *
+     * @return 数据库
+     *
+     * @since 1.0.7
+     */
+    public int getDatabase() {
+        return database;
+    }
+
+    /**
+     * 设置数据库
+     *
+     * @param database 数据库
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setDatabase(int database) {
+        this.database = database;
+        return this;
+    }
+
+    /**
+     * 获取密码
+     *
+     * @return 密码
+     *
+     * @since 1.0.7
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * 设置密码
+     *
+     * @param password 密码，为空时不使用密码
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    /**
+     * 获取客户端名称
+     *
+     * @return 客户端名称
+     *
+     * @since 1.0.7
+     */
+    public String getClientName() {
+        return clientName;
+    }
+
+    /**
+     * 设置客户端名称
+     *
+     * @param clientName 客户端名称，为空时不设置
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setClientName(String clientName) {
+        this.clientName = clientName;
+        return this;
+    }
+
+    /**
+     * 获取最大连接数
+     *
+     * @return 最大连接数
+     *
+     * @since 1.0.7
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 设置最大连接数
+     *
+     * @param maxTotal 最大连接数
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * 获取最大空闲连接数
+     *
+     * @return 最大空闲连接数
+     *
+     * @since 1.0.7
+     */
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * 设置最大空闲连接数
+     *
+     * @param maxIdle 最大空闲连接数
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+        return this;
+    }
+
+    /**
+     * 获取最小空闲连接数
+     *
+     * @return 最小空闲连接数
+     *
+     * @since 1.0.7
+     */
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * 设置最小空闲连接数
+     *
+     * @param minIdle 最小空闲连接数
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+        return this;
+    }
+
+    /**
+     * 获取获取连接的最长等待时间（毫秒）
+     *
+     * @return 获取连接的最长等待时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * 设置获取连接的最长等待时间（毫秒）
+     *
+     * @param maxWaitMillis 获取连接的最长等待时间（毫秒），小于0时一直等待
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        return this;
+    }
+
+    /**
+     * 获取连接超时时间（毫秒）
+     *
+     * @return 连接超时时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * 设置连接超时时间（毫秒）
+     *
+     * @param connectTimeoutMillis 连接超时时间（毫秒）
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 获取读取超时时间（毫秒）
+     *
+     * @return 读取超时时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * 设置读取超时时间（毫秒）
+     *
+     * @param readTimeoutMillis 读取超时时间（毫秒）
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setReadTimeoutMillis(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 获取启动时预先建立的连接数
+     *
+     * @return 启动时预先建立的连接数
+     *
+     * @since 1.0.7
+     */
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    /**
+     * 设置启动时预先建立的连接数
+     *
+     * @param warmUpConnections 启动时预先建立的连接数，不超过最大连接数
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+        return this;
+    }
+
+    /**
+     * 获取连接的校验策略
+     *
+     * @return 连接的校验策略
+     *
+     * @since 1.0.7
+     */
+    public ValidationPolicy getValidationPolicy() {
+        return validationPolicy;
+    }
+
+    /**
+     * 设置连接的校验策略
+     *
+     * @param validationPolicy 连接的校验策略
+     *
+     * @return {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolBean setValidationPolicy(ValidationPolicy validationPolicy) {
+        this.validationPolicy = validationPolicy;
+        return this;
+    }
+}
@@ -8,15 +8,25 @@ import com.google.common.cache.Cache;
 import org.apache.log4j.Logger;
 import org.code4everything.boot.base.FileUtils;
 import org.code4everything.boot.bean.ConfigBean;
+import org.code4everything.boot.bean.MultipartFileBean;
+import org.code4everything.boot.bean.RedisPoolBean;
 import org.code4everything.boot.encoder.FieldEncoder;
 import org.code4everything.boot.interfaces.FileWatcher;
 import org.code4everything.boot.log.AopLogUtils;
+import org.code4everything.boot.metrics.MetricsRecorder;
+import org.code4everything.boot.module.redis.RedisFactoryRegistry;
+import org.code4everything.boot.module.redis.RedisRateLimiter;
 import org.code4everything.boot.module.redis.RedisTemplateUtils;
+import org.code4everything.boot.web.HttpUtils;
+import org.code4everything.boot.web.file.FileCache;
+import org.code4everything.boot.web.file.GzipCompressor;
 import org.code4everything.boot.web.mvc.BaseController;
 import org.code4everything.boot.web.mvc.DefaultWebInterceptor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.function.Consumer;
 
 /**
  * 工具配置类
@@ -122,11 +132,68 @@ public class BootConfig {
      * @param logCache 日志缓存
      *
      * @since 1.0.1
+     * @deprecated 默认使用线程内的关联槽，跨线程时请使用 {@link #setAsyncLogCorrelation(boolean)}
      */
+    @Deprecated
     public static void setLogCache(Cache<String, ?> logCache) {
         AopLogUtils.setLogCache(logCache);
     }
 
+    /**
+     * 设置切面日志的前置通知和异常通知是否可能在不同的线程中执行
+     *
+     * @param asyncCorrelation 是否跨线程关联
+     *
+     * @since 1.0.7
+     */
+    public static void setAsyncLogCorrelation(boolean asyncCorrelation) {
+        AopLogUtils.setAsyncCorrelation(asyncCorrelation);
+    }
+
+    /**
+     * 设置热点文件缓存
+     *
+     * @param fileCache {@link FileCache}，为NULL时关闭缓存
+     *
+     * @since 1.0.7
+     */
+    public static void setFileCache(FileCache fileCache) {
+        HttpUtils.setFileCache(fileCache);
+    }
+
+    /**
+     * 设置预压缩文件管理
+     *
+     * @param gzipCompressor {@link GzipCompressor}，为NULL时关闭预压缩
+     *
+     * @since 1.0.7
+     */
+    public static void setGzipCompressor(GzipCompressor gzipCompressor) {
+        HttpUtils.setGzipCompressor(gzipCompressor);
+    }
+
+    /**
+     * 设置文件上传和响应的指标记录器
+     *
+     * @param metricsRecorder {@link MetricsRecorder}，为NULL时关闭指标记录
+     *
+     * @since 1.0.7
+     */
+    public static void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        HttpUtils.setMetricsRecorder(metricsRecorder);
+    }
+
+    /**
+     * 设置文件上传成功并写入磁盘后的回调，文件已存在时不回调
+     *
+     * @param uploadListener 回调，为NULL时关闭回调
+     *
+     * @since 1.0.7
+     */
+    public static void setUploadListener(Consumer<MultipartFileBean> uploadListener) {
+        HttpUtils.setUploadListener(uploadListener);
+    }
+
     /**
      * 设置配置类
      *
@@ -149,6 +216,66 @@ public class BootConfig {
         BaseController.setOkCode(okCode);
     }
 
+    /**
+     * 初始化 Redis 连接池
+     *
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisConnectionFactory(RedisPoolBean poolBean) {
+        RedisTemplateUtils.initRedisConnectionFactory(poolBean);
+    }
+
+    /**
+     * 设置限流器，用于 {@link ConfigBean#getRateLimits()}中的限流规则
+     *
+     * @param rateLimiter {@link RedisRateLimiter}
+     *
+     * @since 1.0.7
+     */
+    public static void setRateLimiter(RedisRateLimiter rateLimiter) {
+        DefaultWebInterceptor.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * 注册命名的 Redis 连接池，见 {@link RedisFactoryRegistry}
+     *
+     * @param name 名称
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void registerRedisConnectionFactory(String name, RedisPoolBean poolBean) {
+        RedisFactoryRegistry.register(name, poolBean);
+    }
+
+    /**
+     * 初始化 Redis 集群连接池
+     *
+     * @param nodes 集群节点，格式为 host:port
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisClusterConnectionFactory(Collection<String> nodes, RedisPoolBean poolBean) {
+        RedisTemplateUtils.initRedisClusterConnectionFactory(nodes, poolBean);
+    }
+
+    /**
+     * 初始化 Redis 哨兵连接池
+     *
+     * @param master 主节点名称
+     * @param sentinels 哨兵节点，格式为 host:port
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisSentinelConnectionFactory(String master, Collection<String> sentinels,
+                                                          RedisPoolBean poolBean) {
+        RedisTemplateUtils.initRedisSentinelConnectionFactory(master, sentinels, poolBean);
+    }
+
     /**
      * 初始化 Redis 连接池
      *
@@ -28,6 +28,10 @@ public class MessageConsts {
 
     public static final String REQUEST_BANNED_EN = "request banned";
 
+    public static final String TOO_MANY_REQUESTS_ZH = "请求过于频繁，请稍后重试";
+
+    public static final String TOO_MANY_REQUESTS_EN = "too many requests, please try again later";
+
     public static final String FILE_UNAVAILABLE_ZH = "没有可用的文件";
 
     public static final String FILE_UNAVAILABLE_EN = "no available file here";
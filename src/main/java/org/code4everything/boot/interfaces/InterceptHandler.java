@@ -2,6 +2,7 @@ package org.code4everything.boot.interfaces;
 
 import cn.hutool.http.ContentType;
 import cn.hutool.http.HttpStatus;
+import org.code4everything.boot.bean.RateLimitBean;
 import org.code4everything.boot.bean.Response;
 import org.code4everything.boot.constant.MessageConsts;
 import org.springframework.http.HttpHeaders;
@@ -35,6 +36,25 @@ public interface InterceptHandler {
         response.setStatus(HttpStatus.HTTP_FORBIDDEN);
     }
 
+    /**
+     * 处理被限流的请求，默认响应429
+     *
+     * @param request {@link HttpServletRequest}
+     * @param response {@link HttpServletResponse}
+     * @param handler {@link Object}
+     * @param rateLimitBean 匹配的限流规则
+     *
+     * @throws Exception 异常
+     * @since 1.0.7
+     */
+    default void handleRateLimited(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                   RateLimitBean rateLimitBean) throws Exception {
+        int status = org.springframework.http.HttpStatus.TOO_MANY_REQUESTS.value();
+        response.getWriter().append(new Response(status, MessageConsts.TOO_MANY_REQUESTS_ZH).toString());
+        response.setHeader(HttpHeaders.CONTENT_TYPE, ContentType.JSON.toString());
+        response.setStatus(status);
+    }
+
     /**
      * 处理黑白名单
      *
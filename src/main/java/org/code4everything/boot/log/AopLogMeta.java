@@ -0,0 +1,320 @@
+package org.code4everything.boot.log;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.code4everything.boot.annotations.AopLog;
+import org.code4everything.boot.metrics.LatencyStats;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 切面方法的元数据，每个目标类的每个方法只通过反射解析一次
+ *
+ * @author pantao
+ * @since 2019/1/26
+ **/
+final class AopLogMeta {
+
+    /**
+     * 元数据缓存，目标类卸载时随之回收
+     *
+     * @since 1.0.7
+     */
+    private static final ClassValue<Map<Method, AopLogMeta>> CACHE = new ClassValue<Map<Method, AopLogMeta>>() {
+        @Override
+        protected Map<Method, AopLogMeta> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    /**
+     * 非方法切点的元数据缓存，键为方法名和参数个数，目标类卸载时随之回收
+     *
+     * @since 1.0.7
+     */
+    private static final ClassValue<Map<String, AopLogMeta>> SCANNED = new ClassValue<Map<String, AopLogMeta>>() {
+        @Override
+        protected Map<String, AopLogMeta> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(16);
+        }
+    };
+
+    /**
+     * 方法的耗时统计，键为方法的完整名称
+     *
+     * @since 1.0.7
+     */
+    private static final Map<String, LatencyStats> STATS = new ConcurrentHashMap<>(64);
+
+    /**
+     * 目标类名
+     *
+     * @since 1.0.7
+     */
+    private final String className;
+
+    /**
+     * 方法名
+     *
+     * @since 1.0.7
+     */
+    private final String methodName;
+
+    /**
+     * 方法上的注解，可能为NULL
+     *
+     * @since 1.0.7
+     */
+    private final AopLog aopLog;
+
+    /**
+     * 采样率
+     *
+     * @since 1.0.7
+     */
+    private final double sampleRate;
+
+    /**
+     * 令牌桶，不限制时为NULL
+     *
+     * @since 1.0.7
+     */
+    private final TokenBucket tokenBucket;
+
+    /**
+     * 慢调用阈值（纳秒），小于0时不启用
+     *
+     * @since 1.0.7
+     */
+    private final long slowThresholdNanos;
+
+    /**
+     * 方法的完整名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @since 1.0.7
+     */
+    private final String fullName;
+
+    /**
+     * 耗时统计
+     *
+     * @since 1.0.7
+     */
+    private final LatencyStats stats;
+
+    private AopLogMeta(Class<?> targetClass, String methodName, String signature, AopLog aopLog) {
+        this.className = targetClass.getName();
+        this.methodName = methodName;
+        this.aopLog = aopLog;
+        this.fullName = className + "#" + signature;
+        this.stats = STATS.computeIfAbsent(fullName, key -> new LatencyStats());
+        if (Objects.isNull(aopLog)) {
+            this.sampleRate = 1;
+            this.tokenBucket = null;
+            this.slowThresholdNanos = -1;
+        } else {
+            this.sampleRate = aopLog.sampleRate();
+            this.tokenBucket = aopLog.permitsPerSecond() > 0 ? new TokenBucket(aopLog.permitsPerSecond()) : null;
+            long threshold = aopLog.slowThreshold();
+            this.slowThresholdNanos = threshold < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(threshold);
+        }
+    }
+
+    /**
+     * 获取切点对应的元数据
+     *
+     * @param joinPoint 切点 {@link JoinPoint}
+     *
+     * @return {@link AopLogMeta}
+     *
+     * @since 1.0.7
+     */
+    static AopLogMeta of(JoinPoint joinPoint) {
+        Class<?> targetClass = joinPoint.getTarget().getClass();
+        Signature signature = joinPoint.getSignature();
+        if (signature instanceof MethodSignature) {
+            Method method = ((MethodSignature) signature).getMethod();
+            Map<Method, AopLogMeta> metas = CACHE.get(targetClass);
+            AopLogMeta meta = metas.get(method);
+            if (Objects.isNull(meta)) {
+                meta = metas.computeIfAbsent(method, key -> resolve(targetClass, key));
+            }
+            return meta;
+        }
+        String methodName = signature.getName();
+        int argCount = joinPoint.getArgs().length;
+        Map<String, AopLogMeta> metas = SCANNED.get(targetClass);
+        String key = methodName + "(" + argCount + ")";
+        AopLogMeta meta = metas.get(key);
+        if (Objects.isNull(meta)) {
+            // 每个方法只扫描一次，令牌桶在调用之间共享
+            meta = metas.computeIfAbsent(key, k -> scan(targetClass, methodName, argCount));
+        }
+        return meta;
+    }
+
+    /**
+     * 调用前的采样决策，先按采样率采样，再从令牌桶获取令牌
+     *
+     * @return 是否保存日志
+     *
+     * @since 1.0.7
+     */
+    boolean sample() {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        return Objects.isNull(tokenBucket) || tokenBucket.tryAcquire();
+    }
+
+    /**
+     * 调用后的尾部采样决策，发生异常或执行缓慢的调用总是保存日志
+     *
+     * @param throwable 异常，可以为NULL
+     * @param executedNanos 执行时长（纳秒）
+     *
+     * @return 是否保存日志
+     *
+     * @since 1.0.7
+     */
+    boolean keep(Throwable throwable, long executedNanos) {
+        return Objects.nonNull(throwable) || (slowThresholdNanos >= 0 && executedNanos >= slowThresholdNanos);
+    }
+
+    /**
+     * 获取所有方法的耗时统计
+     *
+     * @return 只读的耗时统计，键为方法的完整名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @since 1.0.7
+     */
+    static Map<String, LatencyStats> getAllStats() {
+        return Collections.unmodifiableMap(STATS);
+    }
+
+    /**
+     * 获取耗时统计
+     *
+     * @return {@link LatencyStats}
+     *
+     * @since 1.0.7
+     */
+    LatencyStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 获取方法的完整名称
+     *
+     * @return 方法的完整名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @since 1.0.7
+     */
+    String getFullName() {
+        return fullName;
+    }
+
+    /**
+     * 获取方法描述
+     *
+     * @return 方法描述，没有注解时返回NULL
+     *
+     * @since 1.0.7
+     */
+    String getDescription() {
+        return Objects.isNull(aopLog) ? null : aopLog.value();
+    }
+
+    /**
+     * 获取方法上的注解
+     *
+     * @return {@link AopLog}，可能为NULL
+     *
+     * @since 1.0.7
+     */
+    AopLog getAopLog() {
+        return aopLog;
+    }
+
+    /**
+     * 获取目标类名
+     *
+     * @return 目标类名
+     *
+     * @since 1.0.7
+     */
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * 获取方法名
+     *
+     * @return 方法名
+     *
+     * @since 1.0.7
+     */
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * 解析方法的注解，注解可能在目标类的方法上，也可能在接口的方法上
+     *
+     * @param targetClass 目标类
+     * @param method 切点的方法
+     *
+     * @return {@link AopLogMeta}
+     *
+     * @since 1.0.7
+     */
+    private static AopLogMeta resolve(Class<?> targetClass, Method method) {
+        AopLog aopLog = null;
+        try {
+            aopLog = targetClass.getMethod(method.getName(), method.getParameterTypes()).getAnnotation(AopLog.class);
+        } catch (NoSuchMethodException e) {
+            // 非公共方法，使用切点的方法
+        }
+        if (Objects.isNull(aopLog)) {
+            aopLog = method.getAnnotation(AopLog.class);
+        }
+        // 参数使用完整类名，避免不同包的同名类型的重载方法共用一个统计
+        StringJoiner signature = new StringJoiner(",", method.getName() + "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            signature.add(type.getTypeName());
+        }
+        return new AopLogMeta(targetClass, method.getName(), signature.toString(), aopLog);
+    }
+
+    /**
+     * 根据方法名和参数个数查找注解，用于非方法切点
+     *
+     * @param targetClass 目标类
+     * @param methodName 方法名
+     * @param argCount 参数个数
+     *
+     * @return {@link AopLogMeta}
+     *
+     * @since 1.0.7
+     */
+    private static AopLogMeta scan(Class<?> targetClass, String methodName, int argCount) {
+        String signature = methodName + "(" + argCount + ")";
+        for (Method method : targetClass.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == argCount) {
+                AopLog aopLog = method.getAnnotation(AopLog.class);
+                if (Objects.nonNull(aopLog)) {
+                    return new AopLogMeta(targetClass, methodName, signature, aopLog);
+                }
+            }
+        }
+        return new AopLogMeta(targetClass, methodName, signature, null);
+    }
+}
@@ -2,20 +2,28 @@ package org.code4everything.boot.log;
 
 import cn.hutool.core.lang.Console;
 import cn.hutool.core.util.ObjectUtil;
-import com.alibaba.fastjson.JSONArray;
 import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.code4everything.boot.annotations.AopLog;
+import org.code4everything.boot.base.collection.TimeWheelMap;
 import org.code4everything.boot.bean.LogBean;
 import org.code4everything.boot.bean.LogExBean;
 import org.code4everything.boot.config.BootConfig;
+import org.code4everything.boot.log.trace.Span;
+import org.code4everything.boot.log.trace.Tracer;
+import org.code4everything.boot.metrics.LatencySnapshot;
+import org.code4everything.boot.metrics.LatencyStats;
 import org.code4everything.boot.service.LogService;
 
-import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,13 +34,23 @@ import java.util.concurrent.TimeUnit;
  */
 public class AopLogUtils {
 
+    private static final Logger LOGGER = Logger.getLogger(AopLogUtils.class);
+
+    private static final long ASYNC_TTL_SECONDS = 5;
+
     /**
-     * 日志缓存
+     * 日志缓存，设置后将代替默认的关联方式
      *
      * @since 1.0.1
      */
-    private static Cache<String, Object> logCache =
-            CacheBuilder.newBuilder().expireAfterWrite(5, TimeUnit.SECONDS).build();
+    private static Cache<String, Object> logCache = null;
+
+    /**
+     * 跨线程的日志关联，前置通知和异常通知可能不在同一个线程中执行时使用，为NULL时使用线程内的关联槽
+     *
+     * @since 1.0.7
+     */
+    private static TimeWheelMap<String, Object> asyncLogMap = null;
 
     private AopLogUtils() {}
 
@@ -42,12 +60,30 @@ public class AopLogUtils {
      * @param logCache 日志缓存
      *
      * @since 1.0.1
+     * @deprecated 默认使用线程内的关联槽，跨线程时请使用 {@link #setAsyncCorrelation(boolean)}
      */
+    @Deprecated
     @SuppressWarnings("unchecked")
     public static void setLogCache(Cache<String, ?> logCache) {
         AopLogUtils.logCache = (Cache<String, Object>) logCache;
     }
 
+    /**
+     * 设置前置通知和异常通知是否可能在不同的线程中执行，开启后使用时间轮过期的映射关联日志，日志最少保留5秒
+     *
+     * @param asyncCorrelation 是否跨线程关联
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void setAsyncCorrelation(boolean asyncCorrelation) {
+        if (asyncCorrelation && Objects.isNull(asyncLogMap)) {
+            asyncLogMap = new TimeWheelMap<>(ASYNC_TTL_SECONDS, 1, TimeUnit.SECONDS);
+        } else if (!asyncCorrelation && Objects.nonNull(asyncLogMap)) {
+            asyncLogMap.close();
+            asyncLogMap = null;
+        }
+    }
+
     /**
      * 保存日志（不抛出异常），适用于 {@link Around} 注解的方法
      *
@@ -117,6 +153,76 @@ public class AopLogUtils {
         throw logExBean.getThrowable();
     }
 
+    /**
+     * 保存日志，适用于返回异步结果的 {@link Around} 注解的方法
+     *
+     * @param service 日志服务 {@link LogService}
+     * @param point 切点  {@link ProceedingJoinPoint}
+     * @param <T> 日志表
+     *
+     * @return 执行结果
+     *
+     * @throws Throwable 方法同步抛出的异常
+     * @see #saveLogAsync(LogService, ProceedingJoinPoint, boolean)
+     * @since 1.0.7
+     */
+    public static <T> Object saveLogAsync(LogService<T> service, ProceedingJoinPoint point) throws Throwable {
+        return saveLogAsync(service, point, true);
+    }
+
+    /**
+     * 保存日志，适用于返回异步结果的 {@link Around} 注解的方法
+     *
+     * <p>方法返回 {@link CompletionStage}（如：{@link java.util.concurrent.CompletableFuture}）或 {@link
+     * org.springframework.web.context.request.async.DeferredResult}时，不等待结果完成，而是在结果完成时才记录耗时统计并保存日志，
+     * 异步结果的异常同样会被记录（DeferredResult 需要在 Spring MVC 的请求中返回，否则按同步结果处理）；返回其他类型时与 {@link
+     * #saveLogWithThrowable(LogService, ProceedingJoinPoint, boolean)}一致。
+     * 原样返回执行结果，日志在完成结果的线程中保存，建议配合 {@link org.code4everything.boot.service.AsyncLogService}使用</p>
+     *
+     * @param service 日志服务 {@link LogService}
+     * @param point 切点  {@link ProceedingJoinPoint}
+     * @param shouldSave 是否保存日志
+     * @param <T> 日志表
+     *
+     * @return 执行结果
+     *
+     * @throws Throwable 方法同步抛出的异常
+     * @since 1.0.7
+     */
+    public static <T> Object saveLogAsync(LogService<T> service, ProceedingJoinPoint point,
+                                          boolean shouldSave) throws Throwable {
+        AopLogMeta meta = AopLogMeta.of(point);
+        boolean sampled = shouldSave && meta.sample();
+        LogBean logBean = parse(point, meta);
+        Span span = Tracer.start(meta.getFullName());
+        long beginTime = System.nanoTime();
+        Object result;
+        try {
+            result = point.proceed();
+        } catch (Throwable e) {
+            long executedNanos = System.nanoTime() - beginTime;
+            Tracer.finish(span, e);
+            complete(service, meta, logBean, shouldSave, sampled, e, null, executedNanos);
+            throw e;
+        }
+        if (result instanceof CompletionStage) {
+            // 片段在完成结果的线程中结束，不再作为当前线程后续调用的父片段
+            Tracer.detach(span);
+            ((CompletionStage<?>) result).whenComplete((value, e) -> completeAsync(service, meta, logBean, shouldSave,
+                    sampled, span, unwrap(e), value, System.nanoTime() - beginTime));
+        } else if (DeferredResultSupport.isDeferredResult(result) && DeferredResultSupport.onCompletion(result, (value,
+                e) -> completeAsync(service, meta, logBean, shouldSave, sampled, span, e, value,
+                System.nanoTime() - beginTime))) {
+            // 在请求的异步处理完成后才回调，不会在当前线程中回调
+            Tracer.detach(span);
+        } else {
+            long executedNanos = System.nanoTime() - beginTime;
+            Tracer.finish(span, null);
+            complete(service, meta, logBean, shouldSave, sampled, null, result, executedNanos);
+        }
+        return result;
+    }
+
     /**
      * 保存日志信息，适用于非 {@link Around} 注解的方法
      *
@@ -126,7 +232,7 @@ public class AopLogUtils {
      * @param throwable 异常抛出 {@link Throwable}
      * @param <T> 日志表
      *
-     * @return 日志信息
+     * @return 日志信息，被 {@link AopLog#sampleRate()}或 {@link AopLog#permitsPerSecond()}丢弃时返回NULL
      *
      * @since 1.0.0
      */
@@ -134,13 +240,19 @@ public class AopLogUtils {
     public static <T> T saveLog(LogService<T> service, String key, JoinPoint point, Throwable throwable) {
         T log;
         if (Objects.isNull(throwable)) {
-            log = service.save(service.getLog(parse(point)));
-            logCache.put(key, log);
+            AopLogMeta meta = AopLogMeta.of(point);
+            if (!meta.sample()) {
+                // 清除同一个键上旧的日志，避免异常被关联到其他请求的日志上
+                removeLog(key);
+                return null;
+            }
+            log = service.save(service.getLog(parse(point, meta)));
+            putLog(key, log);
             if (BootConfig.isDebug()) {
                 Console.log(log);
             }
         } else {
-            log = (T) logCache.asMap().get(key);
+            log = (T) removeLog(key);
             if (ObjectUtil.isNull(log)) {
                 log = service.getLog(parse(point));
             }
@@ -148,11 +260,92 @@ public class AopLogUtils {
             if (BootConfig.isDebug()) {
                 Console.error(throwable, log.toString());
             }
-            logCache.asMap().remove(key);
         }
         return log;
     }
 
+    /**
+     * 方法正常返回后移除关联的日志，适用于 {@code @AfterReturning}注解的方法，与 {@link #saveLog(LogService, String, JoinPoint,
+     * Throwable)}使用相同的键
+     *
+     * @param key 缓存键
+     *
+     * @since 1.0.7
+     */
+    public static void completeLog(String key) {
+        removeLog(key);
+    }
+
+    /**
+     * 获取所有 {@link Around}方法的耗时统计快照
+     *
+     * @return 耗时统计快照，键为方法的完整名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @since 1.0.7
+     */
+    public static Map<String, LatencySnapshot> getMethodStats() {
+        Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        AopLogMeta.getAllStats().forEach((name, stats) -> snapshots.put(name, stats.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * 获取指定方法的耗时统计
+     *
+     * @param name 方法的完整名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @return {@link LatencyStats}，不存在时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static LatencyStats getMethodStats(String name) {
+        return AopLogMeta.getAllStats().get(name);
+    }
+
+    /**
+     * 清空所有方法的耗时统计
+     *
+     * @since 1.0.7
+     */
+    public static void resetMethodStats() {
+        AopLogMeta.getAllStats().values().forEach(LatencyStats::reset);
+    }
+
+    /**
+     * 关联日志，同步调用时保存在线程内的关联槽中，超过5秒视为过期
+     *
+     * @param key 键
+     * @param log 日志
+     *
+     * @since 1.0.7
+     */
+    private static void putLog(String key, Object log) {
+        if (Objects.nonNull(logCache)) {
+            logCache.put(key, log);
+        } else if (Objects.nonNull(asyncLogMap)) {
+            asyncLogMap.put(key, log);
+        } else {
+            CorrelationSlot.current().put(key, log);
+        }
+    }
+
+    /**
+     * 移除并返回关联的日志
+     *
+     * @param key 键
+     *
+     * @return 日志，不存在时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private static Object removeLog(String key) {
+        if (Objects.nonNull(logCache)) {
+            return logCache.asMap().remove(key);
+        }
+        TimeWheelMap<String, Object> map = asyncLogMap;
+        return Objects.isNull(map) ? CorrelationSlot.current().remove(key) : map.remove(key);
+    }
+
     /**
      * 解析切面信息，需要方法名注有注解 {@link AopLog}
      *
@@ -163,20 +356,25 @@ public class AopLogUtils {
      * @since 1.0.0
      */
     public static LogBean parse(JoinPoint joinPoint) {
-        LogBean logBean = new LogBean().setArgs(JSONArray.toJSONString(joinPoint.getArgs()));
-        Class<?> targetClass = joinPoint.getTarget().getClass();
-        // 设置类名和方法名
-        logBean.setClassName(targetClass.getName()).setMethodName(joinPoint.getSignature().getName());
-        for (Method method : targetClass.getMethods()) {
-            // 找到对应的方法名
-            if (method.getName().equals(logBean.getMethodName()) && method.getParameterTypes().length == logBean.getArgs().length()) {
-                AopLog aopLog = method.getAnnotation(AopLog.class);
-                if (ObjectUtil.isNotNull(aopLog)) {
-                    return logBean.setDescription(aopLog.value());
-                }
-            }
-        }
-        return logBean;
+        // 设置类名、方法名和方法描述，每个方法只反射解析一次
+        return parse(joinPoint, AopLogMeta.of(joinPoint));
+    }
+
+    /**
+     * 解析切面信息
+     *
+     * @param joinPoint 切面 {@link JoinPoint}
+     * @param meta 方法的元数据 {@link AopLogMeta}
+     *
+     * @return {@link LogBean}
+     *
+     * @since 1.0.7
+     */
+    private static LogBean parse(JoinPoint joinPoint, AopLogMeta meta) {
+        // 参数延迟到获取时才序列化
+        LogBean logBean = new LogBean().setRawArgs(joinPoint.getArgs());
+        logBean.setClassName(meta.getClassName()).setMethodName(meta.getMethodName());
+        return ObjectUtil.isNull(meta.getAopLog()) ? logBean : logBean.setDescription(meta.getDescription());
     }
 
     /**
@@ -187,15 +385,19 @@ public class AopLogUtils {
      * @param saveLog 是否保存日志
      * @param <T> 日志表
      *
-     * @return {@link LogExBean}
+     * @return {@link LogExBean}，日志被采样丢弃时 {@link LogExBean#getLog()}为NULL
      *
      * @since 1.0.4
      */
     private static <T> LogExBean<T> proceedAround(LogService<T> service, ProceedingJoinPoint point, boolean saveLog) {
         // 获取日志信息
-        LogBean logBean = parse(point);
+        AopLogMeta meta = AopLogMeta.of(point);
+        // 在执行方法前完成采样决策，被丢弃的日志不会序列化参数
+        boolean sampled = saveLog && meta.sample();
+        LogBean logBean = parse(point, meta);
         Throwable t = null;
-        long beginTime = System.currentTimeMillis();
+        Span span = Tracer.start(meta.getFullName());
+        long beginTime = System.nanoTime();
         Object result = null;
         try {
             // 执行方法
@@ -203,7 +405,37 @@ public class AopLogUtils {
         } catch (Throwable e) {
             t = e;
         }
-        logBean.setExecutedTime(System.currentTimeMillis() - beginTime);
+        long executedNanos = System.nanoTime() - beginTime;
+        Tracer.finish(span, t);
+        return complete(service, meta, logBean, saveLog, sampled, t, result, executedNanos);
+    }
+
+    /**
+     * 方法执行完成，记录耗时统计并保存日志
+     *
+     * @param service 日志服务 {@link LogService}
+     * @param meta 方法的元数据 {@link AopLogMeta}
+     * @param logBean {@link LogBean}
+     * @param saveLog 是否保存日志
+     * @param sampled 日志是否被采样
+     * @param t 可能发生的异常
+     * @param result 执行结果
+     * @param executedNanos 执行时长（纳秒）
+     * @param <T> 日志表
+     *
+     * @return {@link LogExBean}，日志被采样丢弃时 {@link LogExBean#getLog()}为NULL
+     *
+     * @since 1.0.7
+     */
+    private static <T> LogExBean<T> complete(LogService<T> service, AopLogMeta meta, LogBean logBean, boolean saveLog,
+                                             boolean sampled, Throwable t, Object result, long executedNanos) {
+        // 无论日志是否被采样，都记录耗时统计
+        meta.getStats().record(executedNanos, Objects.nonNull(t));
+        logBean.setExecutedNanos(executedNanos).setExecutedTime(TimeUnit.NANOSECONDS.toMillis(executedNanos));
+        if (saveLog && !sampled && !meta.keep(t, executedNanos)) {
+            // 未被采样，并且没有发生异常也不是慢调用
+            return new LogExBean<>(null, t, result);
+        }
         T log = service.getLog(logBean);
         // 保存日志
         if (saveLog) {
@@ -215,5 +447,34 @@ public class AopLogUtils {
         }
         return new LogExBean<>(log, t, result);
     }
-}
 
+    /**
+     * 异步结果完成时保存日志，在完成结果的线程中执行，不会抛出异常
+     *
+     * @since 1.0.7
+     */
+    private static <T> void completeAsync(LogService<T> service, AopLogMeta meta, LogBean logBean, boolean saveLog,
+                                          boolean sampled, Span span, Throwable t, Object result,
+                                          long executedNanos) {
+        Tracer.finish(span, t);
+        try {
+            complete(service, meta, logBean, saveLog, sampled, t, result, executedNanos);
+        } catch (Exception e) {
+            LOGGER.error("save async log failed, message -> " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取异步结果的实际异常
+     *
+     * @param throwable {@link CompletionStage}传递的异常
+     *
+     * @return 实际异常
+     *
+     * @since 1.0.7
+     */
+    private static Throwable unwrap(Throwable throwable) {
+        boolean wrapped = throwable instanceof CompletionException || throwable instanceof ExecutionException;
+        return wrapped && Objects.nonNull(throwable.getCause()) ? throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,265 @@
+package org.code4everything.boot.log;
+
+import com.alibaba.fastjson.JSON;
+import com.google.common.base.Preconditions;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 切面方法参数序列化工具，限制每个参数和整体的长度，跳过流、Servlet对象、字节数组等参数，并隐藏指定类型的参数
+ *
+ * <p>Servlet 和 Spring Web 是可选依赖，通过类名加载相关类型，不存在时忽略，非 Web 应用也可以使用</p>
+ *
+ * @author pantao
+ * @since 2019/1/26
+ **/
+public class ArgsSerializer {
+
+    private static final String REDACTED = "\"******\"";
+
+    private static final String TRUNCATED_SUFFIX = "...";
+
+    /**
+     * 文件上传的类型，不存在时为NULL
+     *
+     * @since 1.0.7
+     */
+    private static final Class<?> MULTIPART_FILE_TYPE = loadType("org.springframework.web.multipart.MultipartFile");
+
+    /**
+     * 单个参数序列化后的最大长度
+     *
+     * @since 1.0.7
+     */
+    private static int maxArgLength = 1024;
+
+    /**
+     * 所有参数序列化后的最大长度
+     *
+     * @since 1.0.7
+     */
+    private static int maxTotalLength = 4096;
+
+    /**
+     * 跳过序列化的类型，只记录类型名称
+     *
+     * @since 1.0.7
+     */
+    private static final Set<Class<?>> SKIP_TYPES = new CopyOnWriteArraySet<>(Arrays.asList(InputStream.class,
+            OutputStream.class, Reader.class, Writer.class));
+
+    static {
+        String[] optionalTypes = {"javax.servlet.ServletRequest", "javax.servlet.ServletResponse",
+                "javax.servlet.http.HttpSession"};
+        for (String name : optionalTypes) {
+            Class<?> type = loadType(name);
+            if (type != null) {
+                SKIP_TYPES.add(type);
+            }
+        }
+    }
+
+    /**
+     * 需要隐藏的类型
+     *
+     * @since 1.0.7
+     */
+    private static final Set<Class<?>> REDACT_TYPES = new CopyOnWriteArraySet<>();
+
+    private ArgsSerializer() {}
+
+    /**
+     * 设置单个参数序列化后的最大长度
+     *
+     * @param maxArgLength 最大长度
+     *
+     * @since 1.0.7
+     */
+    public static void setMaxArgLength(int maxArgLength) {
+        Preconditions.checkArgument(maxArgLength > 0, "max length must be positive");
+        ArgsSerializer.maxArgLength = maxArgLength;
+    }
+
+    /**
+     * 设置所有参数序列化后的最大长度
+     *
+     * @param maxTotalLength 最大长度
+     *
+     * @since 1.0.7
+     */
+    public static void setMaxTotalLength(int maxTotalLength) {
+        Preconditions.checkArgument(maxTotalLength > 0, "max length must be positive");
+        ArgsSerializer.maxTotalLength = maxTotalLength;
+    }
+
+    /**
+     * 添加跳过序列化的类型（包括子类），只记录类型名称
+     *
+     * @param types 类型
+     *
+     * @since 1.0.7
+     */
+    public static void addSkipTypes(Class<?>... types) {
+        SKIP_TYPES.addAll(Arrays.asList(types));
+    }
+
+    /**
+     * 添加需要隐藏的类型（包括子类），如：密码、证件等参数类型
+     *
+     * @param types 类型
+     *
+     * @since 1.0.7
+     */
+    public static void addRedactTypes(Class<?>... types) {
+        REDACT_TYPES.addAll(Arrays.asList(types));
+    }
+
+    /**
+     * 序列化参数，结果为JSON数组，超出长度的参数会被截断为字符串
+     *
+     * @param args 参数
+     *
+     * @return JSON数组
+     *
+     * @since 1.0.7
+     */
+    public static String serialize(Object[] args) {
+        if (args == null) {
+            return "[]";
+        }
+        int total = maxTotalLength;
+        StringBuilder builder = new StringBuilder(Math.min(total, 256)).append('[');
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            int remaining = total - builder.length();
+            if (remaining <= 0) {
+                builder.append(JSON.toJSONString(TRUNCATED_SUFFIX));
+                break;
+            }
+            appendArg(builder, args[i], Math.min(maxArgLength, remaining));
+        }
+        return builder.append(']').toString();
+    }
+
+    private static void appendArg(StringBuilder builder, Object arg, int budget) {
+        if (arg == null) {
+            builder.append("null");
+            return;
+        }
+        Class<?> type = arg.getClass();
+        if (isInstance(REDACT_TYPES, type)) {
+            builder.append(REDACTED);
+        } else if (type == byte[].class) {
+            builder.append("\"byte[").append(((byte[]) arg).length).append("]\"");
+        } else if (MULTIPART_FILE_TYPE != null && MULTIPART_FILE_TYPE.isInstance(arg)) {
+            builder.append(JSON.toJSONString(MultipartFileHolder.describe(arg)));
+        } else if (isInstance(SKIP_TYPES, type)) {
+            builder.append('"').append(type.getName()).append('"');
+        } else {
+            BudgetWriter writer = new BudgetWriter(budget);
+            try {
+                JSON.writeJSONString(writer, arg);
+                builder.append(writer.builder);
+            } catch (RuntimeException e) {
+                if (writer.exceeded) {
+                    // 超出长度时将已序列化的部分作为字符串记录，保证结果仍然是合法的JSON
+                    builder.append(JSON.toJSONString(writer.builder + TRUNCATED_SUFFIX));
+                } else {
+                    // 无法序列化的参数只记录类型名称，不影响日志的保存
+                    builder.append('"').append(type.getName()).append('"');
+                }
+            }
+        }
+    }
+
+    private static Class<?> loadType(String name) {
+        try {
+            return Class.forName(name, false, ArgsSerializer.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static boolean isInstance(Set<Class<?>> types, Class<?> type) {
+        for (Class<?> clazz : types) {
+            if (clazz.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 引用 {@link MultipartFile}的方法，只在参数是文件上传时加载，没有 Spring Web 时不会加载
+     *
+     * @since 1.0.7
+     */
+    private static class MultipartFileHolder {
+
+        private static String describe(Object arg) {
+            MultipartFile file = (MultipartFile) arg;
+            return "MultipartFile[" + file.getOriginalFilename() + "," + file.getSize() + "]";
+        }
+    }
+
+    /**
+     * 有长度限制的输出流，超出长度时抛出异常中止序列化
+     *
+     * <p>序列化器内部有缓冲区，实际写入的长度可能超出限制一个缓冲区，超出部分会被丢弃</p>
+     *
+     * @since 1.0.7
+     */
+    private static class BudgetWriter extends Writer {
+
+        private final StringBuilder builder;
+
+        private final int budget;
+
+        private boolean exceeded = false;
+
+        private BudgetWriter(int budget) {
+            this.budget = budget;
+            this.builder = new StringBuilder(Math.min(budget, 256));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            int writable = Math.min(len, budget - builder.length());
+            builder.append(cbuf, off, writable);
+            if (writable < len) {
+                // 序列化器可能会包装该异常，通过标志位判断是否超出长度
+                exceeded = true;
+                throw BudgetExceededException.INSTANCE;
+            }
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * 超出长度的异常，不记录堆栈
+     *
+     * @since 1.0.7
+     */
+    private static class BudgetExceededException extends RuntimeException {
+
+        private static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+        private BudgetExceededException() {
+            super("budget exceeded", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.code4everything.boot.log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程内的日志关联槽，用于同步调用时在前置通知和异常通知之间传递日志，只保留最近的几条
+ *
+ * <p>方法正常返回或者未被采样时应移除条目，超过5秒的条目视为不存在，避免线程池中的线程把旧请求的日志关联到新的异常上</p>
+ *
+ * @author pantao
+ * @since 2019/1/27
+ **/
+final class CorrelationSlot {
+
+    private static final int SIZE = 4;
+
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final ThreadLocal<CorrelationSlot> SLOT = ThreadLocal.withInitial(CorrelationSlot::new);
+
+    private final String[] keys = new String[SIZE];
+
+    private final Object[] values = new Object[SIZE];
+
+    /**
+     * 写入时间（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private final long[] times = new long[SIZE];
+
+    /**
+     * 下一个写入的位置，嵌套调用超过槽位数时覆盖最旧的条目
+     *
+     * @since 1.0.7
+     */
+    private int next = 0;
+
+    private CorrelationSlot() {}
+
+    /**
+     * 获取当前线程的关联槽
+     *
+     * @return {@link CorrelationSlot}
+     *
+     * @since 1.0.7
+     */
+    static CorrelationSlot current() {
+        return SLOT.get();
+    }
+
+    /**
+     * 保存日志
+     *
+     * @param key 键
+     * @param value 日志
+     *
+     * @since 1.0.7
+     */
+    void put(String key, Object value) {
+        long now = System.nanoTime();
+        int index = -1;
+        for (int i = 0; i < SIZE; i++) {
+            if (key.equals(keys[i])) {
+                index = i;
+                break;
+            }
+            if (index < 0 && (keys[i] == null || now - times[i] > MAX_AGE_NANOS)) {
+                // 优先使用空闲或者已过期的位置
+                index = i;
+            }
+        }
+        if (index < 0) {
+            index = next;
+            next = (next + 1) % SIZE;
+        }
+        keys[index] = key;
+        values[index] = value;
+        times[index] = now;
+    }
+
+    /**
+     * 移除并返回日志
+     *
+     * @param key 键
+     *
+     * @return 日志，不存在或者已过期时返回NULL
+     *
+     * @since 1.0.7
+     */
+    Object remove(String key) {
+        for (int i = 0; i < SIZE; i++) {
+            if (key.equals(keys[i])) {
+                Object value = values[i];
+                keys[i] = null;
+                values[i] = null;
+                return System.nanoTime() - times[i] > MAX_AGE_NANOS ? null : value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package org.code4everything.boot.log;
+
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * 监听 {@link org.springframework.web.context.request.async.DeferredResult}的完成，spring-web 不存在时不会加载相关的类
+ *
+ * <p>通过当前请求的 {@link org.springframework.web.context.request.async.WebAsyncManager}注册处理拦截器，不会覆盖
+ * DeferredResult 已设置的回调；当前线程没有绑定 Servlet 请求时（如：不是在 Spring MVC 的请求中调用）无法监听</p>
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+final class DeferredResultSupport {
+
+    private static final String CLASS_NAME = "org.springframework.web.context.request.async.DeferredResult";
+
+    private static final Class<?> DEFERRED_RESULT_CLASS = loadClass();
+
+    private DeferredResultSupport() {}
+
+    /**
+     * 是否是 DeferredResult
+     *
+     * @param result 执行结果
+     *
+     * @return 是否是 DeferredResult
+     *
+     * @since 1.0.7
+     */
+    static boolean isDeferredResult(Object result) {
+        return Objects.nonNull(DEFERRED_RESULT_CLASS) && DEFERRED_RESULT_CLASS.isInstance(result);
+    }
+
+    /**
+     * 在 DeferredResult 完成（包括超时和出错）时回调，超时未设置结果时异常为 {@link TimeoutException}，错误结果为异常时作为异常回调
+     *
+     * @param deferredResult DeferredResult
+     * @param callback 回调，参数为结果和异常
+     *
+     * @return 是否注册成功，当前线程没有绑定 Servlet 请求时返回false，不会回调
+     *
+     * @since 1.0.7
+     */
+    static boolean onCompletion(Object deferredResult, BiConsumer<Object, Throwable> callback) {
+        return Handler.onCompletion(deferredResult, callback);
+    }
+
+    private static Class<?> loadClass() {
+        try {
+            return Class.forName(CLASS_NAME, false, DeferredResultSupport.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 直接引用 spring-web 的部分，只在 spring-web 存在时才会被加载
+     *
+     * @since 1.0.7
+     */
+    private static final class Handler {
+
+        private Handler() {}
+
+        private static boolean onCompletion(Object result, BiConsumer<Object, Throwable> callback) {
+            org.springframework.web.context.request.RequestAttributes attributes =
+                    org.springframework.web.context.request.RequestContextHolder.getRequestAttributes();
+            if (!(attributes instanceof org.springframework.web.context.request.ServletRequestAttributes)) {
+                return false;
+            }
+            CompletionInterceptor interceptor = new CompletionInterceptor(
+                    (org.springframework.web.context.request.async.DeferredResult<?>) result, callback);
+            // 拦截器本身作为键，同一个请求中的多个方法各自注册
+            org.springframework.web.context.request.async.WebAsyncUtils.getAsyncManager(
+                    ((org.springframework.web.context.request.ServletRequestAttributes) attributes).getRequest())
+                    .registerDeferredResultInterceptor(interceptor, interceptor);
+            return true;
+        }
+    }
+
+    /**
+     * 在请求的异步处理完成时回调，结果以方法返回的 DeferredResult 为准
+     *
+     * @since 1.0.7
+     */
+    private static final class CompletionInterceptor implements
+            org.springframework.web.context.request.async.DeferredResultProcessingInterceptor {
+
+        private final org.springframework.web.context.request.async.DeferredResult<?> deferredResult;
+
+        private final BiConsumer<Object, Throwable> callback;
+
+        private volatile Throwable error;
+
+        private CompletionInterceptor(org.springframework.web.context.request.async.DeferredResult<?> deferredResult,
+                                      BiConsumer<Object, Throwable> callback) {
+            this.deferredResult = deferredResult;
+            this.callback = callback;
+        }
+
+        @Override
+        public <T> boolean handleTimeout(org.springframework.web.context.request.NativeWebRequest request,
+                                         org.springframework.web.context.request.async.DeferredResult<T> result) {
+            if (result == deferredResult) {
+                error = new TimeoutException("deferred result expired");
+            }
+            return true;
+        }
+
+        @Override
+        public <T> boolean handleError(org.springframework.web.context.request.NativeWebRequest request,
+                                       org.springframework.web.context.request.async.DeferredResult<T> result,
+                                       Throwable t) {
+            if (result == deferredResult) {
+                error = t;
+            }
+            return true;
+        }
+
+        @Override
+        public <T> void afterCompletion(org.springframework.web.context.request.NativeWebRequest request,
+                                        org.springframework.web.context.request.async.DeferredResult<T> result) {
+            if (!deferredResult.hasResult()) {
+                callback.accept(null, Objects.isNull(error) ? new TimeoutException("deferred result expired") : error);
+                return;
+            }
+            Object value = deferredResult.getResult();
+            if (value instanceof Throwable) {
+                callback.accept(null, (Throwable) value);
+            } else {
+                callback.accept(value, null);
+            }
+        }
+    }
+}
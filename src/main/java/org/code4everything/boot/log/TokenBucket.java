@@ -0,0 +1,70 @@
+package org.code4everything.boot.log;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶，只记录理论上下一个令牌的到达时间，每次获取令牌只需要一次CAS
+ *
+ * @author pantao
+ * @since 2019/1/27
+ **/
+@ThreadSafe
+final class TokenBucket {
+
+    /**
+     * 每个令牌的间隔（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private final long intervalNanos;
+
+    /**
+     * 允许突发的时长（纳秒），等于桶容量乘以间隔
+     *
+     * @since 1.0.7
+     */
+    private final long burstNanos;
+
+    /**
+     * 下一个令牌的理论到达时间（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLong arrival;
+
+    /**
+     * 构造函数，桶容量为一秒的令牌数（至少为1）
+     *
+     * @param permitsPerSecond 每秒生成的令牌数
+     *
+     * @since 1.0.7
+     */
+    TokenBucket(double permitsPerSecond) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, (long) permitsPerSecond);
+        this.arrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     *
+     * @since 1.0.7
+     */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current - now, 0) + intervalNanos;
+            if (next > burstNanos) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, now + next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.code4everything.boot.log.codec;
+
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.bean.LogExBean;
+import org.code4everything.boot.log.spool.SpoolCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link LogBean}的紧凑二进制编码
+ *
+ * <p>数据格式：4字节魔数 BLOG 和1字节版本号，之后是连续的记录。每条记录以1字节的类型开头，类名、方法名、方法描述和异常类名通过字典去重，
+ * 首次出现时写入字符串并分配编号，之后只写入编号；执行时长直接写入纳秒的变长整数，与纳秒换算一致的毫秒时长不重复写入</p>
+ *
+ * <p>字典在同一个流内有效，因此长时间写入同一个流时压缩效果最好，单条编码（{@link #encode(LogBean)}）仍然可以减少整数和重复字符串的开销</p>
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+public final class LogBeanCodec {
+
+    /**
+     * 预写日志的编解码器，异常由 {@link org.code4everything.boot.log.spool.SpoolingLogService}单独保存
+     *
+     * @since 1.0.7
+     */
+    public static final SpoolCodec<LogBean> SPOOL_CODEC = new SpoolCodec<LogBean>() {
+        @Override
+        public byte[] encode(LogBean log) {
+            return LogBeanCodec.encode(log);
+        }
+
+        @Override
+        public LogBean decode(byte[] bytes) {
+            return LogBeanCodec.decode(bytes);
+        }
+    };
+
+    static final byte[] MAGIC = {'B', 'L', 'O', 'G'};
+
+    static final int VERSION = 1;
+
+    static final int TYPE_LOG = 1;
+
+    static final int TYPE_EXCEPTION = 2;
+
+    static final int FLAG_NANOS = 1;
+
+    static final int FLAG_TIME = 1 << 1;
+
+    /**
+     * 毫秒时长可以由纳秒时长换算得到
+     *
+     * @since 1.0.7
+     */
+    static final int FLAG_TIME_DERIVED = 1 << 2;
+
+    private LogBeanCodec() {}
+
+    /**
+     * 编码单条日志
+     *
+     * @param logBean {@link LogBean}
+     *
+     * @return 字节数组
+     *
+     * @since 1.0.7
+     */
+    public static byte[] encode(LogBean logBean) {
+        return encode(new LogExBean<>(logBean, null, null));
+    }
+
+    /**
+     * 编码单条日志及其异常，不包括执行结果
+     *
+     * @param logExBean {@link LogExBean}
+     *
+     * @return 字节数组
+     *
+     * @since 1.0.7
+     */
+    public static byte[] encode(LogExBean<? extends LogBean> logExBean) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (LogBeanWriter writer = new LogBeanWriter(bytes)) {
+            writer.write(logExBean);
+        } catch (IOException e) {
+            // 写入内存不会发生异常
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码单条日志
+     *
+     * @param bytes 由 {@link #encode(LogBean)}编码的字节数组
+     *
+     * @return {@link LogBean}
+     *
+     * @since 1.0.7
+     */
+    public static LogBean decode(byte[] bytes) {
+        return decodeEx(bytes).getLog();
+    }
+
+    /**
+     * 解码单条日志及其异常
+     *
+     * @param bytes 由 {@link #encode(LogExBean)}编码的字节数组
+     *
+     * @return {@link LogExBean}
+     *
+     * @since 1.0.7
+     */
+    public static LogExBean<LogBean> decodeEx(byte[] bytes) {
+        try (LogBeanReader reader = new LogBeanReader(new ByteArrayInputStream(bytes))) {
+            LogExBean<LogBean> logExBean = reader.read();
+            if (logExBean == null) {
+                throw new IOException("no log record");
+            }
+            return logExBean;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
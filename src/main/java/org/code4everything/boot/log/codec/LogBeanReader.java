@@ -0,0 +1,131 @@
+package org.code4everything.boot.log.codec;
+
+import com.google.common.base.Preconditions;
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.bean.LogExBean;
+import org.code4everything.boot.log.spool.SpooledException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式读取由 {@link LogBeanWriter}写入的日志
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+@NotThreadSafe
+public class LogBeanReader implements Closeable {
+
+    /**
+     * 单个字符串的最大长度，避免损坏的数据导致分配过大的数组
+     *
+     * @since 1.0.7
+     */
+    private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+
+    private final DataInputStream in;
+
+    /**
+     * 字典，下标为编号
+     *
+     * @since 1.0.7
+     */
+    private final List<String> dictionary = new ArrayList<>(64);
+
+    /**
+     * 构造函数
+     *
+     * @param in 输入流
+     *
+     * @throws IOException 文件头不正确时抛出
+     * @since 1.0.7
+     */
+    public LogBeanReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Preconditions.checkNotNull(in)));
+        byte[] magic = new byte[LogBeanCodec.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, LogBeanCodec.MAGIC)) {
+            throw new IOException("not a log bean stream");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != LogBeanCodec.VERSION) {
+            throw new IOException("unsupported log bean stream version: " + version);
+        }
+    }
+
+    /**
+     * 读取下一条日志，异常以 {@link SpooledException}恢复，只包含原始异常的类名和信息
+     *
+     * @return {@link LogExBean}，没有更多日志时返回NULL
+     *
+     * @throws IOException 数据不完整或格式错误时抛出
+     * @since 1.0.7
+     */
+    public LogExBean<LogBean> read() throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        if (type != LogBeanCodec.TYPE_LOG && type != LogBeanCodec.TYPE_EXCEPTION) {
+            throw new IOException("unknown log record type: " + type);
+        }
+        int flags = in.readUnsignedByte();
+        LogBean logBean = new LogBean();
+        if ((flags & LogBeanCodec.FLAG_NANOS) != 0) {
+            logBean.setExecutedNanos(Varints.readSigned(in));
+        }
+        if ((flags & LogBeanCodec.FLAG_TIME) != 0) {
+            logBean.setExecutedTime(Varints.readSigned(in));
+        } else if ((flags & LogBeanCodec.FLAG_TIME_DERIVED) != 0) {
+            logBean.setExecutedTime(TimeUnit.NANOSECONDS.toMillis(logBean.getExecutedNanos()));
+        }
+        logBean.setClassName(readString()).setMethodName(readString()).setDescription(readString());
+        logBean.setArgs(readString());
+        Throwable throwable = null;
+        if (type == LogBeanCodec.TYPE_EXCEPTION) {
+            String className = readString();
+            throwable = new SpooledException(className, readString());
+        }
+        return new LogExBean<>(logBean, throwable, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readString() throws IOException {
+        long tag = Varints.readUnsigned(in);
+        if (tag == StringTag.NULL) {
+            return null;
+        }
+        if (StringTag.isReference(tag)) {
+            int id = StringTag.referenceId(tag);
+            if (id < 0 || id >= dictionary.size()) {
+                throw new IOException("unknown dictionary id: " + id);
+            }
+            return dictionary.get(id);
+        }
+        int length = StringTag.length(tag);
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("string is too long: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (StringTag.isInterned(tag)) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,193 @@
+package org.code4everything.boot.log.codec;
+
+import com.google.common.base.Preconditions;
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.bean.LogExBean;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式写入 {@link LogBean}的二进制编码，格式见 {@link LogBeanCodec}
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+@NotThreadSafe
+public class LogBeanWriter implements Closeable, Flushable {
+
+    private static final int DEFAULT_MAX_DICTIONARY_SIZE = 65536;
+
+    private final OutputStream out;
+
+    /**
+     * 字典，字符串到编号的映射
+     *
+     * @since 1.0.7
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>(64);
+
+    /**
+     * 字典的最大条目数，超出后新的字符串不再去重
+     *
+     * @since 1.0.7
+     */
+    private final int maxDictionarySize;
+
+    /**
+     * 构造函数，字典最多65536个条目
+     *
+     * @param out 输出流
+     *
+     * @throws IOException 写入文件头失败时抛出
+     * @since 1.0.7
+     */
+    public LogBeanWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_MAX_DICTIONARY_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param out 输出流
+     * @param maxDictionarySize 字典的最大条目数
+     *
+     * @throws IOException 写入文件头失败时抛出
+     * @since 1.0.7
+     */
+    public LogBeanWriter(OutputStream out, int maxDictionarySize) throws IOException {
+        Preconditions.checkArgument(maxDictionarySize >= 0, "max dictionary size must not be negative");
+        this.out = new BufferedOutputStream(Preconditions.checkNotNull(out));
+        this.maxDictionarySize = maxDictionarySize;
+        this.out.write(LogBeanCodec.MAGIC);
+        this.out.write(LogBeanCodec.VERSION);
+    }
+
+    /**
+     * 写入日志
+     *
+     * @param logBean {@link LogBean}
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public void write(LogBean logBean) throws IOException {
+        write(logBean, null);
+    }
+
+    /**
+     * 写入日志及其异常，不包括执行结果
+     *
+     * @param logExBean {@link LogExBean}
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public void write(LogExBean<? extends LogBean> logExBean) throws IOException {
+        write(logExBean.getLog(), logExBean.getThrowable());
+    }
+
+    /**
+     * 写入日志及其异常，异常只保留类名和信息
+     *
+     * @param logBean {@link LogBean}
+     * @param throwable 异常，可以为NULL
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public void write(LogBean logBean, Throwable throwable) throws IOException {
+        Preconditions.checkNotNull(logBean);
+        out.write(Objects.isNull(throwable) ? LogBeanCodec.TYPE_LOG : LogBeanCodec.TYPE_EXCEPTION);
+        Long nanos = logBean.getExecutedNanos();
+        Long time = logBean.getExecutedTime();
+        int flags = 0;
+        if (Objects.nonNull(nanos)) {
+            flags |= LogBeanCodec.FLAG_NANOS;
+        }
+        if (Objects.nonNull(time)) {
+            boolean derived = Objects.nonNull(nanos) && time == TimeUnit.NANOSECONDS.toMillis(nanos);
+            flags |= derived ? LogBeanCodec.FLAG_TIME_DERIVED : LogBeanCodec.FLAG_TIME;
+        }
+        out.write(flags);
+        if (Objects.nonNull(nanos)) {
+            Varints.writeSigned(out, nanos);
+        }
+        if ((flags & LogBeanCodec.FLAG_TIME) != 0) {
+            Varints.writeSigned(out, time);
+        }
+        writeInterned(logBean.getClassName());
+        writeInterned(logBean.getMethodName());
+        writeInterned(logBean.getDescription());
+        writeLiteral(logBean.getArgs());
+        if (Objects.nonNull(throwable)) {
+            writeInterned(throwable.getClass().getName());
+            writeLiteral(throwable.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * 写入去重的字符串，已在字典中的字符串只写入编号
+     *
+     * @param value 字符串
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private void writeInterned(String value) throws IOException {
+        if (Objects.isNull(value)) {
+            Varints.writeUnsigned(out, StringTag.NULL);
+            return;
+        }
+        Integer id = dictionary.get(value);
+        if (Objects.nonNull(id)) {
+            Varints.writeUnsigned(out, StringTag.reference(id));
+        } else if (dictionary.size() < maxDictionarySize) {
+            dictionary.put(value, dictionary.size());
+            writeBytes(value, true);
+        } else {
+            writeBytes(value, false);
+        }
+    }
+
+    /**
+     * 写入不去重的字符串，如参数
+     *
+     * @param value 字符串
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private void writeLiteral(String value) throws IOException {
+        if (Objects.isNull(value)) {
+            Varints.writeUnsigned(out, StringTag.NULL);
+        } else {
+            writeBytes(value, false);
+        }
+    }
+
+    private void writeBytes(String value, boolean interned) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Varints.writeUnsigned(out, StringTag.inline(bytes.length, interned));
+        out.write(bytes);
+    }
+}
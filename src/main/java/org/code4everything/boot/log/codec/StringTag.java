@@ -0,0 +1,38 @@
+package org.code4everything.boot.log.codec;
+
+/**
+ * 字符串的标记，0表示NULL；最低位为0时表示字典编号；最低两位为01时表示新加入字典的字符串，为11时表示不加入字典的字符串，后面跟着UTF-8字节
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+final class StringTag {
+
+    static final long NULL = 0;
+
+    private StringTag() {}
+
+    static long reference(int id) {
+        return ((long) id + 1) << 1;
+    }
+
+    static long inline(int length, boolean interned) {
+        return ((long) length << 2) | (interned ? 0b01 : 0b11);
+    }
+
+    static boolean isReference(long tag) {
+        return (tag & 1) == 0;
+    }
+
+    static int referenceId(long tag) {
+        return (int) ((tag >>> 1) - 1);
+    }
+
+    static boolean isInterned(long tag) {
+        return (tag & 0b10) == 0;
+    }
+
+    static int length(long tag) {
+        return (int) (tag >>> 2);
+    }
+}
@@ -0,0 +1,87 @@
+package org.code4everything.boot.log.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 变长整数编解码，每个字节的低7位存放数据，最高位表示后面是否还有字节
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+final class Varints {
+
+    private Varints() {}
+
+    /**
+     * 写入无符号变长整数
+     *
+     * @param out 输出流
+     * @param value 值，负数按无符号处理
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    static void writeUnsigned(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 读取无符号变长整数
+     *
+     * @param in 输入流
+     *
+     * @return 值
+     *
+     * @throws IOException 数据不完整或格式错误时抛出
+     * @since 1.0.7
+     */
+    static long readUnsigned(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("unexpected end of varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * 写入有符号变长整数，使用ZigZag编码使绝对值较小的负数也只占用较少的字节
+     *
+     * @param out 输出流
+     * @param value 值
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    static void writeSigned(OutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 读取有符号变长整数
+     *
+     * @param in 输入流
+     *
+     * @return 值
+     *
+     * @throws IOException 数据不完整或格式错误时抛出
+     * @since 1.0.7
+     */
+    static long readSigned(InputStream in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
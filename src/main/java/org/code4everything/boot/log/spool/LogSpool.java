@@ -0,0 +1,390 @@
+package org.code4everything.boot.log.spool;
+
+import cn.hutool.core.io.FileUtil;
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 本地预写日志，记录先追加到内存映射的段文件中，再由 {@link SpoolingLogService}批量回放
+ *
+ * <p>段文件写满后切换到新的段文件，已回放完的段文件会被删除；段文件个数超出限制时删除最旧的段文件（包括未回放的记录），以限制磁盘占用</p>
+ *
+ * <p>刷写磁盘在对象锁之外进行，不会阻塞追加记录</p>
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+@ThreadSafe
+public class LogSpool implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(LogSpool.class);
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    /**
+     * 段文件目录
+     *
+     * @since 1.0.7
+     */
+    private final File directory;
+
+    /**
+     * 段文件大小
+     *
+     * @since 1.0.7
+     */
+    private final int segmentSize;
+
+    /**
+     * 最多保留的段文件个数
+     *
+     * @since 1.0.7
+     */
+    private final int maxSegments;
+
+    /**
+     * 段文件，按编号排序，最后一个为当前写入的段文件
+     *
+     * @since 1.0.7
+     */
+    private final TreeMap<Long, SpoolSegment> segments = new TreeMap<>();
+
+    /**
+     * 检查点文件，记录已回放的位置
+     *
+     * @since 1.0.7
+     */
+    private final RandomAccessFile checkpoint;
+
+    /**
+     * 刷写磁盘时持有读锁，关闭段文件（释放内存映射）时持有写锁，避免访问已释放的内存映射。先获取对象锁再获取写锁
+     *
+     * @since 1.0.7
+     */
+    private final ReadWriteLock unmapLock = new ReentrantReadWriteLock();
+
+    /**
+     * 当前写入的段文件，关闭后为NULL
+     *
+     * @since 1.0.7
+     */
+    private SpoolSegment active;
+
+    /**
+     * 是否已关闭，关闭后段文件已解除映射，不能再访问
+     *
+     * @since 1.0.7
+     */
+    private boolean closed = false;
+
+    /**
+     * 已回放的位置
+     *
+     * @since 1.0.7
+     */
+    private long readSegment;
+
+    private int readPosition;
+
+    /**
+     * 已读取但未确认的位置
+     *
+     * @since 1.0.7
+     */
+    private long peekSegment;
+
+    private int peekPosition;
+
+    /**
+     * 因超出段文件个数限制而丢弃的段文件个数
+     *
+     * @since 1.0.7
+     */
+    private long droppedSegments = 0;
+
+    /**
+     * 构造函数，打开目录中已有的段文件并从检查点继续回放
+     *
+     * @param directory 段文件目录
+     * @param segmentSize 段文件大小
+     * @param maxSegments 最多保留的段文件个数
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public LogSpool(File directory, int segmentSize, int maxSegments) throws IOException {
+        Preconditions.checkArgument(segmentSize > SpoolSegment.HEADER_SIZE, "segment size is too small");
+        Preconditions.checkArgument(maxSegments > 1, "max segments must greater than 1");
+        this.directory = FileUtil.mkdir(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.checkpoint = new RandomAccessFile(new File(directory, CHECKPOINT), "rw");
+        if (checkpoint.length() >= Long.BYTES + Integer.BYTES) {
+            readSegment = checkpoint.readLong();
+            readPosition = checkpoint.readInt();
+        }
+        File[] files = directory.listFiles();
+        for (File file : Objects.requireNonNull(files)) {
+            long id = SpoolSegment.parseId(file.getName());
+            if (id >= readSegment) {
+                segments.put(id, SpoolSegment.open(directory, id, segmentSize));
+            } else if (id >= 0) {
+                // 已回放完的段文件
+                FileUtil.del(file);
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(readSegment, SpoolSegment.open(directory, readSegment, segmentSize));
+            readPosition = 0;
+        } else if (segments.firstKey() > readSegment) {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+        active = segments.lastEntry().getValue();
+        peekSegment = readSegment;
+        peekPosition = readPosition;
+    }
+
+    /**
+     * 追加一条记录，不会等待刷写到磁盘
+     *
+     * @param bytes 记录内容
+     *
+     * @throws IOException 可能发生的异常，已关闭时也会抛出
+     * @since 1.0.7
+     */
+    public void append(byte[] bytes) throws IOException {
+        Preconditions.checkArgument(bytes.length > 0 && bytes.length <= segmentSize - SpoolSegment.HEADER_SIZE,
+                "record size must between 1 and segment size");
+        SpoolSegment full;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("log spool is closed");
+            }
+            if (active.append(bytes)) {
+                return;
+            }
+            // 当前段文件已写满，切换到新的段文件
+            full = active;
+            active = SpoolSegment.open(directory, active.getId() + 1, segmentSize);
+            segments.put(active.getId(), active);
+            while (segments.size() > maxSegments) {
+                dropOldest();
+            }
+            active.append(bytes);
+        }
+        force(full);
+    }
+
+    /**
+     * 读取未确认的记录，调用 {@link #commit()}后才会移动回放位置，调用 {@link #rewind()}可以重新读取
+     *
+     * @param max 最多读取的记录条数
+     *
+     * @return 记录内容，已关闭时返回空列表
+     *
+     * @since 1.0.7
+     */
+    public synchronized List<byte[]> peek(int max) {
+        List<byte[]> records = new ArrayList<>(Math.min(max, 64));
+        if (closed) {
+            return records;
+        }
+        while (records.size() < max) {
+            SpoolSegment segment = segments.get(peekSegment);
+            if (Objects.isNull(segment)) {
+                break;
+            }
+            int next = segment.next(peekPosition);
+            if (next > 0) {
+                records.add(segment.read(peekPosition));
+                peekPosition = next;
+            } else {
+                Map.Entry<Long, SpoolSegment> higher = segments.higherEntry(peekSegment);
+                if (Objects.isNull(higher)) {
+                    // 已读取到当前写入的位置
+                    break;
+                }
+                // 当前段文件已读完（或尾部记录损坏），继续读取下一个段文件
+                peekSegment = higher.getKey();
+                peekPosition = 0;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 确认已读取的记录已回放，删除已回放完的段文件并保存检查点，已关闭时不做任何操作（下次启动时重新回放）
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public synchronized void commit() throws IOException {
+        if (closed) {
+            return;
+        }
+        readSegment = peekSegment;
+        readPosition = peekPosition;
+        if (segments.firstKey() < readSegment) {
+            unmapLock.writeLock().lock();
+            try {
+                while (segments.firstKey() < readSegment) {
+                    segments.pollFirstEntry().getValue().delete();
+                }
+            } finally {
+                unmapLock.writeLock().unlock();
+            }
+        }
+        checkpoint.seek(0);
+        checkpoint.writeLong(readSegment);
+        checkpoint.writeInt(readPosition);
+        checkpoint.getChannel().force(false);
+    }
+
+    /**
+     * 放弃已读取但未确认的记录，下次从上一个检查点重新读取
+     *
+     * @since 1.0.7
+     */
+    public synchronized void rewind() {
+        peekSegment = readSegment;
+        peekPosition = readPosition;
+    }
+
+    /**
+     * 将当前段文件刷写到磁盘，不持有对象锁，已关闭时不做任何操作
+     *
+     * @since 1.0.7
+     */
+    public void force() {
+        SpoolSegment segment;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            segment = active;
+        }
+        force(segment);
+    }
+
+    /**
+     * 是否已回放完所有记录
+     *
+     * @return 没有未回放的记录时返回true，已关闭时也返回true
+     *
+     * @since 1.0.7
+     */
+    public synchronized boolean isEmpty() {
+        return closed || readSegment == active.getId() && readPosition >= active.getWritePosition();
+    }
+
+    /**
+     * 获取段文件个数
+     *
+     * @return 段文件个数
+     *
+     * @since 1.0.7
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 获取因超出段文件个数限制而丢弃的段文件个数
+     *
+     * @return 丢弃的段文件个数
+     *
+     * @since 1.0.7
+     */
+    public synchronized long getDroppedSegments() {
+        return droppedSegments;
+    }
+
+    /**
+     * 是否已关闭
+     *
+     * @return 是否已关闭
+     *
+     * @since 1.0.7
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        active = null;
+        unmapLock.writeLock().lock();
+        try {
+            segments.values().forEach(segment -> {
+                segment.force();
+                segment.close();
+            });
+        } finally {
+            unmapLock.writeLock().unlock();
+        }
+        segments.clear();
+        checkpoint.close();
+    }
+
+    /**
+     * 删除最旧的段文件，其中未回放的记录将丢失
+     *
+     * @since 1.0.7
+     */
+    private void dropOldest() {
+        SpoolSegment oldest = segments.pollFirstEntry().getValue();
+        unmapLock.writeLock().lock();
+        try {
+            oldest.delete();
+        } finally {
+            unmapLock.writeLock().unlock();
+        }
+        droppedSegments++;
+        LOGGER.error("log spool is full, segment " + oldest.getId() + " dropped");
+        long first = segments.firstKey();
+        if (readSegment < first) {
+            readSegment = first;
+            readPosition = 0;
+        }
+        if (peekSegment < first) {
+            peekSegment = first;
+            peekPosition = 0;
+        }
+    }
+
+    /**
+     * 将段文件刷写到磁盘，段文件已关闭时不做任何操作
+     *
+     * @param segment 段文件
+     *
+     * @since 1.0.7
+     */
+    private void force(SpoolSegment segment) {
+        unmapLock.readLock().lock();
+        try {
+            if (!segment.isClosed()) {
+                segment.force();
+            }
+        } finally {
+            unmapLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.code4everything.boot.log.spool;
+
+import com.alibaba.fastjson.JSON;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 日志与预写日志记录之间的编解码器
+ *
+ * @param <T> 日志表
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+public interface SpoolCodec<T> {
+
+    /**
+     * 编码
+     *
+     * @param log 日志
+     *
+     * @return 字节数组
+     *
+     * @since 1.0.7
+     */
+    byte[] encode(T log);
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节数组
+     *
+     * @return 日志
+     *
+     * @since 1.0.7
+     */
+    T decode(byte[] bytes);
+
+    /**
+     * 使用JSON编解码
+     *
+     * @param clazz 日志类型
+     * @param <T> 日志表
+     *
+     * @return {@link SpoolCodec}
+     *
+     * @since 1.0.7
+     */
+    static <T> SpoolCodec<T> json(Class<T> clazz) {
+        return new SpoolCodec<T>() {
+            @Override
+            public byte[] encode(T log) {
+                return JSON.toJSONString(log).getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public T decode(byte[] bytes) {
+                return JSON.parseObject(new String(bytes, StandardCharsets.UTF_8), clazz);
+            }
+        };
+    }
+}
@@ -0,0 +1,258 @@
+package org.code4everything.boot.log.spool;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 内存映射的日志段文件，每条记录由4字节长度、4字节CRC32校验码和内容组成
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+final class SpoolSegment implements Closeable {
+
+    /**
+     * 记录头的长度
+     *
+     * @since 1.0.7
+     */
+    static final int HEADER_SIZE = 8;
+
+    private static final String PREFIX = "spool-";
+
+    private static final String SUFFIX = ".seg";
+
+    private final long id;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * 下一条记录的写入位置
+     *
+     * @since 1.0.7
+     */
+    private int writePosition;
+
+    /**
+     * 是否已关闭，关闭后内存映射已释放，不能再访问
+     *
+     * @since 1.0.7
+     */
+    private volatile boolean closed = false;
+
+    private SpoolSegment(long id, File file, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 打开或创建段文件，已存在的段文件会扫描出最后一条完整记录的位置
+     *
+     * @param directory 目录
+     * @param id 段编号
+     * @param size 段大小
+     *
+     * @return {@link SpoolSegment}
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    static SpoolSegment open(File directory, long id, int size) throws IOException {
+        File file = new File(directory, String.format("%s%020d%s", PREFIX, id, SUFFIX));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            int capacity = (int) Math.max(size, channel.size());
+            SpoolSegment segment = new SpoolSegment(id, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    capacity));
+            int position = 0;
+            int next;
+            while ((next = segment.next(position)) > 0) {
+                position = next;
+            }
+            segment.writePosition = position;
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            IoUtil.close(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 从文件名解析段编号
+     *
+     * @param filename 文件名
+     *
+     * @return 段编号，不是段文件时返回-1
+     *
+     * @since 1.0.7
+     */
+    static long parseId(String filename) {
+        if (!filename.startsWith(PREFIX) || !filename.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(filename.substring(PREFIX.length(), filename.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 获取段编号
+     *
+     * @return 段编号
+     *
+     * @since 1.0.7
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * 获取下一条记录的写入位置
+     *
+     * @return 写入位置
+     *
+     * @since 1.0.7
+     */
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param bytes 记录内容
+     *
+     * @return 段文件剩余空间不足时返回 false
+     *
+     * @since 1.0.7
+     */
+    boolean append(byte[] bytes) {
+        int position = writePosition;
+        if (position + HEADER_SIZE + bytes.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + HEADER_SIZE);
+        target.put(bytes);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // 最后写入长度，长度为0表示没有更多的记录
+        buffer.putInt(position, bytes.length);
+        writePosition = position + HEADER_SIZE + bytes.length;
+        return true;
+    }
+
+    /**
+     * 校验指定位置的记录
+     *
+     * @param position 记录的位置
+     *
+     * @return 下一条记录的位置，记录不存在或校验失败时返回-1
+     *
+     * @since 1.0.7
+     */
+    int next(int position) {
+        if (position + HEADER_SIZE > buffer.capacity()) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.capacity() - position - HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer content = buffer.duplicate();
+        content.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? position + HEADER_SIZE + length : -1;
+    }
+
+    /**
+     * 读取指定位置的记录内容，调用前需要通过 {@link #next(int)}校验
+     *
+     * @param position 记录的位置
+     *
+     * @return 记录内容
+     *
+     * @since 1.0.7
+     */
+    byte[] read(int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        ByteBuffer content = buffer.duplicate();
+        content.position(position + HEADER_SIZE);
+        content.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 将修改刷写到磁盘
+     *
+     * @since 1.0.7
+     */
+    void force() {
+        buffer.force();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        unmap(buffer);
+        IoUtil.close(channel);
+    }
+
+    /**
+     * 关闭并删除段文件
+     *
+     * @since 1.0.7
+     */
+    void delete() {
+        close();
+        FileUtil.del(file);
+    }
+
+    /**
+     * 尽早释放内存映射，否则在 Windows 上无法删除文件
+     *
+     * @param buffer {@link MappedByteBuffer}
+     *
+     * @since 1.0.7
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleaner = buffer.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            Object instance = cleaner.invoke(buffer);
+            if (instance != null) {
+                instance.getClass().getMethod("clean").invoke(instance);
+            }
+        } catch (Exception e) {
+            // 不支持时等待垃圾回收释放
+        }
+    }
+}
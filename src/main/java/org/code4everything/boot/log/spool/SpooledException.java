@@ -0,0 +1,41 @@
+package org.code4everything.boot.log.spool;
+
+/**
+ * 从预写日志中恢复的异常，只保留原始异常的类名和信息，不会实例化原始异常类型
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+public class SpooledException extends RuntimeException {
+
+    /**
+     * 原始异常的类名
+     *
+     * @since 1.0.7
+     */
+    private final String className;
+
+    /**
+     * 构造函数
+     *
+     * @param className 原始异常的类名
+     * @param message 原始异常的信息
+     *
+     * @since 1.0.7
+     */
+    public SpooledException(String className, String message) {
+        super(message, null, false, false);
+        this.className = className;
+    }
+
+    /**
+     * 获取原始异常的类名
+     *
+     * @return 类名
+     *
+     * @since 1.0.7
+     */
+    public String getClassName() {
+        return className;
+    }
+}
@@ -0,0 +1,370 @@
+package org.code4everything.boot.log.spool;
+
+import cn.hutool.core.util.StrUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.service.LogService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 先写入本地预写日志 {@link LogSpool}的日志服务，后台线程在被装饰的日志服务可用时批量回放，日志存储变慢或不可用时不影响请求耗时
+ *
+ * <p>回放失败时会从上一个检查点重试，因此同一条日志可能被保存多次。{@link #save(Object)}和 {@link #saveException(Object,
+ * Throwable)}直接返回传入的日志，此时日志还没有被保存（如：没有主键）</p>
+ *
+ * <p>对 {@link #save(Object)}返回的日志再调用 {@link #saveException(Object, Throwable)}时（如：{@link
+ * org.code4everything.boot.log.AopLogUtils#saveLog}），回放时会把异常保存到回放 {@link LogService#saveBatch(List)}时传入的同一个日志对象上，
+ * 因此被装饰的日志服务需要在批量保存时回填主键（大多数 ORM 的批量插入都支持），否则异常会被保存为一条新的日志。
+ * 关联只保存在内存中，重启后回放的异常日志同样会被保存为新的日志</p>
+ *
+ * @author pantao
+ * @since 2019/1/28
+ **/
+public class SpoolingLogService<T> implements LogService<T>, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(SpoolingLogService.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    /**
+     * 不带编号的日志和异常日志，兼容之前版本写入的记录
+     *
+     * @since 1.0.7
+     */
+    private static final byte TYPE_LOG = 0;
+
+    private static final byte TYPE_EXCEPTION = 1;
+
+    /**
+     * 带编号的日志，之后的异常日志可以通过编号关联
+     *
+     * @since 1.0.7
+     */
+    private static final byte TYPE_SAVED = 2;
+
+    /**
+     * 关联了之前日志编号的异常日志
+     *
+     * @since 1.0.7
+     */
+    private static final byte TYPE_SAVED_EXCEPTION = 3;
+
+    private static final long NO_ID = 0;
+
+    private static final int MAX_ASSOCIATIONS = 10000;
+
+    private static final long ASSOCIATION_MINUTES = 10;
+
+    private static final long IDLE_MILLIS = 100;
+
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * 被装饰的日志服务
+     *
+     * @since 1.0.7
+     */
+    private final LogService<T> logService;
+
+    /**
+     * 预写日志
+     *
+     * @since 1.0.7
+     */
+    private final LogSpool spool;
+
+    /**
+     * 日志编解码器
+     *
+     * @since 1.0.7
+     */
+    private final SpoolCodec<T> codec;
+
+    /**
+     * 每批最多回放的日志条数
+     *
+     * @since 1.0.7
+     */
+    private final int batchSize;
+
+    /**
+     * {@link #save(Object)}返回的日志对象到记录编号的关联，按对象标识比较，对象被回收后自动移除
+     *
+     * @since 1.0.7
+     */
+    private final Cache<Object, Long> savedIds = CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_ASSOCIATIONS)
+            .expireAfterWrite(ASSOCIATION_MINUTES, TimeUnit.MINUTES).build();
+
+    /**
+     * 已回放的带编号日志，异常日志回放时保存到同一个对象上，只在回放线程中访问
+     *
+     * @since 1.0.7
+     */
+    private final Cache<Long, T> replayed = CacheBuilder.newBuilder().maximumSize(MAX_ASSOCIATIONS).expireAfterWrite(
+            ASSOCIATION_MINUTES, TimeUnit.MINUTES).build();
+
+    /**
+     * 记录编号，从随机值开始，避免与重启前的记录编号冲突
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLong nextId = new AtomicLong(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+    private final Thread replayer;
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数，每批最多回放256条日志
+     *
+     * @param logService 被装饰的日志服务
+     * @param spool 预写日志 {@link LogSpool}
+     * @param codec 日志编解码器，如：{@link SpoolCodec#json(Class)}
+     *
+     * @since 1.0.7
+     */
+    public SpoolingLogService(LogService<T> logService, LogSpool spool, SpoolCodec<T> codec) {
+        this(logService, spool, codec, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param logService 被装饰的日志服务
+     * @param spool 预写日志 {@link LogSpool}
+     * @param codec 日志编解码器，如：{@link SpoolCodec#json(Class)}
+     * @param batchSize 每批最多回放的日志条数
+     *
+     * @since 1.0.7
+     */
+    public SpoolingLogService(LogService<T> logService, LogSpool spool, SpoolCodec<T> codec, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batch size must be positive");
+        this.logService = Preconditions.checkNotNull(logService);
+        this.spool = Preconditions.checkNotNull(spool);
+        this.codec = Preconditions.checkNotNull(codec);
+        this.batchSize = batchSize;
+        this.replayer = new Thread(this::replay, "boot-log-spool");
+        this.replayer.setDaemon(true);
+        this.replayer.start();
+    }
+
+    @Override
+    public T save(T log) {
+        if (Objects.nonNull(log)) {
+            long id = newId();
+            if (append(log, null, id)) {
+                savedIds.put(log, id);
+            }
+        }
+        return log;
+    }
+
+    @Override
+    public T saveException(T log, Throwable throwable) {
+        if (Objects.nonNull(log)) {
+            Long id = savedIds.asMap().remove(log);
+            append(log, throwable, Objects.isNull(id) ? NO_ID : id);
+        }
+        return log;
+    }
+
+    @Override
+    public T getLog(LogBean logBean) {
+        return logService.getLog(logBean);
+    }
+
+    /**
+     * 停止回放线程并关闭预写日志，未回放的日志将在下次启动时回放，之后的日志直接由被装饰的日志服务保存
+     *
+     * <p>回放线程在10秒内没有停止时（如：日志服务阻塞），预写日志由回放线程停止时关闭，避免访问已解除映射的段文件</p>
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        replayer.interrupt();
+        try {
+            replayer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (replayer.isAlive()) {
+            LOGGER.error("log spool replayer is still running, spool will be closed when it stops");
+        } else {
+            spool.close();
+        }
+    }
+
+    /**
+     * 追加到预写日志，不可用时直接保存
+     *
+     * @param log 日志
+     * @param throwable 异常，可以为NULL
+     * @param id 日志的记录编号，或者异常日志关联的记录编号，没有时为 {@link #NO_ID}
+     *
+     * @return 是否追加到了预写日志
+     *
+     * @since 1.0.7
+     */
+    private boolean append(T log, Throwable throwable, long id) {
+        if (!running || spool.isClosed()) {
+            saveDirectly(log, throwable);
+            return false;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (Objects.isNull(throwable)) {
+                out.writeByte(TYPE_SAVED);
+                out.writeLong(id);
+            } else {
+                out.writeByte(id == NO_ID ? TYPE_EXCEPTION : TYPE_SAVED_EXCEPTION);
+                if (id != NO_ID) {
+                    out.writeLong(id);
+                }
+                out.writeUTF(throwable.getClass().getName());
+                out.writeUTF(StrUtil.sub(StrUtil.nullToEmpty(throwable.getMessage()), 0, MAX_MESSAGE_LENGTH));
+            }
+            out.write(codec.encode(log));
+            spool.append(bytes.toByteArray());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // 预写日志不可用时直接保存
+            LOGGER.error("append log to spool failed, message -> " + e.getMessage());
+            saveDirectly(log, throwable);
+            return false;
+        }
+    }
+
+    private long newId() {
+        long id = nextId.incrementAndGet() & Long.MAX_VALUE;
+        return id == NO_ID ? nextId.incrementAndGet() : id;
+    }
+
+    private void saveDirectly(T log, Throwable throwable) {
+        if (Objects.isNull(throwable)) {
+            logService.save(log);
+        } else {
+            logService.saveException(log, throwable);
+        }
+    }
+
+    private void replay() {
+        try {
+            replayLoop();
+        } finally {
+            if (!running) {
+                closeSpool();
+            }
+        }
+    }
+
+    private void closeSpool() {
+        try {
+            spool.close();
+        } catch (IOException e) {
+            LOGGER.error("close log spool failed, message -> " + e.getMessage());
+        }
+    }
+
+    private void replayLoop() {
+        long backoff = IDLE_MILLIS;
+        while (running) {
+            try {
+                List<byte[]> records = spool.peek(batchSize);
+                if (records.isEmpty()) {
+                    spool.force();
+                    TimeUnit.MILLISECONDS.sleep(IDLE_MILLIS);
+                    continue;
+                }
+                try {
+                    saveAll(records);
+                    spool.commit();
+                    backoff = IDLE_MILLIS;
+                } catch (Exception e) {
+                    // 日志服务不可用，稍后从检查点重试
+                    spool.rewind();
+                    LOGGER.error("replay log spool failed, retry after " + backoff + "ms, message -> " + e.getMessage());
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                // 关闭时中断
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void saveAll(List<byte[]> records) {
+        List<T> batch = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            T log;
+            byte type;
+            long id = NO_ID;
+            String className = null;
+            String message = null;
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+                type = in.readByte();
+                if (type < TYPE_LOG || type > TYPE_SAVED_EXCEPTION) {
+                    throw new IOException("unknown record type " + type);
+                }
+                if (type == TYPE_SAVED || type == TYPE_SAVED_EXCEPTION) {
+                    id = in.readLong();
+                }
+                if (type == TYPE_EXCEPTION || type == TYPE_SAVED_EXCEPTION) {
+                    className = in.readUTF();
+                    message = in.readUTF();
+                }
+                byte[] content = new byte[in.available()];
+                in.readFully(content);
+                log = codec.decode(content);
+            } catch (IOException | RuntimeException e) {
+                // 无法解码的记录直接跳过，避免阻塞后续的回放
+                LOGGER.error("decode spooled log failed, message -> " + e.getMessage());
+                continue;
+            }
+            if (Objects.isNull(className)) {
+                batch.add(log);
+                if (id != NO_ID) {
+                    replayed.put(id, log);
+                }
+            } else {
+                // 保持写入顺序，异常日志可能是对前面某条日志的更新
+                flush(batch);
+                T saved = id == NO_ID ? null : replayed.getIfPresent(id);
+                if (Objects.nonNull(saved)) {
+                    replayed.invalidate(id);
+                }
+                logService.saveException(Objects.isNull(saved) ? log : saved, new SpooledException(className, message));
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<T> batch) {
+        if (!batch.isEmpty()) {
+            logService.saveBatch(batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.code4everything.boot.log.trace;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import org.code4everything.boot.bean.BaseBean;
+
+/**
+ * 调用链片段，一次 {@link org.code4everything.boot.annotations.AopLog}方法调用或一次请求
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+public class Span implements BaseBean {
+
+    /**
+     * 调用链编号，同一个请求内的片段相同
+     *
+     * @since 1.0.7
+     */
+    private String traceId;
+
+    /**
+     * 片段编号
+     *
+     * @since 1.0.7
+     */
+    private String spanId;
+
+    /**
+     * 父片段编号，根片段为NULL
+     *
+     * @since 1.0.7
+     */
+    private String parentId;
+
+    /**
+     * 名称，如：com.example.UserService#get(java.lang.String)
+     *
+     * @since 1.0.7
+     */
+    private String name;
+
+    /**
+     * 开始时间（毫秒时间戳）
+     *
+     * @since 1.0.7
+     */
+    private long startTime;
+
+    /**
+     * 持续时长（纳秒），未结束时为-1
+     *
+     * @since 1.0.7
+     */
+    private long durationNanos = -1;
+
+    /**
+     * 异常的类名，没有异常时为NULL
+     *
+     * @since 1.0.7
+     */
+    private String error;
+
+    /**
+     * 开始时的纳秒时间，用于计算持续时长
+     *
+     * @since 1.0.7
+     */
+    private transient long startNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param traceId 调用链编号
+     * @param spanId 片段编号
+     * @param parentId 父片段编号
+     * @param name 名称
+     *
+     * @since 1.0.7
+     */
+    Span(String traceId, String spanId, String parentId, String name) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 结束片段
+     *
+     * @param throwable 可能发生的异常
+     *
+     * @return 是否是首次结束
+     *
+     * @since 1.0.7
+     */
+    synchronized boolean end(Throwable throwable) {
+        if (durationNanos >= 0) {
+            return false;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        if (throwable != null) {
+            error = throwable.getClass().getName();
+        }
+        return true;
+    }
+
+    /**
+     * 获取调用链编号
+     *
+     * @return 调用链编号
+     *
+     * @since 1.0.7
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * 获取片段编号
+     *
+     * @return 片段编号
+     *
+     * @since 1.0.7
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * 获取父片段编号
+     *
+     * @return 父片段编号，根片段为NULL
+     *
+     * @since 1.0.7
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * 获取名称
+     *
+     * @return 名称
+     *
+     * @since 1.0.7
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取开始时间
+     *
+     * @return 开始时间（毫秒时间戳）
+     *
+     * @since 1.0.7
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 获取持续时长
+     *
+     * @return 持续时长（纳秒），未结束时为-1
+     *
+     * @since 1.0.7
+     */
+    public synchronized long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * 获取异常的类名
+     *
+     * @return 异常的类名，没有异常时为NULL
+     *
+     * @since 1.0.7
+     */
+    public synchronized String getError() {
+        return error;
+    }
+
+    /**
+     * 是否已结束
+     *
+     * @return 是否已结束
+     *
+     * @since 1.0.7
+     */
+    @JSONField(serialize = false)
+    public synchronized boolean isFinished() {
+        return durationNanos >= 0;
+    }
+}
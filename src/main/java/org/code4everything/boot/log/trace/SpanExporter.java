@@ -0,0 +1,22 @@
+package org.code4everything.boot.log.trace;
+
+import java.util.List;
+
+/**
+ * 调用链片段导出器，在后台线程中批量调用
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+@FunctionalInterface
+public interface SpanExporter {
+
+    /**
+     * 导出已结束的片段
+     *
+     * @param spans 已结束的片段 {@link Span}
+     *
+     * @since 1.0.7
+     */
+    void export(List<Span> spans);
+}
@@ -0,0 +1,347 @@
+package org.code4everything.boot.log.trace;
+
+import cn.hutool.core.util.StrUtil;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.base.collection.RingBuffer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 轻量的调用链追踪，每个线程维护一个片段栈，嵌套的 {@link org.code4everything.boot.annotations.AopLog}方法调用成为父片段的子片段
+ *
+ * <p>已结束的片段写入内存中的环形缓冲区，缓冲区已满时丢弃最旧的片段；设置了导出器 {@link SpanExporter}时由后台线程批量导出，
+ * 否则可以通过 {@link #drainSpans()}获取</p>
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+public class Tracer {
+
+    /**
+     * 传递调用链编号的请求头
+     *
+     * @since 1.0.7
+     */
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    /**
+     * 传递上游片段编号的请求头
+     *
+     * @since 1.0.7
+     */
+    public static final String SPAN_ID_HEADER = "X-Span-Id";
+
+    private static final Logger LOGGER = Logger.getLogger(Tracer.class);
+
+    private static final int BUFFER_CAPACITY = 8192;
+
+    private static final int EXPORT_BATCH_SIZE = 512;
+
+    private static final long EXPORT_INTERVAL_MILLIS = 1000;
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Deque<Span>> STACK = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * 已结束的片段
+     *
+     * @since 1.0.7
+     */
+    private static final RingBuffer<Span> FINISHED = new RingBuffer<>(BUFFER_CAPACITY);
+
+    /**
+     * 是否开启追踪
+     *
+     * @since 1.0.7
+     */
+    private static volatile boolean enabled = false;
+
+    /**
+     * 导出器
+     *
+     * @since 1.0.7
+     */
+    private static volatile SpanExporter exporter = null;
+
+    private static Thread exportThread = null;
+
+    private Tracer() {}
+
+    /**
+     * 是否开启追踪
+     *
+     * @return 是否开启追踪
+     *
+     * @since 1.0.7
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置是否开启追踪，默认关闭
+     *
+     * @param enabled 是否开启追踪
+     *
+     * @since 1.0.7
+     */
+    public static void setEnabled(boolean enabled) {
+        Tracer.enabled = enabled;
+    }
+
+    /**
+     * 设置导出器，每秒批量导出一次已结束的片段，停止后再次设置会重新启动导出线程
+     *
+     * @param exporter {@link SpanExporter}，为NULL时片段保留在缓冲区中
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void setExporter(SpanExporter exporter) {
+        Tracer.exporter = exporter;
+        if (Objects.nonNull(exporter) && Objects.isNull(exportThread)) {
+            exportThread = new Thread(Tracer::exportLoop, "boot-span-exporter");
+            exportThread.setDaemon(true);
+            exportThread.start();
+        }
+    }
+
+    /**
+     * 停止导出线程，并导出缓冲区中剩余的片段，适用于应用关闭时（如：在 @PreDestroy 方法中调用）
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void shutdown() {
+        Thread thread = exportThread;
+        if (Objects.isNull(thread)) {
+            return;
+        }
+        exportThread = null;
+        thread.interrupt();
+        try {
+            thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        SpanExporter current = exporter;
+        if (Objects.nonNull(current)) {
+            exportAll(current, new ArrayList<>(EXPORT_BATCH_SIZE));
+        }
+    }
+
+    /**
+     * 开始一个片段，当前线程有未结束的片段时作为它的子片段，否则开始一个新的调用链
+     *
+     * @param name 名称
+     *
+     * @return {@link Span}，未开启追踪时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static Span start(String name) {
+        if (!enabled) {
+            return null;
+        }
+        Deque<Span> stack = STACK.get();
+        Span parent = stack.peek();
+        String traceId = Objects.isNull(parent) ? newId() : parent.getTraceId();
+        Span span = new Span(traceId, newId(), Objects.isNull(parent) ? null : parent.getSpanId(), name);
+        stack.push(span);
+        return span;
+    }
+
+    /**
+     * 开始一个片段，用于从上游延续调用链，如：请求头中的调用链编号
+     *
+     * @param name 名称
+     * @param traceId 上游的调用链编号，为空时开始一个新的调用链
+     * @param parentId 上游的片段编号，可以为空
+     *
+     * @return {@link Span}，未开启追踪时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static Span start(String name, String traceId, String parentId) {
+        if (!enabled) {
+            return null;
+        }
+        if (StrUtil.isEmpty(traceId)) {
+            return start(name);
+        }
+        Span span = new Span(traceId, newId(), StrUtil.isEmpty(parentId) ? null : parentId, name);
+        STACK.get().push(span);
+        return span;
+    }
+
+    /**
+     * 将片段从当前线程的片段栈中移除但不结束，用于片段将在其他线程中结束的情况，如：异步方法
+     *
+     * @param span {@link Span}，可以为NULL
+     *
+     * @since 1.0.7
+     */
+    public static void detach(Span span) {
+        if (Objects.nonNull(span)) {
+            Deque<Span> stack = STACK.get();
+            if (stack.peek() == span) {
+                stack.pop();
+            } else {
+                stack.removeFirstOccurrence(span);
+            }
+        }
+    }
+
+    /**
+     * 将未结束的片段放回当前线程的片段栈，用于在其他线程中继续 {@link #detach(Span)}过的片段，如：异步请求的再次分派
+     *
+     * @param span {@link Span}，可以为NULL
+     *
+     * @since 1.0.7
+     */
+    public static void attach(Span span) {
+        if (Objects.nonNull(span)) {
+            Deque<Span> stack = STACK.get();
+            if (stack.peek() != span) {
+                stack.push(span);
+            }
+        }
+    }
+
+    /**
+     * 结束片段并写入缓冲区，可以在其他线程中调用
+     *
+     * @param span {@link Span}，可以为NULL
+     * @param throwable 可能发生的异常
+     *
+     * @since 1.0.7
+     */
+    public static void finish(Span span, Throwable throwable) {
+        if (Objects.isNull(span)) {
+            return;
+        }
+        detach(span);
+        if (span.end(throwable)) {
+            while (!FINISHED.offer(span)) {
+                // 缓冲区已满，丢弃最旧的片段
+                FINISHED.poll();
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程正在进行的片段
+     *
+     * @return {@link Span}，不存在时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static Span currentSpan() {
+        return STACK.get().peek();
+    }
+
+    /**
+     * 获取当前线程的调用链编号
+     *
+     * @return 调用链编号，不存在时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static String currentTraceId() {
+        Span span = currentSpan();
+        return Objects.isNull(span) ? null : span.getTraceId();
+    }
+
+    /**
+     * 取出缓冲区中所有已结束的片段
+     *
+     * @return 已结束的片段，按结束的顺序
+     *
+     * @since 1.0.7
+     */
+    public static List<Span> drainSpans() {
+        List<Span> spans = new ArrayList<>(FINISHED.size());
+        FINISHED.drain(spans::add, BUFFER_CAPACITY);
+        return spans;
+    }
+
+    /**
+     * 校验片段编号
+     *
+     * @param id 编号
+     *
+     * @return 是否是合法的编号（1到32位十六进制字符）
+     *
+     * @since 1.0.7
+     */
+    public static boolean isValidId(String id) {
+        if (StrUtil.isEmpty(id) || id.length() > 32) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (Character.digit(id.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成16位十六进制的随机编号
+     *
+     * @return 编号
+     *
+     * @since 1.0.7
+     */
+    static String newId() {
+        long id = ThreadLocalRandom.current().nextLong();
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) (id & 0xF)];
+            id >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static void exportLoop() {
+        List<Span> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            SpanExporter current = exporter;
+            if (Objects.nonNull(current)) {
+                exportAll(current, batch);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(EXPORT_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                // 由 shutdown 停止，剩余的片段由 shutdown 导出
+                return;
+            }
+        }
+    }
+
+    /**
+     * 分批导出缓冲区中所有已结束的片段
+     *
+     * @param exporter {@link SpanExporter}
+     * @param batch 复用的批次列表
+     *
+     * @since 1.0.7
+     */
+    private static void exportAll(SpanExporter exporter, List<Span> batch) {
+        while (FINISHED.drain(batch::add, EXPORT_BATCH_SIZE) > 0) {
+            try {
+                exporter.export(new ArrayList<>(batch));
+            } catch (Exception e) {
+                LOGGER.error("export spans failed, message -> " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.code4everything.boot.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数线性直方图（类似 HdrHistogram），记录时不分配内存，相对误差不超过 1/32
+ *
+ * @author pantao
+ * @since 2019/1/25
+ **/
+@ThreadSafe
+public class Histogram {
+
+    /**
+     * 每个数量级保留的有效位数
+     *
+     * @since 1.0.7
+     */
+    private static final int SUB_BITS = 6;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int HALF_SUB_COUNT = SUB_COUNT >> 1;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BITS) * HALF_SUB_COUNT + SUB_COUNT;
+
+    /**
+     * 桶计数
+     *
+     * @since 1.0.7
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值，负数按0处理
+     *
+     * @param value 值
+     *
+     * @since 1.0.7
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * 获取记录的值的个数
+     *
+     * @return 个数
+     *
+     * @since 1.0.7
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 获取记录的值的总和
+     *
+     * @return 总和
+     *
+     * @since 1.0.7
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 获取最大值
+     *
+     * @return 最大值
+     *
+     * @since 1.0.7
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 获取平均值
+     *
+     * @return 平均值
+     *
+     * @since 1.0.7
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * 获取百分位数
+     *
+     * @param percentile 百分位，如：99.9
+     *
+     * @return 百分位数，没有记录时返回0
+     *
+     * @since 1.0.7
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 清空记录
+     *
+     * @since 1.0.7
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * 计算值所在的桶，小于 {@link #SUB_COUNT}的值精确记录，更大的值只保留最高的 {@link #SUB_BITS}位
+     *
+     * @param value 非负值
+     *
+     * @return 桶下标
+     *
+     * @since 1.0.7
+     */
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF_SUB_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * 获取桶能容纳的最大值
+     *
+     * @param index 桶下标
+     *
+     * @return 最大值
+     *
+     * @since 1.0.7
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_SUB_COUNT - 1;
+        long top = index - shift * HALF_SUB_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,76 @@
+package org.code4everything.boot.metrics;
+
+/**
+ * 文件上传下载的指标名称
+ *
+ * @author pantao
+ * @since 2019/1/25
+ **/
+public class HttpMetrics {
+
+    /**
+     * 计算上传文件的MD5码
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_DIGEST = "http.upload.digest";
+
+    /**
+     * 检测文件是否存在，包括 {@link org.code4everything.boot.service.FileService#exists}和 {@link
+     * org.code4everything.boot.service.FileService#getBy}
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_EXISTS = "http.upload.exists";
+
+    /**
+     * 将文件写入磁盘
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_TRANSFER = "http.upload.transfer";
+
+    /**
+     * 将文件信息写入数据库
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_SAVE = "http.upload.save";
+
+    /**
+     * 单个文件上传总耗时
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_TOTAL = "http.upload.total";
+
+    /**
+     * 上传的字节数
+     *
+     * @since 1.0.7
+     */
+    public static final String UPLOAD_BYTES = "http.upload.bytes";
+
+    /**
+     * 批量上传总耗时
+     *
+     * @since 1.0.7
+     */
+    public static final String MULTI_UPLOAD_TOTAL = "http.multiUpload.total";
+
+    /**
+     * 响应文件耗时（不包括写出响应体）
+     *
+     * @since 1.0.7
+     */
+    public static final String RESPONSE_FILE_TOTAL = "http.responseFile.total";
+
+    /**
+     * 响应的字节数
+     *
+     * @since 1.0.7
+     */
+    public static final String RESPONSE_FILE_BYTES = "http.responseFile.bytes";
+
+    private HttpMetrics() {}
+}
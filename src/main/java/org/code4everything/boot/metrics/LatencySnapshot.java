@@ -0,0 +1,300 @@
+package org.code4everything.boot.metrics;
+
+import org.code4everything.boot.bean.BaseBean;
+
+/**
+ * 耗时统计快照
+ *
+ * @author pantao
+ * @since 2019/1/27
+ **/
+public class LatencySnapshot implements BaseBean {
+
+    /**
+     * 调用次数
+     *
+     * @since 1.0.7
+     */
+    private long count;
+
+    /**
+     * 发生异常的调用次数
+     *
+     * @since 1.0.7
+     */
+    private long errorCount;
+
+    /**
+     * 错误率
+     *
+     * @since 1.0.7
+     */
+    private double errorRate;
+
+    /**
+     * 吞吐量（次/秒）
+     *
+     * @since 1.0.7
+     */
+    private double throughput;
+
+    /**
+     * 平均耗时（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private double mean;
+
+    /**
+     * 最大耗时（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private long max;
+
+    /**
+     * 耗时的50分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private long p50;
+
+    /**
+     * 耗时的99分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private long p99;
+
+    /**
+     * 耗时的99.9分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private long p999;
+
+    /**
+     * 获取调用次数
+     *
+     * @return 调用次数
+     *
+     * @since 1.0.7
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 设置调用次数
+     *
+     * @param count 调用次数
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setCount(long count) {
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * 获取发生异常的调用次数
+     *
+     * @return 发生异常的调用次数
+     *
+     * @since 1.0.7
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * 设置发生异常的调用次数
+     *
+     * @param errorCount 发生异常的调用次数
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setErrorCount(long errorCount) {
+        this.errorCount = errorCount;
+        return this;
+    }
+
+    /**
+     * 获取错误率
+     *
+     * @return 错误率
+     *
+     * @since 1.0.7
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * 设置错误率
+     *
+     * @param errorRate 错误率
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * 获取吞吐量（次/秒）
+     *
+     * @return 吞吐量（次/秒）
+     *
+     * @since 1.0.7
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * 设置吞吐量（次/秒）
+     *
+     * @param throughput 吞吐量（次/秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setThroughput(double throughput) {
+        this.throughput = throughput;
+        return this;
+    }
+
+    /**
+     * 获取平均耗时（纳秒）
+     *
+     * @return 平均耗时（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * 设置平均耗时（纳秒）
+     *
+     * @param mean 平均耗时（纳秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setMean(double mean) {
+        this.mean = mean;
+        return this;
+    }
+
+    /**
+     * 获取最大耗时（纳秒）
+     *
+     * @return 最大耗时（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * 设置最大耗时（纳秒）
+     *
+     * @param max 最大耗时（纳秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setMax(long max) {
+        this.max = max;
+        return this;
+    }
+
+    /**
+     * 获取耗时的50分位数（纳秒）
+     *
+     * @return 耗时的50分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * 设置耗时的50分位数（纳秒）
+     *
+     * @param p50 耗时的50分位数（纳秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setP50(long p50) {
+        this.p50 = p50;
+        return this;
+    }
+
+    /**
+     * 获取耗时的99分位数（纳秒）
+     *
+     * @return 耗时的99分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * 设置耗时的99分位数（纳秒）
+     *
+     * @param p99 耗时的99分位数（纳秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setP99(long p99) {
+        this.p99 = p99;
+        return this;
+    }
+
+    /**
+     * 获取耗时的99.9分位数（纳秒）
+     *
+     * @return 耗时的99.9分位数（纳秒）
+     *
+     * @since 1.0.7
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * 设置耗时的99.9分位数（纳秒）
+     *
+     * @param p999 耗时的99.9分位数（纳秒）
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot setP999(long p999) {
+        this.p999 = p999;
+        return this;
+    }
+}
@@ -0,0 +1,91 @@
+package org.code4everything.boot.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 方法调用的耗时统计，包括耗时分布、吞吐量和错误率
+ *
+ * @author pantao
+ * @since 2019/1/27
+ **/
+@ThreadSafe
+public class LatencyStats {
+
+    /**
+     * 耗时分布（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private final Histogram histogram = new Histogram();
+
+    /**
+     * 发生异常的调用次数
+     *
+     * @since 1.0.7
+     */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * 开始统计的时间（纳秒）
+     *
+     * @since 1.0.7
+     */
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * 记录一次调用
+     *
+     * @param nanos 耗时（纳秒）
+     * @param error 是否发生异常
+     *
+     * @since 1.0.7
+     */
+    public void record(long nanos, boolean error) {
+        histogram.record(nanos);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return {@link LatencySnapshot}
+     *
+     * @since 1.0.7
+     */
+    public LatencySnapshot snapshot() {
+        long count = histogram.getCount();
+        double seconds = (double) (System.nanoTime() - startNanos) / TimeUnit.SECONDS.toNanos(1);
+        LatencySnapshot snapshot = new LatencySnapshot();
+        snapshot.setCount(count).setErrorCount(errors.sum()).setMean(histogram.getMean()).setMax(histogram.getMax());
+        snapshot.setP50(histogram.getValueAtPercentile(50)).setP99(histogram.getValueAtPercentile(99));
+        snapshot.setP999(histogram.getValueAtPercentile(99.9));
+        snapshot.setThroughput(seconds > 0 ? count / seconds : 0);
+        return snapshot.setErrorRate(count == 0 ? 0 : (double) snapshot.getErrorCount() / count);
+    }
+
+    /**
+     * 获取耗时分布
+     *
+     * @return {@link Histogram}
+     *
+     * @since 1.0.7
+     */
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * 清空统计
+     *
+     * @since 1.0.7
+     */
+    public void reset() {
+        histogram.reset();
+        errors.reset();
+        startNanos = System.nanoTime();
+    }
+}
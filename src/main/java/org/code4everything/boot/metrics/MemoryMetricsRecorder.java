@@ -0,0 +1,109 @@
+package org.code4everything.boot.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于内存的指标记录器，每个耗时指标对应一个 {@link Histogram}，每个字节数指标对应一个计数器
+ *
+ * @author pantao
+ * @since 2019/1/25
+ **/
+@ThreadSafe
+public class MemoryMetricsRecorder implements MetricsRecorder {
+
+    /**
+     * 耗时直方图
+     *
+     * @since 1.0.7
+     */
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * 字节计数器
+     *
+     * @since 1.0.7
+     */
+    private final Map<String, LongAdder> bytes = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordLatency(String name, long nanos) {
+        getHistogram(name).record(nanos);
+    }
+
+    @Override
+    public void recordBytes(String name, long bytes) {
+        // 先查询，只有首次记录时才创建计数器，避免 computeIfAbsent 创建 lambda
+        LongAdder adder = this.bytes.get(name);
+        if (adder == null) {
+            adder = this.bytes.computeIfAbsent(name, key -> new LongAdder());
+        }
+        adder.add(bytes);
+    }
+
+    /**
+     * 获取耗时直方图，不存在时创建
+     *
+     * @param name 指标名称
+     *
+     * @return {@link Histogram}
+     *
+     * @since 1.0.7
+     */
+    public Histogram getHistogram(String name) {
+        Histogram histogram = latencies.get(name);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(name, key -> new Histogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * 获取字节数
+     *
+     * @param name 指标名称
+     *
+     * @return 字节数
+     *
+     * @since 1.0.7
+     */
+    public long getBytes(String name) {
+        LongAdder adder = bytes.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * 获取所有的耗时直方图
+     *
+     * @return 只读的耗时直方图
+     *
+     * @since 1.0.7
+     */
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * 获取所有的字节计数器
+     *
+     * @return 只读的字节计数器
+     *
+     * @since 1.0.7
+     */
+    public Map<String, LongAdder> getByteCounters() {
+        return Collections.unmodifiableMap(bytes);
+    }
+
+    /**
+     * 清空所有指标
+     *
+     * @since 1.0.7
+     */
+    public void reset() {
+        latencies.values().forEach(Histogram::reset);
+        bytes.values().forEach(LongAdder::reset);
+    }
+}
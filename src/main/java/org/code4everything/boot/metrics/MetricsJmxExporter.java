@@ -0,0 +1,177 @@
+package org.code4everything.boot.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 将 {@link MemoryMetricsRecorder}的指标导出到JMX，属性名称如：http.upload.total.p99，耗时单位为纳秒
+ *
+ * @author pantao
+ * @since 2019/1/25
+ **/
+public class MetricsJmxExporter implements DynamicMBean {
+
+    /**
+     * 默认的 {@link ObjectName}
+     *
+     * @since 1.0.7
+     */
+    public static final String DEFAULT_OBJECT_NAME = "org.code4everything.boot:type=Metrics,name=boot";
+
+    private static final String RESET = "reset";
+
+    private static final String[] STATS = {"count", "mean", "max", "p50", "p90", "p99", "p999"};
+
+    private final MemoryMetricsRecorder recorder;
+
+    private ObjectName objectName;
+
+    /**
+     * 构造函数
+     *
+     * @param recorder {@link MemoryMetricsRecorder}
+     *
+     * @since 1.0.7
+     */
+    public MetricsJmxExporter(MemoryMetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * 注册到平台 {@link MBeanServer}
+     *
+     * @return {@link MetricsJmxExporter}
+     *
+     * @throws JMException 注册失败时抛出
+     * @since 1.0.7
+     */
+    public MetricsJmxExporter register() throws JMException {
+        return register(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * 注册到平台 {@link MBeanServer}
+     *
+     * @param name {@link ObjectName}，如：org.code4everything.boot:type=Metrics,name=boot
+     *
+     * @return {@link MetricsJmxExporter}
+     *
+     * @throws JMException 注册失败时抛出
+     * @since 1.0.7
+     */
+    public synchronized MetricsJmxExporter register(String name) throws JMException {
+        objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return this;
+    }
+
+    /**
+     * 从平台 {@link MBeanServer}注销
+     *
+     * @throws JMException 注销失败时抛出
+     * @since 1.0.7
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder adder = recorder.getByteCounters().get(attribute);
+        if (adder != null) {
+            return adder.sum();
+        }
+        int dot = attribute.lastIndexOf('.');
+        Histogram histogram = dot > 0 ? recorder.getHistograms().get(attribute.substring(0, dot)) : null;
+        if (histogram == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        switch (attribute.substring(dot + 1)) {
+            case "count":
+                return histogram.getCount();
+            case "mean":
+                return (long) histogram.getMean();
+            case "max":
+                return histogram.getMax();
+            case "p50":
+                return histogram.getValueAtPercentile(50);
+            case "p90":
+                return histogram.getValueAtPercentile(90);
+            case "p99":
+                return histogram.getValueAtPercentile(99);
+            case "p999":
+                return histogram.getValueAtPercentile(99.9);
+            default:
+                throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("attribute " + attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // 忽略不存在的属性
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if (RESET.equals(actionName)) {
+            recorder.reset();
+        }
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        // 指标是动态增加的，每次都重新生成属性信息
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : recorder.getHistograms().keySet()) {
+            for (String stat : STATS) {
+                attributes.add(newAttributeInfo(name + "." + stat));
+            }
+        }
+        for (String name : recorder.getByteCounters().keySet()) {
+            attributes.add(newAttributeInfo(name));
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "reset all metrics", new MBeanParameterInfo[0],
+                void.class.getName(), MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "boot metrics", attributes.toArray(new MBeanAttributeInfo[0]),
+                null, new MBeanOperationInfo[]{reset}, null);
+    }
+
+    private static MBeanAttributeInfo newAttributeInfo(String name) {
+        return new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+    }
+}
@@ -0,0 +1,30 @@
+package org.code4everything.boot.metrics;
+
+/**
+ * 指标记录器，实现类需要是线程安全的，并且不应在记录时分配内存
+ *
+ * @author pantao
+ * @since 2019/1/25
+ **/
+public interface MetricsRecorder {
+
+    /**
+     * 记录耗时
+     *
+     * @param name 指标名称，见 {@link HttpMetrics}
+     * @param nanos 耗时（纳秒）
+     *
+     * @since 1.0.7
+     */
+    void recordLatency(String name, long nanos);
+
+    /**
+     * 记录字节数
+     *
+     * @param name 指标名称，见 {@link HttpMetrics}
+     * @param bytes 字节数
+     *
+     * @since 1.0.7
+     */
+    default void recordBytes(String name, long bytes) {}
+}
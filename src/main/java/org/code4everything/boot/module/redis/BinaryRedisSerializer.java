@@ -0,0 +1,235 @@
+package org.code4everything.boot.module.redis;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.google.common.base.Preconditions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑二进制格式的 Redis 序列化器，不需要预先定义结构，可以代替 FastJsonRedisSerializer
+ *
+ * <p>对象先转换成 JSON 树，再以带类型标记的二进制写入：整数使用变长编码，浮点数直接写入，对象的键在同一个值内只写入一次。
+ * 编码后超过压缩阈值的数据使用 Deflate（最快速度）压缩，编码和压缩的中间数组在线程内复用</p>
+ *
+ * <p>与 FastJsonRedisSerializer 相比，序列化后的值更小，但需要构建完整的 JSON 树，序列化和反序列化都更慢（见
+ * RedisSerializerBenchmark），适用于值较大、Redis 内存或带宽比 CPU 更紧张的场景</p>
+ *
+ * <p>压缩数据中记录的解压后长度超过限制时直接拒绝，不会按照这个长度分配内存</p>
+ *
+ * <p>数据格式：1字节标记（0：未压缩，1：压缩），压缩时接着写入压缩前长度的变长整数，之后是数据</p>
+ *
+ * @param <T> 值类型
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class BinaryRedisSerializer<T> implements RedisSerializer<T> {
+
+    private static final int RAW = 0;
+
+    private static final int DEFLATED = 1;
+
+    private static final int DEFAULT_COMPRESS_THRESHOLD = 512;
+
+    private static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 16 << 20;
+
+    private static final ThreadLocal<PooledBuffer> ENCODE_BUFFER = ThreadLocal.withInitial(PooledBuffer::new);
+
+    private static final ThreadLocal<PooledBuffer> COMPRESS_BUFFER = ThreadLocal.withInitial(PooledBuffer::new);
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED,
+            true));
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * 值类型
+     *
+     * @since 1.0.7
+     */
+    private final Class<T> type;
+
+    /**
+     * 压缩阈值（字节），小于0时不压缩
+     *
+     * @since 1.0.7
+     */
+    private final int compressThreshold;
+
+    /**
+     * 解压后的最大长度（字节）
+     *
+     * @since 1.0.7
+     */
+    private final int maxDecompressedSize;
+
+    /**
+     * 构造函数，超过512字节时压缩，解压后最大16MB
+     *
+     * @param type 值类型
+     *
+     * @since 1.0.7
+     */
+    public BinaryRedisSerializer(Class<T> type) {
+        this(type, DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    /**
+     * 构造函数，解压后最大16MB
+     *
+     * @param type 值类型
+     * @param compressThreshold 压缩阈值（字节），小于0时不压缩
+     *
+     * @since 1.0.7
+     */
+    public BinaryRedisSerializer(Class<T> type, int compressThreshold) {
+        this(type, compressThreshold, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param type 值类型
+     * @param compressThreshold 压缩阈值（字节），小于0时不压缩
+     * @param maxDecompressedSize 解压后的最大长度（字节），超过时反序列化失败
+     *
+     * @since 1.0.7
+     */
+    public BinaryRedisSerializer(Class<T> type, int compressThreshold, int maxDecompressedSize) {
+        Preconditions.checkArgument(maxDecompressedSize > 0, "max decompressed size must be positive");
+        this.type = Preconditions.checkNotNull(type);
+        this.compressThreshold = compressThreshold;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        PooledBuffer buffer = PooledBuffer.acquire(ENCODE_BUFFER);
+        try {
+            buffer.write(RAW);
+            // 字节数组直接保存，不转换成数字数组
+            BinaryTreeCodec.encode(value instanceof byte[] ? value : JSON.toJSON(value), buffer);
+            int length = buffer.size() - 1;
+            if (compressThreshold >= 0 && length > compressThreshold) {
+                byte[] compressed = compress(buffer.array(), 1, length);
+                if (compressed != null) {
+                    return compressed;
+                }
+            }
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        Object tree;
+        if (bytes[0] == RAW) {
+            tree = BinaryTreeCodec.decode(bytes, 1, bytes.length - 1);
+        } else if (bytes[0] == DEFLATED) {
+            PooledBuffer buffer = PooledBuffer.acquire(ENCODE_BUFFER);
+            try {
+                decompress(bytes, buffer, maxDecompressedSize);
+                tree = BinaryTreeCodec.decode(buffer.array(), 0, buffer.size());
+            } finally {
+                buffer.release();
+            }
+        } else {
+            throw new SerializationException("unknown binary format: " + bytes[0]);
+        }
+        return type == Object.class ? (T) tree : TypeUtils.castToJavaBean(tree, type);
+    }
+
+    /**
+     * 压缩
+     *
+     * @param source 数据
+     * @param offset 起始位置
+     * @param length 长度
+     *
+     * @return 带标记的压缩数据，压缩后没有变小时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private static byte[] compress(byte[] source, int offset, int length) {
+        PooledBuffer out = PooledBuffer.acquire(COMPRESS_BUFFER);
+        Deflater deflater = DEFLATER.get();
+        try {
+            out.write(DEFLATED);
+            out.writeVarint(length);
+            deflater.setInput(source, offset, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.ensureCapacity(Math.max(64, length >>> 2));
+                int written = deflater.deflate(out.array(), out.size(), out.array().length - out.size());
+                out.setSize(out.size() + written);
+                if (out.size() >= length) {
+                    // 压缩后没有变小
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            out.release();
+        }
+    }
+
+    /**
+     * 解压
+     *
+     * @param bytes 带标记的压缩数据
+     * @param out 解压后的数据
+     * @param maxSize 解压后的最大长度
+     *
+     * @since 1.0.7
+     */
+    private static void decompress(byte[] bytes, PooledBuffer out, int maxSize) {
+        Inflater inflater = INFLATER.get();
+        try {
+            int position = 1;
+            long length = 0;
+            for (int shift = 0; ; shift += 7) {
+                Preconditions.checkState(position < bytes.length && shift < Integer.SIZE, "malformed length");
+                int b = bytes[position++];
+                length |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (length > maxSize) {
+                // 长度来自数据本身，不可信，超过限制时不分配内存
+                throw new SerializationException("binary value is too large: " + length);
+            }
+            out.ensureCapacity((int) length);
+            inflater.setInput(bytes, position, bytes.length - position);
+            while (out.size() < length && !inflater.finished()) {
+                int read = inflater.inflate(out.array(), out.size(), (int) length - out.size());
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.setSize(out.size() + read);
+            }
+            if (out.size() != length) {
+                throw new SerializationException("truncated compressed binary value");
+            }
+        } catch (DataFormatException | IllegalStateException e) {
+            throw new SerializationException("decompress binary value failed, message -> " + e.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.code4everything.boot.module.redis;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON 树与紧凑二进制之间的编解码，每个值以1字节的类型开头，整数使用ZigZag变长编码，对象的键在同一条数据内只写入一次
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+final class BinaryTreeCodec {
+
+    private static final int NULL = 0;
+
+    private static final int FALSE = 1;
+
+    private static final int TRUE = 2;
+
+    private static final int INT = 3;
+
+    private static final int LONG = 4;
+
+    private static final int DOUBLE = 5;
+
+    private static final int FLOAT = 6;
+
+    private static final int STRING = 7;
+
+    private static final int ARRAY = 8;
+
+    private static final int OBJECT = 9;
+
+    private static final int DECIMAL = 10;
+
+    private static final int BIG_INTEGER = 11;
+
+    private static final int DATE = 12;
+
+    private static final int BYTES = 13;
+
+    /**
+     * 无法识别的类型，以 JSON 文本保存
+     *
+     * @since 1.0.7
+     */
+    private static final int JSON_TEXT = 14;
+
+    private BinaryTreeCodec() {}
+
+    /**
+     * 编码
+     *
+     * @param value JSON 树，如：{@link JSON#toJSON(Object)}的返回值
+     * @param out 输出
+     *
+     * @since 1.0.7
+     */
+    static void encode(Object value, PooledBuffer out) {
+        new Encoder(out).write(value);
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     *
+     * @return JSON 树，对象为 {@link JSONObject}，数组为 {@link JSONArray}
+     *
+     * @since 1.0.7
+     */
+    static Object decode(byte[] bytes, int offset, int length) {
+        Decoder decoder = new Decoder(bytes, offset, offset + length);
+        Object value = decoder.read();
+        if (decoder.position != decoder.limit) {
+            throw new SerializationException("trailing bytes after binary value");
+        }
+        return value;
+    }
+
+    private static final class Encoder {
+
+        private final PooledBuffer out;
+
+        /**
+         * 对象的键，值为编号
+         *
+         * @since 1.0.7
+         */
+        private Map<String, Integer> keys = null;
+
+        private Encoder(PooledBuffer out) {
+            this.out = out;
+        }
+
+        private void write(Object value) {
+            if (value == null) {
+                out.write(NULL);
+            } else if (value instanceof Boolean) {
+                out.write((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.write(INT);
+                writeZigZag(((Number) value).longValue());
+            } else if (value instanceof Long) {
+                out.write(LONG);
+                writeZigZag((Long) value);
+            } else if (value instanceof Double) {
+                out.write(DOUBLE);
+                out.writeLong(Double.doubleToLongBits((Double) value));
+            } else if (value instanceof Float) {
+                out.write(FLOAT);
+                out.writeVarint(Integer.toUnsignedLong(Float.floatToIntBits((Float) value)));
+            } else if (value instanceof String) {
+                out.write(STRING);
+                writeString((String) value);
+            } else if (value instanceof Map) {
+                writeObject((Map<?, ?>) value);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                out.write(ARRAY);
+                out.writeVarint(collection.size());
+                collection.forEach(this::write);
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                out.write(BYTES);
+                out.writeVarint(bytes.length);
+                out.write(bytes, 0, bytes.length);
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                out.write(ARRAY);
+                out.writeVarint(length);
+                for (int i = 0; i < length; i++) {
+                    write(Array.get(value, i));
+                }
+            } else if (value instanceof BigDecimal) {
+                out.write(DECIMAL);
+                writeString(value.toString());
+            } else if (value instanceof BigInteger) {
+                out.write(BIG_INTEGER);
+                writeString(value.toString());
+            } else if (value instanceof Date) {
+                out.write(DATE);
+                writeZigZag(((Date) value).getTime());
+            } else if (value instanceof Character || value instanceof Enum) {
+                out.write(STRING);
+                writeString(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+            } else {
+                out.write(JSON_TEXT);
+                writeString(JSON.toJSONString(value));
+            }
+        }
+
+        private void writeObject(Map<?, ?> map) {
+            out.write(OBJECT);
+            out.writeVarint(map.size());
+            if (keys == null) {
+                keys = new HashMap<>(16);
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String key = String.valueOf(entry.getKey());
+                Integer id = keys.get(key);
+                if (id == null) {
+                    // 新的键：长度 << 1
+                    keys.put(key, keys.size());
+                    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                    out.writeVarint((long) bytes.length << 1);
+                    out.write(bytes, 0, bytes.length);
+                } else {
+                    // 已出现的键：编号 << 1 | 1
+                    out.writeVarint(((long) id << 1) | 1);
+                }
+                write(entry.getValue());
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private void writeZigZag(long value) {
+            out.writeVarint((value << 1) ^ (value >> 63));
+        }
+    }
+
+    private static final class Decoder {
+
+        private final byte[] bytes;
+
+        private final int limit;
+
+        private int position;
+
+        private List<String> keys = null;
+
+        private Decoder(byte[] bytes, int offset, int limit) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        private Object read() {
+            int type = readByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return (int) readZigZag();
+                case LONG:
+                    return readZigZag();
+                case DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (readByte() & 0xFF);
+                    }
+                    return Double.longBitsToDouble(bits);
+                case FLOAT:
+                    return Float.intBitsToFloat((int) readVarint());
+                case STRING:
+                    return readString();
+                case ARRAY:
+                    int size = readLength();
+                    JSONArray array = new JSONArray(size);
+                    for (int i = 0; i < size; i++) {
+                        array.add(read());
+                    }
+                    return array;
+                case OBJECT:
+                    return readObject();
+                case DECIMAL:
+                    return new BigDecimal(readString());
+                case BIG_INTEGER:
+                    return new BigInteger(readString());
+                case DATE:
+                    return new Date(readZigZag());
+                case BYTES:
+                    int length = readLength();
+                    byte[] value = new byte[length];
+                    System.arraycopy(bytes, position, value, 0, length);
+                    position += length;
+                    return value;
+                case JSON_TEXT:
+                    return JSON.parse(readString());
+                default:
+                    throw new SerializationException("unknown binary type: " + type);
+            }
+        }
+
+        private JSONObject readObject() {
+            int size = readLength();
+            JSONObject object = new JSONObject(size * 4 / 3 + 1, true);
+            if (keys == null) {
+                keys = new ArrayList<>(16);
+            }
+            for (int i = 0; i < size; i++) {
+                long tag = readVarint();
+                String key;
+                if ((tag & 1) == 0) {
+                    int length = checkLength(tag >>> 1);
+                    key = new String(bytes, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    keys.add(key);
+                } else {
+                    long id = tag >>> 1;
+                    if (id >= keys.size()) {
+                        throw new SerializationException("unknown key id: " + id);
+                    }
+                    key = keys.get((int) id);
+                }
+                object.put(key, read());
+            }
+            return object;
+        }
+
+        private String readString() {
+            int length = readLength();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int readLength() {
+            return checkLength(readVarint());
+        }
+
+        private int checkLength(long length) {
+            if (length < 0 || length > limit - position) {
+                throw new SerializationException("invalid binary length: " + length);
+            }
+            return (int) length;
+        }
+
+        private int readByte() {
+            if (position >= limit) {
+                throw new SerializationException("unexpected end of binary value");
+            }
+            return bytes[position++];
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("malformed varint");
+        }
+
+        private long readZigZag() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 旁路缓存加载器，缓存未命中时只有一个调用方加载，避免大量请求同时穿透到数据库
+ *
+ * <p>同一个进程内对同一个键的并发加载会合并为一次，其他线程等待加载结果；多个节点之间通过 Redis 中的短期锁互斥，
+ * 没有获取到锁的节点等待持有锁的节点写入缓存，锁超时后自行加载</p>
+ *
+ * <p>缓存在逻辑过期之前会按 XFetch 算法以一定的概率在后台提前刷新，逻辑过期后在容忍时长内仍然返回旧值并在后台刷新，
+ * 因此热点键的过期不会阻塞请求。加载结果为NULL时也会被缓存，避免不存在的键反复穿透。Redis 不可用时直接调用加载函数</p>
+ *
+ * <p>写入 Redis 的值带有过期时间等信息，请通过本类读写，不要直接使用模板读取</p>
+ *
+ * @param <V> 值类型
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+@ThreadSafe
+public class CacheAsideLoader<V> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheAsideLoader.class);
+
+    private static final String LOCK_SUFFIX = ":lock";
+
+    private static final long WAIT_INTERVAL_MILLIS = 20;
+
+    /**
+     * 只释放自己持有的锁
+     *
+     * @since 1.0.7
+     */
+    private static final byte[] UNLOCK_SCRIPT = ("if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('del', KEYS[1]) else return 0 end").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Redis 模板
+     *
+     * @since 1.0.7
+     */
+    private final RedisTemplate<String, V> redisTemplate;
+
+    /**
+     * 逻辑过期时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private final long ttlMillis;
+
+    /**
+     * 逻辑过期后仍然返回旧值的时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private final long staleMillis;
+
+    /**
+     * 加载锁的时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private final long lockMillis;
+
+    /**
+     * 提前刷新的系数
+     *
+     * @since 1.0.7
+     */
+    private final double beta;
+
+    /**
+     * 进程内正在加载的键
+     *
+     * @since 1.0.7
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 进程内正在后台刷新的键
+     *
+     * @since 1.0.7
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 构造函数，逻辑过期后60秒内返回旧值，加载锁3秒，提前刷新的系数为1
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     * @param ttl 逻辑过期时长
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public CacheAsideLoader(RedisTemplate<String, V> redisTemplate, long ttl, TimeUnit unit) {
+        this(redisTemplate, unit.toMillis(ttl), TimeUnit.SECONDS.toMillis(60), TimeUnit.SECONDS.toMillis(3),
+                TimeUnit.MILLISECONDS, 1);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     * @param ttl 逻辑过期时长
+     * @param staleTtl 逻辑过期后仍然返回旧值的时长，Redis 中的过期时长为两者之和
+     * @param lockTimeout 加载锁的时长，应大于加载耗时
+     * @param unit 时间单位
+     * @param beta 提前刷新的系数，越大越早刷新，0表示只在逻辑过期后刷新
+     *
+     * @since 1.0.7
+     */
+    public CacheAsideLoader(RedisTemplate<String, V> redisTemplate, long ttl, long staleTtl, long lockTimeout,
+                            TimeUnit unit, double beta) {
+        Preconditions.checkArgument(ttl > 0 && lockTimeout > 0, "ttl and lock timeout must be positive");
+        Preconditions.checkArgument(staleTtl >= 0 && beta >= 0, "stale ttl and beta must not be negative");
+        this.redisTemplate = Preconditions.checkNotNull(redisTemplate);
+        this.ttlMillis = unit.toMillis(ttl);
+        this.staleMillis = unit.toMillis(staleTtl);
+        this.lockMillis = unit.toMillis(lockTimeout);
+        this.beta = beta;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadFactoryBuilder factoryBuilder = new ThreadFactoryBuilder().setNameFormat("boot-cache-refresh-%d");
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1024),
+                factoryBuilder.setDaemon(true).build(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 获取值，未命中时加载并写入缓存，即将过期或者已经逻辑过期时返回旧值并在后台刷新
+     *
+     * @param key 键
+     * @param loader 加载函数，参数为键，可以返回NULL
+     *
+     * @return 值
+     *
+     * @since 1.0.7
+     */
+    public V get(String key, Function<String, ? extends V> loader) {
+        byte[] rawKey = serializeKey(key);
+        CacheEntry entry = read(rawKey);
+        if (Objects.isNull(entry)) {
+            return load(key, rawKey, loader);
+        }
+        if (entry.shouldRefresh(System.currentTimeMillis(), beta, 1 - ThreadLocalRandom.current().nextDouble())) {
+            refreshAsync(key, rawKey, loader);
+        }
+        return deserialize(entry);
+    }
+
+    /**
+     * 直接写入缓存，适用于更新数据后主动写入的情况
+     *
+     * @param key 键
+     * @param value 值
+     *
+     * @since 1.0.7
+     */
+    public void set(String key, V value) {
+        write(serializeKey(key), value, 0);
+    }
+
+    /**
+     * 删除缓存，下次获取时重新加载
+     *
+     * @param key 键
+     *
+     * @since 1.0.7
+     */
+    public void invalidate(String key) {
+        redisTemplate.delete(key);
+    }
+
+    /**
+     * 停止后台刷新的线程
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * 进程内合并同一个键的并发加载
+     *
+     * @param key 键
+     * @param rawKey 序列化后的键
+     * @param loader 加载函数
+     *
+     * @return 值
+     *
+     * @since 1.0.7
+     */
+    private V load(String key, byte[] rawKey, Function<String, ? extends V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (Objects.nonNull(existing)) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            V value = loadExclusively(key, rawKey, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 节点之间通过 Redis 锁互斥加载，没有获取到锁时等待其他节点写入
+     *
+     * @param key 键
+     * @param rawKey 序列化后的键
+     * @param loader 加载函数
+     *
+     * @return 值
+     *
+     * @since 1.0.7
+     */
+    private V loadExclusively(String key, byte[] rawKey, Function<String, ? extends V> loader) {
+        byte[] lockKey = serializeKey(key + LOCK_SUFFIX);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        long deadline = System.currentTimeMillis() + lockMillis;
+        while (!tryLock(lockKey, token)) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(WAIT_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loadAndWrite(key, rawKey, loader);
+            }
+            CacheEntry entry = read(rawKey);
+            if (Objects.nonNull(entry)) {
+                return deserialize(entry);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                // 持有锁的节点可能已经宕机或者加载过慢
+                return loadAndWrite(key, rawKey, loader);
+            }
+        }
+        try {
+            // 获取到锁之前其他节点可能已经写入
+            CacheEntry entry = read(rawKey);
+            if (Objects.nonNull(entry) && entry.expireAt > System.currentTimeMillis()) {
+                return deserialize(entry);
+            }
+            return loadAndWrite(key, rawKey, loader);
+        } finally {
+            unlock(lockKey, token);
+        }
+    }
+
+    /**
+     * 在后台刷新，同一个键同时只有一个刷新任务，没有获取到 Redis 锁时说明其他节点正在刷新
+     *
+     * @param key 键
+     * @param rawKey 序列化后的键
+     * @param loader 加载函数
+     *
+     * @since 1.0.7
+     */
+    private void refreshAsync(String key, byte[] rawKey, Function<String, ? extends V> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                byte[] lockKey = serializeKey(key + LOCK_SUFFIX);
+                byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+                try {
+                    if (tryLock(lockKey, token)) {
+                        try {
+                            loadAndWrite(key, rawKey, loader);
+                        } finally {
+                            unlock(lockKey, token);
+                        }
+                    }
+                } catch (Exception e) {
+                    // 继续返回旧值，下次获取时再刷新
+                    LOGGER.error("refresh cache of key '" + key + "' failed, message -> " + e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private V loadAndWrite(String key, byte[] rawKey, Function<String, ? extends V> loader) {
+        long start = System.nanoTime();
+        V value = loader.apply(key);
+        long delta = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        write(rawKey, value, (int) Math.min(delta, Integer.MAX_VALUE));
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V deserialize(CacheEntry entry) {
+        if (Objects.isNull(entry.value)) {
+            return null;
+        }
+        return ((RedisSerializer<V>) redisTemplate.getValueSerializer()).deserialize(entry.value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(Preconditions.checkNotNull(key));
+    }
+
+    private CacheEntry read(byte[] rawKey) {
+        try {
+            byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+            return CacheEntry.decode(bytes);
+        } catch (Exception e) {
+            // Redis 不可用时当作未命中
+            LOGGER.error("read cache failed, message -> " + e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(byte[] rawKey, V value, int delta) {
+        long now = System.currentTimeMillis();
+        RedisSerializer<V> valueSerializer = (RedisSerializer<V>) redisTemplate.getValueSerializer();
+        byte[] bytes = CacheEntry.encode(now + ttlMillis, delta,
+                Objects.isNull(value) ? null : valueSerializer.serialize(value));
+        try {
+            redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.pSetEx(rawKey,
+                    ttlMillis + staleMillis, bytes));
+        } catch (Exception e) {
+            LOGGER.error("write cache failed, message -> " + e.getMessage());
+        }
+    }
+
+    private boolean tryLock(byte[] lockKey, byte[] token) {
+        try {
+            Boolean locked = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(lockKey, token,
+                    Expiration.milliseconds(lockMillis), RedisStringCommands.SetOption.ifAbsent()));
+            return Boolean.TRUE.equals(locked);
+        } catch (Exception e) {
+            // Redis 不可用时只在进程内合并加载
+            LOGGER.error("lock cache key failed, message -> " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void unlock(byte[] lockKey, byte[] token) {
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.eval(UNLOCK_SCRIPT, ReturnType.INTEGER,
+                    1, lockKey, token));
+        } catch (Exception e) {
+            // 锁会自动过期
+            LOGGER.error("unlock cache key failed, message -> " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.code4everything.boot.module.redis;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * {@link CacheAsideLoader}写入 Redis 的缓存条目，在序列化后的值前面加上逻辑过期时间和加载耗时
+ *
+ * <p>格式：魔数（1字节）、是否为NULL（1字节）、逻辑过期时间（8字节）、加载耗时（4字节）、序列化后的值</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+final class CacheEntry {
+
+    private static final byte MAGIC = (byte) 0xCA;
+
+    private static final int HEADER_LENGTH = 14;
+
+    /**
+     * 逻辑过期时间（毫秒时间戳）
+     *
+     * @since 1.0.7
+     */
+    final long expireAt;
+
+    /**
+     * 加载耗时（毫秒），用于提前刷新
+     *
+     * @since 1.0.7
+     */
+    final int delta;
+
+    /**
+     * 序列化后的值，缓存的是NULL时为NULL
+     *
+     * @since 1.0.7
+     */
+    final byte[] value;
+
+    private CacheEntry(long expireAt, int delta, byte[] value) {
+        this.expireAt = expireAt;
+        this.delta = delta;
+        this.value = value;
+    }
+
+    /**
+     * 编码
+     *
+     * @param expireAt 逻辑过期时间（毫秒时间戳）
+     * @param delta 加载耗时（毫秒）
+     * @param value 序列化后的值，可以为NULL
+     *
+     * @return 字节
+     *
+     * @since 1.0.7
+     */
+    static byte[] encode(long expireAt, int delta, byte[] value) {
+        int length = Objects.isNull(value) ? 0 : value.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + length);
+        buffer.put(MAGIC).put((byte) (Objects.isNull(value) ? 1 : 0)).putLong(expireAt).putInt(delta);
+        if (length > 0) {
+            buffer.put(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节
+     *
+     * @return 缓存条目，字节为NULL或者不是缓存条目时返回NULL
+     *
+     * @since 1.0.7
+     */
+    static CacheEntry decode(byte[] bytes) {
+        if (Objects.isNull(bytes) || bytes.length < HEADER_LENGTH || bytes[0] != MAGIC) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        boolean isNull = buffer.get() == 1;
+        long expireAt = buffer.getLong();
+        int delta = buffer.getInt();
+        byte[] value = null;
+        if (!isNull) {
+            value = new byte[buffer.remaining()];
+            buffer.get(value);
+        }
+        return new CacheEntry(expireAt, delta, value);
+    }
+
+    /**
+     * 是否需要刷新，使用 XFetch 算法：越接近过期、加载越慢，提前刷新的概率越大，已经过期时总是刷新
+     *
+     * @param now 当前时间（毫秒时间戳）
+     * @param beta 提前刷新的系数，越大越早刷新，0表示过期后才刷新
+     * @param random (0, 1] 之间的随机数
+     *
+     * @return 是否需要刷新
+     *
+     * @since 1.0.7
+     */
+    boolean shouldRefresh(long now, double beta, double random) {
+        return now - delta * beta * Math.log(random) >= expireAt;
+    }
+}
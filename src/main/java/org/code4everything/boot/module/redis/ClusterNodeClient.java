@@ -0,0 +1,57 @@
+package org.code4everything.boot.module.redis;
+
+import java.util.List;
+
+/**
+ * Redis 集群的节点客户端，由 {@link RedisClusterBatcher}调用，每次调用都在一个节点上通过一个管道执行
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public interface ClusterNodeClient {
+
+    /**
+     * 获取负责槽位的主节点
+     *
+     * @param slot 槽位，见 {@link RedisSlots#slot(byte[])}
+     *
+     * @return 节点，格式为 host:port
+     *
+     * @since 1.0.7
+     */
+    String getNode(int slot);
+
+    /**
+     * 在一个节点上批量获取值
+     *
+     * @param node 节点
+     * @param keys 序列化后的键
+     *
+     * @return 序列化后的值，与键的顺序一致，不存在的键为NULL
+     *
+     * @since 1.0.7
+     */
+    List<byte[]> get(String node, List<byte[]> keys);
+
+    /**
+     * 在一个节点上批量设置值
+     *
+     * @param node 节点
+     * @param keys 序列化后的键
+     * @param values 序列化后的值，与键的顺序一致
+     * @param ttlMillis 过期时长（毫秒），小于等于0时不过期
+     *
+     * @since 1.0.7
+     */
+    void set(String node, List<byte[]> keys, List<byte[]> values, long ttlMillis);
+
+    /**
+     * 在一个节点上批量删除键
+     *
+     * @param node 节点
+     * @param keys 序列化后的键
+     *
+     * @since 1.0.7
+     */
+    void delete(String node, List<byte[]> keys);
+}
@@ -0,0 +1,199 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * 基于 {@link JedisCluster}的节点客户端，直接从节点的连接池获取连接并使用管道执行
+ *
+ * <p>槽位与节点的映射通过 CLUSTER SLOTS 获取，槽位迁移后管道中收到 MOVED 或 ASK 的键会通过 {@link JedisCluster}逐个重试，
+ * 并在批次结束后刷新映射</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+@ThreadSafe
+public class JedisClusterNodeClient implements ClusterNodeClient {
+
+    private static final Logger LOGGER = Logger.getLogger(JedisClusterNodeClient.class);
+
+    /**
+     * {@link JedisCluster}没有二进制的 PSETEX，使用脚本原子地设置值和过期时间
+     *
+     * @since 1.0.7
+     */
+    private static final byte[] PSETEX_SCRIPT = "return redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])".getBytes(
+            StandardCharsets.UTF_8);
+
+    /**
+     * Jedis 集群
+     *
+     * @since 1.0.7
+     */
+    private final JedisCluster cluster;
+
+    /**
+     * 槽位与节点的映射
+     *
+     * @since 1.0.7
+     */
+    private volatile String[] slotNodes = new String[RedisSlots.SLOT_COUNT];
+
+    /**
+     * 构造函数
+     *
+     * @param cluster Jedis 集群
+     *
+     * @since 1.0.7
+     */
+    public JedisClusterNodeClient(JedisCluster cluster) {
+        this.cluster = Preconditions.checkNotNull(cluster);
+    }
+
+    /**
+     * 从集群连接池创建节点客户端
+     *
+     * @param factory 集群连接池，如：{@link RedisTemplateUtils#newClusterConnectionFactory(java.util.Collection,
+     *         org.code4everything.boot.bean.RedisPoolBean)}
+     *
+     * @return {@link JedisClusterNodeClient}
+     *
+     * @since 1.0.7
+     */
+    public static JedisClusterNodeClient of(RedisConnectionFactory factory) {
+        Preconditions.checkArgument(factory instanceof JedisConnectionFactory, "jedis connection factory is required");
+        // 关闭集群连接不会关闭连接池中的 JedisCluster
+        RedisClusterConnection connection = ((JedisConnectionFactory) factory).getClusterConnection();
+        try {
+            return new JedisClusterNodeClient((JedisCluster) connection.getNativeConnection());
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Override
+    public String getNode(int slot) {
+        String node = slotNodes[slot];
+        if (Objects.isNull(node)) {
+            refresh();
+            node = slotNodes[slot];
+        }
+        Preconditions.checkState(Objects.nonNull(node), "no node serves slot %s", slot);
+        return node;
+    }
+
+    @Override
+    public List<byte[]> get(String node, List<byte[]> keys) {
+        return execute(node, keys, (pipeline, i) -> pipeline.get(keys.get(i)), i -> cluster.get(keys.get(i)));
+    }
+
+    @Override
+    public void set(String node, List<byte[]> keys, List<byte[]> values, long ttlMillis) {
+        BiFunction<Pipeline, Integer, Response<String>> command = (pipeline, i) -> ttlMillis > 0
+                ? pipeline.psetex(keys.get(i), ttlMillis, values.get(i)) : pipeline.set(keys.get(i), values.get(i));
+        execute(node, keys, command, i -> ttlMillis > 0 ? psetex(keys.get(i), ttlMillis, values.get(i))
+                : cluster.set(keys.get(i), values.get(i)));
+    }
+
+    @Override
+    public void delete(String node, List<byte[]> keys) {
+        execute(node, keys, (pipeline, i) -> pipeline.del(keys.get(i)), i -> cluster.del(keys.get(i)));
+    }
+
+    /**
+     * 通过 CLUSTER SLOTS 刷新槽位与节点的映射
+     *
+     * @since 1.0.7
+     */
+    public synchronized void refresh() {
+        for (JedisPool pool : cluster.getClusterNodes().values()) {
+            try (Jedis jedis = pool.getResource()) {
+                String[] nodes = new String[RedisSlots.SLOT_COUNT];
+                for (Object range : jedis.clusterSlots()) {
+                    // [起始槽位, 结束槽位, [主节点主机, 主节点端口, ...], 从节点...]
+                    List<?> slotRange = (List<?>) range;
+                    List<?> master = (List<?>) slotRange.get(2);
+                    String host = new String((byte[]) master.get(0), StandardCharsets.UTF_8);
+                    String node = host + ":" + master.get(1);
+                    int end = ((Number) slotRange.get(1)).intValue();
+                    for (int slot = ((Number) slotRange.get(0)).intValue(); slot <= end; slot++) {
+                        nodes[slot] = node;
+                    }
+                }
+                slotNodes = nodes;
+                return;
+            } catch (Exception e) {
+                LOGGER.error("refresh redis cluster slots failed, message -> " + e.getMessage());
+            }
+        }
+    }
+
+    private String psetex(byte[] key, long ttlMillis, byte[] value) {
+        cluster.eval(PSETEX_SCRIPT, 1, key, value, String.valueOf(ttlMillis).getBytes(StandardCharsets.UTF_8));
+        return "OK";
+    }
+
+    /**
+     * 在节点上通过一个管道执行命令，被重定向的键通过 {@link JedisCluster}重试
+     *
+     * @param node 节点
+     * @param keys 键
+     * @param command 在管道中执行的命令，参数为键的下标
+     * @param fallback 重定向后通过集群执行的命令，参数为键的下标
+     *
+     * @return 结果，与键的顺序一致
+     *
+     * @since 1.0.7
+     */
+    private <T> List<T> execute(String node, List<byte[]> keys, BiFunction<Pipeline, Integer, Response<T>> command,
+                                IntFunction<T> fallback) {
+        List<T> results = new ArrayList<>(keys.size());
+        JedisPool pool = cluster.getClusterNodes().get(node);
+        if (Objects.isNull(pool)) {
+            // 节点已经下线
+            refresh();
+            for (int i = 0; i < keys.size(); i++) {
+                results.add(fallback.apply(i));
+            }
+            return results;
+        }
+        boolean redirected = false;
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            List<Response<T>> responses = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                responses.add(command.apply(pipeline, i));
+            }
+            pipeline.sync();
+            for (int i = 0; i < keys.size(); i++) {
+                try {
+                    results.add(responses.get(i).get());
+                } catch (JedisRedirectionException e) {
+                    redirected = true;
+                    results.add(fallback.apply(i));
+                }
+            }
+        }
+        if (redirected) {
+            refresh();
+        }
+        return results;
+    }
+}
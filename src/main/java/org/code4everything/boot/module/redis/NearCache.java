@@ -0,0 +1,434 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存，在 {@link RedisTemplate}前面加一层进程内的有界缓存，热点键不需要访问 Redis 和反序列化
+ *
+ * <p>通过本缓存写入或删除键时，会通过 Redis 的发布订阅通知其他节点失效本地缓存（从数据源加载的值请使用
+ * {@link #fill(String, Object, long, TimeUnit)}写入，不通知其他节点）；如果键还会被其他程序修改，可以调用
+ * {@link #listenKeyspaceEvents(int, String)}监听指定前缀的键空间通知（需要在 Redis 中配置 notify-keyspace-events，如：K$gx），
+ * 本节点回填产生的 set 和 expire 通知会被忽略，不会失效刚回填的值。
+ * 本地缓存按最近最少使用淘汰，并在写入后经过指定时长过期，过期时长是节点之间不一致的最长时间</p>
+ *
+ * <p>本地缓存直接返回缓存的对象，请不要修改获取到的值</p>
+ *
+ * @param <V> 值类型
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+@ThreadSafe
+public class NearCache<V> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(NearCache.class);
+
+    private static final String CHANNEL_PREFIX = "boot:near-cache:";
+
+    private static final String KEYSPACE_PREFIX = "__keyspace@";
+
+    private static final char SEPARATOR = '\n';
+
+    /**
+     * 回填（SET PX）产生的键空间通知
+     *
+     * @since 1.0.7
+     */
+    private static final String[] FILL_EVENTS = {"set", "expire"};
+
+    /**
+     * 等待本节点回填产生的键空间通知的最长时间（秒），超时后不再忽略
+     *
+     * @since 1.0.7
+     */
+    private static final long PENDING_EVENT_SECONDS = 5;
+
+    /**
+     * Redis 模板
+     *
+     * @since 1.0.7
+     */
+    private final RedisTemplate<String, V> redisTemplate;
+
+    /**
+     * 本地缓存
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, V> localCache;
+
+    /**
+     * 失效通知的频道
+     *
+     * @since 1.0.7
+     */
+    private final String channel;
+
+    /**
+     * 节点编号，忽略自己发出的失效通知
+     *
+     * @since 1.0.7
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 监听容器，为NULL时不通知其他节点
+     *
+     * @since 1.0.7
+     */
+    private final RedisMessageListenerContainer container;
+
+    private final MessageListener listener = this::onMessage;
+
+    /**
+     * 正在从 Redis 读取的键及其令牌，失效时移除令牌，读取完成后令牌不变才写入本地缓存，避免缓存旧值
+     *
+     * @since 1.0.7
+     */
+    private final ConcurrentMap<String, Object> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点回填后尚未收到的键空间通知，收到时忽略一次，只在监听键空间通知时记录
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, Multiset<String>> pendingEvents;
+
+    /**
+     * 键空间通知频道的前缀，不监听时为NULL
+     *
+     * @since 1.0.7
+     */
+    private volatile String keyspacePrefix = null;
+
+    /**
+     * 构造函数，本地缓存最多10000个键，写入后60秒过期
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     * @param container 监听容器，为NULL时不在节点之间同步失效
+     * @param name 缓存名称，同名缓存之间互相通知失效
+     *
+     * @since 1.0.7
+     */
+    public NearCache(RedisTemplate<String, V> redisTemplate, RedisMessageListenerContainer container, String name) {
+        this(redisTemplate, container, name, 10000, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     * @param container 监听容器，为NULL时不在节点之间同步失效
+     * @param name 缓存名称，同名缓存之间互相通知失效
+     * @param maximumSize 本地缓存的最大键数
+     * @param ttl 本地缓存的过期时长
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public NearCache(RedisTemplate<String, V> redisTemplate, RedisMessageListenerContainer container, String name,
+                     long maximumSize, long ttl, TimeUnit unit) {
+        Preconditions.checkArgument(maximumSize > 0 && ttl > 0, "maximum size and ttl must be positive");
+        this.redisTemplate = Preconditions.checkNotNull(redisTemplate);
+        this.container = container;
+        this.channel = CHANNEL_PREFIX + Preconditions.checkNotNull(name);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maximumSize);
+        this.localCache = builder.expireAfterWrite(ttl, unit).recordStats().build();
+        this.pendingEvents = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(
+                PENDING_EVENT_SECONDS, TimeUnit.SECONDS).build();
+        if (Objects.nonNull(container)) {
+            container.addMessageListener(listener, new ChannelTopic(channel));
+        }
+    }
+
+    /**
+     * 监听指定前缀的键空间通知，其他程序修改了这些键时也会失效本地缓存。只订阅本缓存使用的键，避免数据库中其他键的写入频繁失效本地缓存
+     *
+     * @param database 数据库
+     * @param keyPrefix 本缓存的键的前缀，如：user:
+     *
+     * @since 1.0.7
+     */
+    public void listenKeyspaceEvents(int database, String keyPrefix) {
+        Preconditions.checkNotNull(container, "listener container is required");
+        Preconditions.checkArgument(Objects.nonNull(keyPrefix) && !keyPrefix.isEmpty(), "key prefix is required");
+        keyspacePrefix = KEYSPACE_PREFIX + database + "__:";
+        container.addMessageListener(listener, new PatternTopic(keyspacePrefix + escapePattern(keyPrefix) + "*"));
+    }
+
+    /**
+     * 获取值，先从本地缓存获取，不存在时从 Redis 获取并写入本地缓存
+     *
+     * @param key 键
+     *
+     * @return 值，不存在时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public V get(String key) {
+        V value = localCache.getIfPresent(key);
+        if (Objects.nonNull(value)) {
+            return value;
+        }
+        Object token = new Object();
+        Object current = loading.putIfAbsent(key, token);
+        Object expected = Objects.isNull(current) ? token : current;
+        try {
+            value = redisTemplate.opsForValue().get(key);
+            if (Objects.nonNull(value)) {
+                putLocal(key, value, expected);
+            }
+        } finally {
+            loading.remove(key, token);
+        }
+        return value;
+    }
+
+    /**
+     * 设置值并通知其他节点失效
+     *
+     * @param key 键
+     * @param value 值
+     *
+     * @since 1.0.7
+     */
+    public void set(String key, V value) {
+        redisTemplate.opsForValue().set(key, value);
+        invalidate(key);
+    }
+
+    /**
+     * 设置值并通知其他节点失效
+     *
+     * @param key 键
+     * @param value 值
+     * @param timeout Redis 中的过期时长
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public void set(String key, V value, long timeout, TimeUnit unit) {
+        redisTemplate.opsForValue().set(key, value, timeout, unit);
+        invalidate(key);
+    }
+
+    /**
+     * 写入从数据源加载的值，同时写入 Redis 和本地缓存，不通知其他节点失效，适用于缓存未命中后的回填
+     *
+     * <p>回填的值与其他节点缓存的值来自同一个数据源，通知失效只会清空其他节点的缓存。写入期间键被失效时不写入本地缓存。
+     * 监听键空间通知时，这次写入产生的通知不会失效本地缓存，之后其他程序的写入仍然会失效</p>
+     *
+     * @param key 键
+     * @param value 值
+     * @param timeout Redis 中的过期时长
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public void fill(String key, V value, long timeout, TimeUnit unit) {
+        Object token = new Object();
+        Object current = loading.putIfAbsent(key, token);
+        // 写入之前记录，通知可能在写入返回之前到达
+        boolean listening = Objects.nonNull(keyspacePrefix);
+        if (listening) {
+            pendingEvents.asMap().compute(key, (k, events) -> {
+                Multiset<String> pending = Objects.isNull(events) ? ConcurrentHashMultiset.create() : events;
+                Collections.addAll(pending, FILL_EVENTS);
+                return pending;
+            });
+        }
+        boolean written = false;
+        try {
+            redisTemplate.opsForValue().set(key, value, timeout, unit);
+            written = true;
+            putLocal(key, value, Objects.isNull(current) ? token : current);
+        } finally {
+            loading.remove(key, token);
+            Multiset<String> events = listening && !written ? pendingEvents.getIfPresent(key) : null;
+            if (Objects.nonNull(events)) {
+                for (String event : FILL_EVENTS) {
+                    events.remove(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除键并通知其他节点失效
+     *
+     * @param key 键
+     *
+     * @since 1.0.7
+     */
+    public void delete(String key) {
+        redisTemplate.delete(key);
+        invalidate(key);
+    }
+
+    /**
+     * 失效本地缓存并通知其他节点失效，适用于通过其他方式修改了键的情况
+     *
+     * @param key 键
+     *
+     * @since 1.0.7
+     */
+    public void invalidate(String key) {
+        invalidateLocal(key);
+        if (Objects.nonNull(container)) {
+            byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+            byte[] message = (nodeId + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+            try {
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channelBytes, message));
+            } catch (Exception e) {
+                // 其他节点将在本地缓存过期后读到新值
+                LOGGER.error("publish near cache invalidation failed, message -> " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 只失效本节点的本地缓存
+     *
+     * @param key 键
+     *
+     * @since 1.0.7
+     */
+    public void invalidateLocal(String key) {
+        // 先移除令牌，之后正在读取的值不会再写入本地缓存
+        loading.remove(key);
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 清空本节点的本地缓存
+     *
+     * @since 1.0.7
+     */
+    public void invalidateAll() {
+        loading.clear();
+        pendingEvents.invalidateAll();
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 获取本地缓存的统计信息
+     *
+     * @return {@link CacheStats}，包括命中率、淘汰次数等
+     *
+     * @since 1.0.7
+     */
+    public CacheStats getStats() {
+        return localCache.stats();
+    }
+
+    /**
+     * 获取本地缓存的键数
+     *
+     * @return 键数
+     *
+     * @since 1.0.7
+     */
+    public long getLocalSize() {
+        return localCache.size();
+    }
+
+    /**
+     * 停止接收失效通知并清空本地缓存
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        if (Objects.nonNull(container)) {
+            container.removeMessageListener(listener);
+        }
+        invalidateAll();
+    }
+
+    /**
+     * 令牌不变时写入本地缓存，与 {@link #invalidateLocal(String)}移除令牌互斥
+     *
+     * @param key 键
+     * @param value 值
+     * @param token 开始读取时的令牌
+     *
+     * @since 1.0.7
+     */
+    private void putLocal(String key, V value, Object token) {
+        loading.computeIfPresent(key, (k, current) -> {
+            if (current == token) {
+                localCache.put(k, value);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * 转义发布订阅模式中的特殊字符
+     *
+     * @param prefix 前缀
+     *
+     * @return 模式
+     *
+     * @since 1.0.7
+     */
+    private static String escapePattern(String prefix) {
+        StringBuilder builder = new StringBuilder(prefix.length() + 4);
+        for (char c : prefix.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 处理失效通知
+     *
+     * @param message 消息
+     * @param pattern 订阅的模式
+     *
+     * @since 1.0.7
+     */
+    void onMessage(Message message, byte[] pattern) {
+        String channelName = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String prefix = keyspacePrefix;
+        if (Objects.nonNull(prefix) && channelName.startsWith(prefix)) {
+            // 键空间通知，频道为 __keyspace@0__:key，消息为事件名称
+            String key = channelName.substring(prefix.length());
+            Multiset<String> events = pendingEvents.getIfPresent(key);
+            if (Objects.isNull(events) || !events.remove(new String(message.getBody(), StandardCharsets.UTF_8))) {
+                invalidateLocal(key);
+            }
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index > 0 && !nodeId.equals(body.substring(0, index))) {
+            invalidateLocal(body.substring(index + 1));
+        }
+    }
+}
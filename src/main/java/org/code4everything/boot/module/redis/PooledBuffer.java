@@ -0,0 +1,122 @@
+package org.code4everything.boot.module.redis;
+
+import java.util.Arrays;
+
+/**
+ * 线程内复用的可增长字节缓冲区，避免每次序列化都分配中间数组
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+final class PooledBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 归还时保留的最大容量，超出时丢弃，避免偶尔的大对象长期占用内存
+     *
+     * @since 1.0.7
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * 清空并返回缓冲区
+     *
+     * @param pool 线程内的缓冲区
+     *
+     * @return {@link PooledBuffer}
+     *
+     * @since 1.0.7
+     */
+    static PooledBuffer acquire(ThreadLocal<PooledBuffer> pool) {
+        PooledBuffer buffer = pool.get();
+        buffer.size = 0;
+        return buffer;
+    }
+
+    /**
+     * 使用完毕，容量过大时缩小
+     *
+     * @since 1.0.7
+     */
+    void release() {
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        size = 0;
+    }
+
+    void write(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    void write(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * 确保还有指定的剩余空间
+     *
+     * @param length 需要的空间
+     *
+     * @since 1.0.7
+     */
+    void ensureCapacity(int length) {
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + length));
+        }
+    }
+
+    /**
+     * 获取底层数组，有效数据为 [0, size)
+     *
+     * @return 底层数组
+     *
+     * @since 1.0.7
+     */
+    byte[] array() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * 复制有效数据
+     *
+     * @return 字节数组
+     *
+     * @since 1.0.7
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
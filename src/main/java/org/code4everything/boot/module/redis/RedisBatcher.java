@@ -0,0 +1,351 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis 批量操作，将多个调用方在一个很短的时间窗口内发起的读写合并到一个管道中执行，N 次读写只需要一次网络往返
+ *
+ * <p>排队的操作达到批量大小或者经过时间窗口后由后台线程执行，每个操作返回一个 {@link CompletableFuture}，同一批次内的操作按提交的顺序执行。
+ * {@link CompletableFuture}的回调在后台线程中执行，请不要在回调中阻塞</p>
+ *
+ * <p>已经持有多个键时可以直接使用 {@link #getAll(Collection)}（MGET）和 {@link #setAll(Map)}（MSET）</p>
+ *
+ * @param <V> 值类型
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+@ThreadSafe
+public class RedisBatcher<V> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisBatcher.class);
+
+    /**
+     * 执行批量操作的线程
+     *
+     * @since 1.0.7
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("boot-redis-batch-%d").setDaemon(true).build());
+
+    /**
+     * Redis 模板
+     *
+     * @since 1.0.7
+     */
+    private final RedisTemplate<String, V> redisTemplate;
+
+    /**
+     * 批量大小
+     *
+     * @since 1.0.7
+     */
+    private final int maxBatchSize;
+
+    /**
+     * 时间窗口（微秒）
+     *
+     * @since 1.0.7
+     */
+    private final long windowMicros;
+
+    private final ConcurrentLinkedQueue<Operation<V>> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * 是否已经安排了执行
+     *
+     * @since 1.0.7
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * 构造函数，每批最多128个操作，时间窗口1毫秒
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     *
+     * @since 1.0.7
+     */
+    public RedisBatcher(RedisTemplate<String, V> redisTemplate) {
+        this(redisTemplate, 128, 1000, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     * @param maxBatchSize 批量大小，排队的操作达到此数量时立即执行
+     * @param window 时间窗口，第一个操作排队后最多等待的时长
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public RedisBatcher(RedisTemplate<String, V> redisTemplate, int maxBatchSize, long window, TimeUnit unit) {
+        Preconditions.checkArgument(maxBatchSize > 0 && window >= 0, "batch size must be positive");
+        this.redisTemplate = Preconditions.checkNotNull(redisTemplate);
+        this.maxBatchSize = maxBatchSize;
+        this.windowMicros = unit.toMicros(window);
+    }
+
+    /**
+     * 批量获取值
+     *
+     * @param key 键
+     *
+     * @return 值的 {@link CompletableFuture}，不存在时为NULL
+     *
+     * @since 1.0.7
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<V> get(String key) {
+        // 管道中 GET 的结果已经由值的序列化器反序列化
+        return (CompletableFuture<V>) (CompletableFuture<?>) enqueue(new Operation<>(Operation.GET, key, null, 0));
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param key 键
+     * @param value 值
+     *
+     * @return {@link CompletableFuture}，设置完成后结束
+     *
+     * @since 1.0.7
+     */
+    public CompletableFuture<Void> set(String key, V value) {
+        return enqueue(new Operation<>(Operation.SET, key, value, 0)).thenApply(result -> null);
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param key 键
+     * @param value 值
+     * @param timeout 过期时长
+     * @param unit 时间单位
+     *
+     * @return {@link CompletableFuture}，设置完成后结束
+     *
+     * @since 1.0.7
+     */
+    public CompletableFuture<Void> set(String key, V value, long timeout, TimeUnit unit) {
+        Preconditions.checkArgument(timeout > 0, "timeout must be positive");
+        Operation<V> operation = new Operation<>(Operation.SET, key, value, unit.toMillis(timeout));
+        return enqueue(operation).thenApply(result -> null);
+    }
+
+    /**
+     * 批量删除键
+     *
+     * @param key 键
+     *
+     * @return {@link CompletableFuture}，删除完成后结束
+     *
+     * @since 1.0.7
+     */
+    public CompletableFuture<Void> delete(String key) {
+        return enqueue(new Operation<>(Operation.DELETE, key, null, 0)).thenApply(result -> null);
+    }
+
+    /**
+     * 使用 MGET 一次获取多个键
+     *
+     * @param keys 键
+     *
+     * @return 键值对，按键的顺序，不存在的键不包含在内
+     *
+     * @since 1.0.7
+     */
+    public Map<String, V> getAll(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        Map<String, V> values = new LinkedHashMap<>(keyList.size() * 4 / 3 + 1);
+        if (keyList.isEmpty()) {
+            return values;
+        }
+        List<V> results = redisTemplate.opsForValue().multiGet(keyList);
+        for (int i = 0; i < keyList.size() && Objects.nonNull(results) && i < results.size(); i++) {
+            if (Objects.nonNull(results.get(i))) {
+                values.put(keyList.get(i), results.get(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 使用 MSET 一次设置多个键
+     *
+     * @param values 键值对
+     *
+     * @since 1.0.7
+     */
+    public void setAll(Map<String, ? extends V> values) {
+        if (!values.isEmpty()) {
+            redisTemplate.opsForValue().multiSet(values);
+        }
+    }
+
+    /**
+     * 立即执行排队中的操作
+     *
+     * @return {@link CompletableFuture}，执行完成后结束
+     *
+     * @since 1.0.7
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(this::drain, executor);
+    }
+
+    /**
+     * 执行排队中的操作并停止后台线程
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        flush().join();
+        executor.shutdown();
+    }
+
+    private CompletableFuture<Object> enqueue(Operation<V> operation) {
+        queue.offer(operation);
+        // 只在排队的操作数刚达到批量大小时立即执行，超出的操作由这次执行或者时间窗口后的执行处理
+        if (queued.incrementAndGet() == maxBatchSize) {
+            executor.execute(this::drain);
+        } else if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::drain, windowMicros, TimeUnit.MICROSECONDS);
+        }
+        return operation.future;
+    }
+
+    /**
+     * 分批执行所有排队中的操作
+     *
+     * @since 1.0.7
+     */
+    private void drain() {
+        scheduled.set(false);
+        List<Operation<V>> batch = new ArrayList<>(maxBatchSize);
+        Operation<V> operation;
+        while ((operation = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(operation);
+            if (batch.size() >= maxBatchSize) {
+                execute(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            execute(batch);
+        }
+    }
+
+    /**
+     * 在一个管道中执行一批操作
+     *
+     * @param batch 操作
+     *
+     * @since 1.0.7
+     */
+    @SuppressWarnings("unchecked")
+    private void execute(List<Operation<V>> batch) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<V> valueSerializer = (RedisSerializer<V>) redisTemplate.getValueSerializer();
+        List<Object> results;
+        boolean partial = false;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Operation<V> op : batch) {
+                    byte[] key = keySerializer.serialize(op.key);
+                    if (op.type == Operation.GET) {
+                        connection.get(key);
+                    } else if (op.type == Operation.DELETE) {
+                        connection.del(key);
+                    } else if (op.ttlMillis > 0) {
+                        connection.pSetEx(key, op.ttlMillis, valueSerializer.serialize(op.value));
+                    } else {
+                        connection.set(key, valueSerializer.serialize(op.value));
+                    }
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            // 部分操作失败，其他操作的结果仍然有效
+            LOGGER.error("execute redis batch partially failed, message -> " + e.getMessage());
+            results = e.getPipelineResult();
+            partial = true;
+        } catch (Exception e) {
+            LOGGER.error("execute redis batch failed, message -> " + e.getMessage());
+            batch.forEach(op -> op.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Operation<V> op = batch.get(i);
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof Throwable) {
+                op.future.completeExceptionally((Throwable) result);
+            } else if (partial && op.type == Operation.GET && result instanceof byte[]) {
+                // 管道异常中的结果没有被反序列化
+                try {
+                    op.future.complete(valueSerializer.deserialize((byte[]) result));
+                } catch (Exception e) {
+                    op.future.completeExceptionally(e);
+                }
+            } else {
+                op.future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * 排队中的操作
+     *
+     * @since 1.0.7
+     */
+    private static final class Operation<V> {
+
+        private static final int GET = 0;
+
+        private static final int SET = 1;
+
+        private static final int DELETE = 2;
+
+        private final int type;
+
+        private final String key;
+
+        private final V value;
+
+        private final long ttlMillis;
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private Operation(int type, String key, V value, long ttlMillis) {
+            this.type = type;
+            this.key = Preconditions.checkNotNull(key);
+            this.value = value;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis 集群的批量操作，按槽位将键分配到负责的节点，每个节点一个管道，多个节点之间并行执行
+ *
+ * <p>集群中的 MGET 和 MSET 要求所有键在同一个槽位，管道也只能发往一个节点，本类先计算每个键的槽位（支持 {...} 哈希标签），
+ * 再按节点分组，N 个键只需要与每个节点各往返一次</p>
+ *
+ * @param <V> 值类型
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+@ThreadSafe
+public class RedisClusterBatcher<V> implements AutoCloseable {
+
+    /**
+     * 节点客户端
+     *
+     * @since 1.0.7
+     */
+    private final ClusterNodeClient client;
+
+    private final RedisSerializer<String> keySerializer;
+
+    private final RedisSerializer<V> valueSerializer;
+
+    /**
+     * 并行执行各节点管道的线程池
+     *
+     * @since 1.0.7
+     */
+    private final ExecutorService executor;
+
+    /**
+     * 构造函数，使用模板的序列化器，线程数与处理器个数一致
+     *
+     * @param client 节点客户端，如：{@link JedisClusterNodeClient#of(org.springframework.data.redis.connection
+     *         .RedisConnectionFactory)}
+     * @param redisTemplate Redis 模板，如：{@link RedisTemplateUtils#newTemplate(Class)}
+     *
+     * @since 1.0.7
+     */
+    @SuppressWarnings("unchecked")
+    public RedisClusterBatcher(ClusterNodeClient client, RedisTemplate<String, V> redisTemplate) {
+        this(client, (RedisSerializer<String>) redisTemplate.getKeySerializer(),
+                (RedisSerializer<V>) redisTemplate.getValueSerializer(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param client 节点客户端，如：{@link JedisClusterNodeClient#of(org.springframework.data.redis.connection
+     *         .RedisConnectionFactory)}
+     * @param keySerializer 键的序列化器
+     * @param valueSerializer 值的序列化器
+     * @param threads 并行执行的线程数
+     *
+     * @since 1.0.7
+     */
+    public RedisClusterBatcher(ClusterNodeClient client, RedisSerializer<String> keySerializer,
+                               RedisSerializer<V> valueSerializer, int threads) {
+        Preconditions.checkArgument(threads > 0, "threads must be positive");
+        this.client = Preconditions.checkNotNull(client);
+        this.keySerializer = Preconditions.checkNotNull(keySerializer);
+        this.valueSerializer = Preconditions.checkNotNull(valueSerializer);
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("boot-redis-cluster-%d").setDaemon(true).build());
+    }
+
+    /**
+     * 批量获取值
+     *
+     * @param keys 键
+     *
+     * @return 键值对，按键的顺序，不存在的键不包含在内
+     *
+     * @since 1.0.7
+     */
+    public Map<String, V> getAll(Collection<String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        Object[] results = new Object[keyList.size()];
+        execute(keyList, batch -> {
+            List<byte[]> values = client.get(batch.node, batch.keys);
+            for (int i = 0; i < batch.indexes.size() && i < values.size(); i++) {
+                results[batch.indexes.get(i)] = values.get(i);
+            }
+        });
+        Map<String, V> values = new LinkedHashMap<>(keyList.size() * 4 / 3 + 1);
+        for (int i = 0; i < results.length; i++) {
+            V value = Objects.isNull(results[i]) ? null : valueSerializer.deserialize((byte[]) results[i]);
+            if (Objects.nonNull(value)) {
+                values.put(keyList.get(i), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param values 键值对
+     *
+     * @since 1.0.7
+     */
+    public void setAll(Map<String, ? extends V> values) {
+        setAll(values, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量设置值
+     *
+     * @param values 键值对
+     * @param timeout 过期时长，小于等于0时不过期
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public void setAll(Map<String, ? extends V> values, long timeout, TimeUnit unit) {
+        List<String> keyList = new ArrayList<>(values.keySet());
+        List<byte[]> valueList = new ArrayList<>(keyList.size());
+        keyList.forEach(key -> valueList.add(valueSerializer.serialize(values.get(key))));
+        long ttlMillis = unit.toMillis(timeout);
+        execute(keyList, batch -> {
+            List<byte[]> batchValues = new ArrayList<>(batch.indexes.size());
+            batch.indexes.forEach(index -> batchValues.add(valueList.get(index)));
+            client.set(batch.node, batch.keys, batchValues, ttlMillis);
+        });
+    }
+
+    /**
+     * 批量删除键
+     *
+     * @param keys 键
+     *
+     * @since 1.0.7
+     */
+    public void deleteAll(Collection<String> keys) {
+        execute(new ArrayList<>(keys), batch -> client.delete(batch.node, batch.keys));
+    }
+
+    /**
+     * 停止线程池
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * 按节点分组，并行执行每个节点的批次，只有一个节点时在当前线程执行
+     *
+     * @param keys 键
+     * @param action 批次的操作
+     *
+     * @since 1.0.7
+     */
+    private void execute(List<String> keys, Consumer<NodeBatch> action) {
+        Map<String, NodeBatch> batches = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keySerializer.serialize(Preconditions.checkNotNull(keys.get(i)));
+            String node = client.getNode(RedisSlots.slot(key));
+            batches.computeIfAbsent(node, NodeBatch::new).add(i, key);
+        }
+        if (batches.size() == 1) {
+            batches.values().forEach(action);
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size());
+        for (NodeBatch batch : batches.values()) {
+            futures.add(CompletableFuture.runAsync(() -> action.accept(batch), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 一个节点上的批次
+     *
+     * @since 1.0.7
+     */
+    private static final class NodeBatch {
+
+        private final String node;
+
+        /**
+         * 键在原始列表中的下标
+         *
+         * @since 1.0.7
+         */
+        private final List<Integer> indexes = new ArrayList<>();
+
+        private final List<byte[]> keys = new ArrayList<>();
+
+        private NodeBatch(String node) {
+            this.node = node;
+        }
+
+        private void add(int index, byte[] key) {
+            indexes.add(index);
+            keys.add(key);
+        }
+    }
+}
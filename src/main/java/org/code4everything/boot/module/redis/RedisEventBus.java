@@ -0,0 +1,264 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.base.collection.RingBuffer;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis Streams 的异步事件总线，发布事件时只写入本地的有界队列 {@link RingBuffer}，由后台线程批量地在一个管道中执行
+ * XADD，请求线程不等待 Redis
+ *
+ * <p>队列已满或者 Redis 不可用时丢弃事件，可以通过 {@link #getDroppedCount()}查看丢弃的事件数。事件使用模板的值序列化器序列化，
+ * 保存在消息的 {@link #FIELD}字段中。通过 {@link #subscribe(String, String, Consumer)}以消费组的方式消费事件，
+ * 同一个消费组中的每个事件只会被一个消费者处理</p>
+ *
+ * <p>注意：Spring Data Redis 2.1 还没有 Streams 的接口，这里直接执行 Redis 命令，需要 Redis 5.0 及以上版本</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+@ThreadSafe
+public class RedisEventBus<V> implements AutoCloseable {
+
+    /**
+     * 消息中保存事件的字段
+     *
+     * @since 1.0.7
+     */
+    public static final String FIELD = "v";
+
+    private static final Logger LOGGER = Logger.getLogger(RedisEventBus.class);
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final long DEFAULT_MAX_LENGTH = 100000;
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final byte[] XADD_MAXLEN = "MAXLEN".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] XADD_APPROXIMATE = "~".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] XADD_AUTO_ID = "*".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] XADD_FIELD = FIELD.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, V> redisTemplate;
+
+    private final String stream;
+
+    /**
+     * 事件队列
+     *
+     * @since 1.0.7
+     */
+    private final RingBuffer<V> buffer;
+
+    /**
+     * 每批最多发布的事件数
+     *
+     * @since 1.0.7
+     */
+    private final int batchSize;
+
+    /**
+     * 流的近似最大长度，超过后裁剪最早的消息，小于等于0时不裁剪
+     *
+     * @since 1.0.7
+     */
+    private final long maxLength;
+
+    /**
+     * 丢弃的事件数
+     *
+     * @since 1.0.7
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread publisher;
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数，队列容量8192，每批最多发布256个事件，流最多保留约100000条消息
+     *
+     * @param redisTemplate 模板，如：{@link RedisFactoryRegistry#getTemplate(String, Class)}
+     * @param stream 流的键
+     *
+     * @since 1.0.7
+     */
+    public RedisEventBus(RedisTemplate<String, V> redisTemplate, String stream) {
+        this(redisTemplate, stream, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate 模板，如：{@link RedisFactoryRegistry#getTemplate(String, Class)}
+     * @param stream 流的键
+     * @param capacity 队列容量，会向上取整为2的幂
+     * @param batchSize 每批最多发布的事件数
+     * @param maxLength 流的近似最大长度，小于等于0时不裁剪
+     *
+     * @since 1.0.7
+     */
+    public RedisEventBus(RedisTemplate<String, V> redisTemplate, String stream, int capacity, int batchSize,
+                         long maxLength) {
+        Preconditions.checkArgument(batchSize > 0, "batch size must be positive");
+        this.redisTemplate = Preconditions.checkNotNull(redisTemplate);
+        this.stream = Preconditions.checkNotNull(stream);
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.maxLength = maxLength;
+        this.publisher = new Thread(this::publishLoop, "boot-redis-event-bus");
+        this.publisher.setDaemon(true);
+        this.publisher.start();
+    }
+
+    /**
+     * 发布事件，不会阻塞
+     *
+     * @param event 事件
+     *
+     * @return 是否写入队列，队列已满或者已关闭时返回false
+     *
+     * @since 1.0.7
+     */
+    public boolean publish(V event) {
+        if (Objects.isNull(event)) {
+            return false;
+        }
+        if (running && buffer.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * 以消费组的方式订阅事件，每批最多100个事件，最多阻塞等待1秒
+     *
+     * @param group 消费组，不存在时从最新的消息开始消费
+     * @param consumer 消费者名称，同一个消费组内唯一，如：主机名
+     * @param handler 事件处理器，正常返回后确认这批事件
+     *
+     * @return 已启动的 {@link RedisEventConsumer}
+     *
+     * @since 1.0.7
+     */
+    public RedisEventConsumer<V> subscribe(String group, String consumer, Consumer<List<V>> handler) {
+        return new RedisEventConsumer<>(redisTemplate, stream, group, consumer, handler);
+    }
+
+    /**
+     * 获取丢弃的事件数
+     *
+     * @return 丢弃的事件数
+     *
+     * @since 1.0.7
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 获取队列中等待发布的事件数
+     *
+     * @return 事件数
+     *
+     * @since 1.0.7
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 停止接收事件，并发布队列中剩余的事件
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(publisher);
+        try {
+            publisher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publishLoop() {
+        List<V> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            buffer.drain(batch::add, batchSize);
+            if (batch.isEmpty()) {
+                if (running) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                continue;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 在一个管道中发布一批事件，部分命令失败时只有失败的事件计入丢弃数
+     *
+     * @param batch 事件
+     *
+     * @since 1.0.7
+     */
+    @SuppressWarnings("unchecked")
+    void flush(List<V> batch) {
+        byte[] key = ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(stream);
+        RedisSerializer<V> valueSerializer = (RedisSerializer<V>) redisTemplate.getValueSerializer();
+        byte[] length = String.valueOf(maxLength).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (V event : batch) {
+                    byte[] value = valueSerializer.serialize(event);
+                    if (maxLength > 0) {
+                        connection.execute("XADD", key, XADD_MAXLEN, XADD_APPROXIMATE, length, XADD_AUTO_ID,
+                                XADD_FIELD, value);
+                    } else {
+                        connection.execute("XADD", key, XADD_AUTO_ID, XADD_FIELD, value);
+                    }
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            List<Object> results = e.getPipelineResult();
+            // 没有返回结果的命令视为失败
+            long failed = Math.max(0, batch.size() - results.size());
+            for (Object result : results) {
+                if (result instanceof Throwable) {
+                    failed++;
+                }
+            }
+            LOGGER.error("publish " + failed + " of " + batch.size() + " events to stream '" + stream + "' failed, "
+                    + "message -> " + e.getMessage());
+            dropped.add(failed);
+        } catch (Exception e) {
+            LOGGER.error("publish events to stream '" + stream + "' failed, message -> " + e.getMessage());
+            dropped.add(batch.size());
+        }
+    }
+}
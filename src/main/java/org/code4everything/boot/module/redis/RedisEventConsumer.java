@@ -0,0 +1,300 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link RedisEventBus}的消费者，在后台线程中通过 XREADGROUP 批量读取事件，处理成功后使用一条 XACK 确认整批事件
+ *
+ * <p>启动时先处理当前消费者未确认的事件，再读取新的事件。处理失败的事件不会被确认，等待一段时间后（从100毫秒开始倍增，最长30秒）
+ * 从待确认列表中重新读取并处理，直到处理成功，因此事件至少被处理一次，事件处理器应该是幂等的，无法处理的事件需要在处理器中自行跳过。
+ * 待确认的事件只会被原来的消费者重新处理，请使用稳定的消费者名称（如：主机名），使重启后的消费者可以继续处理</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class RedisEventConsumer<V> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisEventConsumer.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final long DEFAULT_BLOCK_MILLIS = 1000;
+
+    private static final long MIN_BACKOFF_MILLIS = 100;
+
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final byte[] PENDING_ID = "0".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] NEW_ID = ">".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, V> redisTemplate;
+
+    private final String stream;
+
+    private final String group;
+
+    private final String consumer;
+
+    private final Consumer<List<V>> handler;
+
+    /**
+     * 每批最多读取的事件数
+     *
+     * @since 1.0.7
+     */
+    private final int batchSize;
+
+    /**
+     * 没有新事件时最多阻塞等待的时长（毫秒），应小于连接的读超时
+     *
+     * @since 1.0.7
+     */
+    private final long blockMillis;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数，每批最多100个事件，最多阻塞等待1秒
+     *
+     * @param redisTemplate 模板，值序列化器与发布时一致
+     * @param stream 流的键
+     * @param group 消费组，不存在时从最新的消息开始消费
+     * @param consumer 消费者名称，同一个消费组内唯一
+     * @param handler 事件处理器，正常返回后确认这批事件
+     *
+     * @since 1.0.7
+     */
+    public RedisEventConsumer(RedisTemplate<String, V> redisTemplate, String stream, String group, String consumer,
+                              Consumer<List<V>> handler) {
+        this(redisTemplate, stream, group, consumer, handler, DEFAULT_BATCH_SIZE, DEFAULT_BLOCK_MILLIS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param redisTemplate 模板，值序列化器与发布时一致
+     * @param stream 流的键
+     * @param group 消费组，不存在时从最新的消息开始消费
+     * @param consumer 消费者名称，同一个消费组内唯一
+     * @param handler 事件处理器，正常返回后确认这批事件
+     * @param batchSize 每批最多读取的事件数
+     * @param blockMillis 没有新事件时最多阻塞等待的时长（毫秒），应小于连接的读超时
+     *
+     * @since 1.0.7
+     */
+    public RedisEventConsumer(RedisTemplate<String, V> redisTemplate, String stream, String group, String consumer,
+                              Consumer<List<V>> handler, int batchSize, long blockMillis) {
+        Preconditions.checkArgument(batchSize > 0 && blockMillis > 0, "batch size and block time must be positive");
+        this.redisTemplate = Preconditions.checkNotNull(redisTemplate);
+        this.stream = Preconditions.checkNotNull(stream);
+        this.group = Preconditions.checkNotNull(group);
+        this.consumer = Preconditions.checkNotNull(consumer);
+        this.handler = Preconditions.checkNotNull(handler);
+        this.batchSize = batchSize;
+        this.blockMillis = blockMillis;
+        this.worker = new Thread(this::consumeLoop, "boot-redis-event-" + group);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 停止消费，等待正在处理的事件处理完成
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(blockMillis + TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consumeLoop() {
+        boolean groupCreated = false;
+        // 先处理未确认的事件，处理失败后也从未确认的事件开始重试
+        boolean recovering = true;
+        long backoff = MIN_BACKOFF_MILLIS;
+        List<String> ids = new ArrayList<>(batchSize);
+        List<V> events = new ArrayList<>(batchSize);
+        while (running) {
+            ids.clear();
+            events.clear();
+            try {
+                if (!groupCreated) {
+                    createGroup();
+                    groupCreated = true;
+                }
+                read(recovering ? PENDING_ID : NEW_ID, ids, events);
+            } catch (Exception e) {
+                LOGGER.error("read events from stream '" + stream + "' failed, message -> " + e.getMessage());
+                backoff = sleep(backoff);
+                continue;
+            }
+            if (ids.isEmpty()) {
+                recovering = false;
+                backoff = MIN_BACKOFF_MILLIS;
+                continue;
+            }
+            try {
+                if (!events.isEmpty()) {
+                    handler.accept(events);
+                }
+                ack(ids);
+                backoff = MIN_BACKOFF_MILLIS;
+            } catch (Exception e) {
+                LOGGER.error("handle events from stream '" + stream + "' failed, retry after " + backoff
+                        + "ms, message -> " + e.getMessage());
+                recovering = true;
+                backoff = sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * 创建消费组，流不存在时一并创建
+     *
+     * @since 1.0.7
+     */
+    private void createGroup() {
+        byte[] key = serializeKey();
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XGROUP", bytes("CREATE"),
+                    key, bytes(group), bytes("$"), bytes("MKSTREAM")));
+        } catch (Exception e) {
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP") && !hasBusyGroupCause(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private void read(byte[] id, List<String> ids, List<V> events) {
+        List<byte[]> args = new ArrayList<>(Arrays.asList(bytes("GROUP"), bytes(group), bytes(consumer),
+                bytes("COUNT"), bytes(String.valueOf(batchSize))));
+        if (id != PENDING_ID) {
+            // 读取待确认的事件时不需要阻塞
+            args.add(bytes("BLOCK"));
+            args.add(bytes(String.valueOf(blockMillis)));
+        }
+        args.add(bytes("STREAMS"));
+        args.add(serializeKey());
+        args.add(id);
+        byte[][] command = args.toArray(new byte[0][]);
+        Object reply = redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XREADGROUP",
+                command));
+        parse(reply, valueSerializer(), ids, events);
+    }
+
+    private void ack(List<String> ids) {
+        byte[][] args = new byte[ids.size() + 2][];
+        args[0] = serializeKey();
+        args[1] = bytes(group);
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 2] = bytes(ids.get(i));
+        }
+        redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XACK", args));
+    }
+
+    /**
+     * 解析 XREADGROUP 的响应：[[流, [[消息编号, [字段, 值, ...]], ...]], ...]
+     *
+     * @param reply 响应，没有消息时为NULL
+     * @param serializer 值序列化器
+     * @param ids 消息编号
+     * @param events 事件，消息中没有 {@link RedisEventBus#FIELD}字段或者已被删除时跳过，但仍然会确认
+     *
+     * @since 1.0.7
+     */
+    static <V> void parse(Object reply, RedisSerializer<V> serializer, List<String> ids, List<V> events) {
+        if (!(reply instanceof List)) {
+            return;
+        }
+        for (Object streamReply : (List<?>) reply) {
+            List<?> streamEntries = (List<?>) streamReply;
+            if (streamEntries.size() < 2 || !(streamEntries.get(1) instanceof List)) {
+                continue;
+            }
+            for (Object entry : (List<?>) streamEntries.get(1)) {
+                List<?> message = (List<?>) entry;
+                ids.add(string(message.get(0)));
+                Object fields = message.size() > 1 ? message.get(1) : null;
+                if (!(fields instanceof List)) {
+                    continue;
+                }
+                List<?> values = (List<?>) fields;
+                for (int i = 0; i + 1 < values.size(); i += 2) {
+                    if (RedisEventBus.FIELD.equals(string(values.get(i)))) {
+                        V event = serializer.deserialize((byte[]) values.get(i + 1));
+                        if (Objects.nonNull(event)) {
+                            events.add(event);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeKey() {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(stream);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<V> valueSerializer() {
+        return (RedisSerializer<V>) redisTemplate.getValueSerializer();
+    }
+
+    /**
+     * 等待后重试
+     *
+     * @param backoff 等待时长（毫秒）
+     *
+     * @return 下一次的等待时长
+     *
+     * @since 1.0.7
+     */
+    private long sleep(long backoff) {
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+
+    private static boolean hasBusyGroupCause(Throwable e) {
+        for (Throwable cause = e.getCause(); Objects.nonNull(cause); cause = cause.getCause()) {
+            if (String.valueOf(cause.getMessage()).contains("BUSYGROUP")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,332 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.bean.RedisPoolBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 命名的 Redis 连接工厂，可以将缓存、会话、限流计数等不同用途的数据分散到不同的 Redis 实例或数据库
+ *
+ * <p>名称为 {@link #DEFAULT_NAME}的连接工厂就是 {@link RedisTemplateUtils#getRedisConnectionFactory()}。
+ * 通过 {@link #addRoute(String, String)}可以按键的前缀选择连接工厂，匹配多个前缀时使用最长的前缀，都不匹配时使用默认的连接工厂</p>
+ *
+ * <p>注册、销毁连接工厂和创建模板都在这个类的锁中进行，替换连接工厂后不会再有模板绑定旧的连接工厂</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class RedisFactoryRegistry {
+
+    /**
+     * 默认连接工厂的名称
+     *
+     * @since 1.0.7
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    private static final Logger LOGGER = Logger.getLogger(RedisFactoryRegistry.class);
+
+    private static final Map<String, RedisConnectionFactory> FACTORIES = new ConcurrentHashMap<>();
+
+    /**
+     * 每个连接工厂、每种值类型一个模板
+     *
+     * @since 1.0.7
+     */
+    private static final Map<String, RedisTemplate<String, ?>> TEMPLATES = new ConcurrentHashMap<>();
+
+    /**
+     * 路由，按前缀长度倒序排列，写时复制
+     *
+     * @since 1.0.7
+     */
+    private static volatile List<Route> routes = Collections.emptyList();
+
+    private RedisFactoryRegistry() {}
+
+    /**
+     * 注册连接工厂，同名的连接工厂将被替换并销毁（仍被其他名称或默认连接池使用时不会销毁）
+     *
+     * @param name 名称
+     * @param factory 连接工厂
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void register(String name, RedisConnectionFactory factory) {
+        Preconditions.checkNotNull(name);
+        RedisConnectionFactory old = FACTORIES.put(name, Preconditions.checkNotNull(factory));
+        removeTemplates(name);
+        if (old != factory) {
+            destroyUnused(name, old);
+        }
+    }
+
+    /**
+     * 创建并注册连接工厂
+     *
+     * @param name 名称
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void register(String name, RedisPoolBean poolBean) {
+        register(name, RedisTemplateUtils.newConnectionFactory(poolBean));
+    }
+
+    /**
+     * 获取连接工厂
+     *
+     * @param name 名称
+     *
+     * @return 连接工厂，名称为 {@link #DEFAULT_NAME}且没有注册时返回 {@link RedisTemplateUtils#getRedisConnectionFactory()}
+     *
+     * @since 1.0.7
+     */
+    public static RedisConnectionFactory get(String name) {
+        RedisConnectionFactory factory = FACTORIES.get(name);
+        if (Objects.isNull(factory) && DEFAULT_NAME.equals(name)) {
+            return RedisTemplateUtils.getRedisConnectionFactory();
+        }
+        Preconditions.checkArgument(Objects.nonNull(factory), "redis connection factory '%s' not found", name);
+        return factory;
+    }
+
+    /**
+     * 获取已注册的名称
+     *
+     * @return 名称
+     *
+     * @since 1.0.7
+     */
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(FACTORIES.keySet()));
+    }
+
+    /**
+     * 添加路由，键以前缀开头时使用指定的连接工厂
+     *
+     * @param prefix 键的前缀，如：session:
+     * @param name 连接工厂的名称
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void addRoute(String prefix, String name) {
+        Preconditions.checkNotNull(prefix);
+        Preconditions.checkNotNull(name);
+        List<Route> newRoutes = new ArrayList<>(routes);
+        newRoutes.removeIf(route -> route.prefix.equals(prefix));
+        newRoutes.add(new Route(prefix, name));
+        newRoutes.sort(Comparator.comparingInt((Route route) -> route.prefix.length()).reversed());
+        routes = newRoutes;
+    }
+
+    /**
+     * 删除路由
+     *
+     * @param prefix 键的前缀
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void removeRoute(String prefix) {
+        List<Route> newRoutes = new ArrayList<>(routes);
+        newRoutes.removeIf(route -> route.prefix.equals(prefix));
+        routes = newRoutes;
+    }
+
+    /**
+     * 按键的前缀选择连接工厂的名称
+     *
+     * @param key 键
+     *
+     * @return 名称，都不匹配时返回 {@link #DEFAULT_NAME}
+     *
+     * @since 1.0.7
+     */
+    public static String route(String key) {
+        for (Route route : routes) {
+            if (key.startsWith(route.prefix)) {
+                return route.name;
+            }
+        }
+        return DEFAULT_NAME;
+    }
+
+    /**
+     * 获取指定名称的模板，同一个名称和值类型返回同一个模板
+     *
+     * @param <V> 值类型
+     * @param name 连接工厂的名称
+     * @param type 值类型
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> RedisTemplate<String, V> getTemplate(String name, Class<V> type) {
+        String templateKey = name + '#' + type.getName();
+        RedisTemplate<String, V> template = (RedisTemplate<String, V>) TEMPLATES.get(templateKey);
+        if (Objects.nonNull(template)) {
+            return template;
+        }
+        // 在锁中创建，避免注册或销毁后仍保存了绑定旧连接工厂的模板
+        synchronized (RedisFactoryRegistry.class) {
+            return (RedisTemplate<String, V>) TEMPLATES.computeIfAbsent(templateKey, k -> {
+                RedisTemplate<String, V> redisTemplate = RedisTemplateUtils.newTemplate(get(name), String.class, type);
+                redisTemplate.afterPropertiesSet();
+                return redisTemplate;
+            });
+        }
+    }
+
+    /**
+     * 按键的前缀获取模板，见 {@link #route(String)}
+     *
+     * @param <V> 值类型
+     * @param key 键
+     * @param type 值类型
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    public static <V> RedisTemplate<String, V> routeTemplate(String key, Class<V> type) {
+        return getTemplate(route(key), type);
+    }
+
+    /**
+     * 检查所有连接工厂（包括默认的连接工厂）是否可用
+     *
+     * @return 检查结果，按名称排序
+     *
+     * @since 1.0.7
+     */
+    public static List<RedisHealth> checkHealth() {
+        Set<String> names = new TreeSet<>(FACTORIES.keySet());
+        names.add(DEFAULT_NAME);
+        List<RedisHealth> healths = new ArrayList<>(names.size());
+        names.forEach(name -> healths.add(checkHealth(name)));
+        return healths;
+    }
+
+    /**
+     * 检查连接工厂是否可用，获取一个连接并执行 PING
+     *
+     * @param name 名称
+     *
+     * @return 检查结果
+     *
+     * @since 1.0.7
+     */
+    public static RedisHealth checkHealth(String name) {
+        RedisHealth health = new RedisHealth().setName(name);
+        long start = System.nanoTime();
+        try {
+            RedisConnection connection = get(name).getConnection();
+            try {
+                connection.ping();
+                health.setUp(true);
+            } finally {
+                connection.close();
+            }
+        } catch (Exception e) {
+            health.setUp(false).setMessage(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        return health.setLatencyMicros((System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * 注销并销毁连接工厂，同时删除指向它的路由，连接工厂仍被其他名称或默认连接池使用时不会销毁
+     *
+     * @param name 名称
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void destroy(String name) {
+        RedisConnectionFactory factory = FACTORIES.remove(name);
+        removeTemplates(name);
+        List<Route> newRoutes = new ArrayList<>(routes);
+        newRoutes.removeIf(route -> route.name.equals(name));
+        routes = newRoutes;
+        destroyUnused(name, factory);
+    }
+
+    /**
+     * 注销并销毁所有连接工厂，不包括 {@link RedisTemplateUtils}中的默认连接工厂
+     *
+     * @since 1.0.7
+     */
+    public static synchronized void destroyAll() {
+        new ArrayList<>(FACTORIES.keySet()).forEach(RedisFactoryRegistry::destroy);
+    }
+
+    /**
+     * 移除绑定了 {@link RedisTemplateUtils}默认连接池的模板，默认连接池变更时调用，显式注册了默认连接池时不受影响
+     *
+     * @since 1.0.7
+     */
+    static synchronized void removeDefaultTemplates() {
+        if (!FACTORIES.containsKey(DEFAULT_NAME)) {
+            removeTemplates(DEFAULT_NAME);
+        }
+    }
+
+    /**
+     * 销毁不再使用的连接工厂，仍被注册或者仍是 {@link RedisTemplateUtils}的默认连接池时不会销毁
+     *
+     * @param name 名称，用于日志
+     * @param factory 连接工厂
+     *
+     * @since 1.0.7
+     */
+    static synchronized void destroyUnused(String name, RedisConnectionFactory factory) {
+        if (!(factory instanceof DisposableBean) || factory == RedisTemplateUtils.peekRedisConnectionFactory()) {
+            return;
+        }
+        for (RedisConnectionFactory registered : FACTORIES.values()) {
+            if (registered == factory) {
+                return;
+            }
+        }
+        try {
+            ((DisposableBean) factory).destroy();
+        } catch (Exception e) {
+            LOGGER.error("destroy redis connection factory '" + name + "' failed, message -> " + e.getMessage());
+        }
+    }
+
+    private static void removeTemplates(String name) {
+        TEMPLATES.keySet().removeIf(key -> key.startsWith(name + '#'));
+    }
+
+    /**
+     * 前缀路由
+     *
+     * @since 1.0.7
+     */
+    private static final class Route {
+
+        private final String prefix;
+
+        private final String name;
+
+        private Route(String prefix, String name) {
+            this.prefix = prefix;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.code4everything.boot.module.redis;
+
+import org.code4everything.boot.bean.BaseBean;
+
+/**
+ * Redis 连接工厂的健康检查结果
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class RedisHealth implements BaseBean {
+
+    /**
+     * 连接工厂的名称
+     *
+     * @since 1.0.7
+     */
+    private String name;
+
+    /**
+     * 是否可用
+     *
+     * @since 1.0.7
+     */
+    private boolean up;
+
+    /**
+     * PING 的耗时（微秒）
+     *
+     * @since 1.0.7
+     */
+    private long latencyMicros;
+
+    /**
+     * 不可用的原因，可用时为NULL
+     *
+     * @since 1.0.7
+     */
+    private String message;
+
+    /**
+     * 获取连接工厂的名称
+     *
+     * @return 连接工厂的名称
+     *
+     * @since 1.0.7
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 设置连接工厂的名称
+     *
+     * @param name 连接工厂的名称
+     *
+     * @return {@link RedisHealth}
+     *
+     * @since 1.0.7
+     */
+    public RedisHealth setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * 获取是否可用
+     *
+     * @return 是否可用
+     *
+     * @since 1.0.7
+     */
+    public boolean isUp() {
+        return up;
+    }
+
+    /**
+     * 设置是否可用
+     *
+     * @param up 是否可用
+     *
+     * @return {@link RedisHealth}
+     *
+     * @since 1.0.7
+     */
+    public RedisHealth setUp(boolean up) {
+        this.up = up;
+        return this;
+    }
+
+    /**
+     * 获取PING 的耗时（微秒）
+     *
+     * @return PING 的耗时（微秒）
+     *
+     * @since 1.0.7
+     */
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * 设置PING 的耗时（微秒）
+     *
+     * @param latencyMicros PING 的耗时（微秒）
+     *
+     * @return {@link RedisHealth}
+     *
+     * @since 1.0.7
+     */
+    public RedisHealth setLatencyMicros(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+        return this;
+    }
+
+    /**
+     * 获取不可用的原因
+     *
+     * @return 不可用的原因
+     *
+     * @since 1.0.7
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 设置不可用的原因
+     *
+     * @param message 不可用的原因，可用时为NULL
+     *
+     * @return {@link RedisHealth}
+     *
+     * @since 1.0.7
+     */
+    public RedisHealth setMessage(String message) {
+        this.message = message;
+        return this;
+    }
+}
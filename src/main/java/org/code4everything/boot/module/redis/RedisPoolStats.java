@@ -0,0 +1,236 @@
+package org.code4everything.boot.module.redis;
+
+import org.code4everything.boot.bean.BaseBean;
+
+/**
+ * Redis 连接池的使用情况快照，等待连接的线程数大于0时说明连接池已耗尽
+ *
+ * @author pantao
+ * @since 2019/1/29
+ **/
+public class RedisPoolStats implements BaseBean {
+
+    /**
+     * 使用中的连接数
+     *
+     * @since 1.0.7
+     */
+    private int active;
+
+    /**
+     * 空闲的连接数
+     *
+     * @since 1.0.7
+     */
+    private int idle;
+
+    /**
+     * 等待连接的线程数
+     *
+     * @since 1.0.7
+     */
+    private int waiters;
+
+    /**
+     * 最大连接数
+     *
+     * @since 1.0.7
+     */
+    private int maxTotal;
+
+    /**
+     * 使用率，使用中的连接数与最大连接数之比
+     *
+     * @since 1.0.7
+     */
+    private double utilization;
+
+    /**
+     * 获取连接的平均等待时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private long meanBorrowWaitMillis;
+
+    /**
+     * 获取连接的最长等待时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private long maxBorrowWaitMillis;
+
+    /**
+     * 获取使用中的连接数
+     *
+     * @return 使用中的连接数
+     *
+     * @since 1.0.7
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * 设置使用中的连接数
+     *
+     * @param active 使用中的连接数
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setActive(int active) {
+        this.active = active;
+        return this;
+    }
+
+    /**
+     * 获取空闲的连接数
+     *
+     * @return 空闲的连接数
+     *
+     * @since 1.0.7
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * 设置空闲的连接数
+     *
+     * @param idle 空闲的连接数
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setIdle(int idle) {
+        this.idle = idle;
+        return this;
+    }
+
+    /**
+     * 获取等待连接的线程数
+     *
+     * @return 等待连接的线程数
+     *
+     * @since 1.0.7
+     */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    /**
+     * 设置等待连接的线程数
+     *
+     * @param waiters 等待连接的线程数
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setWaiters(int waiters) {
+        this.waiters = waiters;
+        return this;
+    }
+
+    /**
+     * 获取最大连接数
+     *
+     * @return 最大连接数
+     *
+     * @since 1.0.7
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * 设置最大连接数
+     *
+     * @param maxTotal 最大连接数
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    /**
+     * 获取使用率
+     *
+     * @return 使用率
+     *
+     * @since 1.0.7
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * 设置使用率
+     *
+     * @param utilization 使用率，使用中的连接数与最大连接数之比
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setUtilization(double utilization) {
+        this.utilization = utilization;
+        return this;
+    }
+
+    /**
+     * 获取获取连接的平均等待时间（毫秒）
+     *
+     * @return 获取连接的平均等待时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    public long getMeanBorrowWaitMillis() {
+        return meanBorrowWaitMillis;
+    }
+
+    /**
+     * 设置获取连接的平均等待时间（毫秒）
+     *
+     * @param meanBorrowWaitMillis 获取连接的平均等待时间（毫秒）
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setMeanBorrowWaitMillis(long meanBorrowWaitMillis) {
+        this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+        return this;
+    }
+
+    /**
+     * 获取获取连接的最长等待时间（毫秒）
+     *
+     * @return 获取连接的最长等待时间（毫秒）
+     *
+     * @since 1.0.7
+     */
+    public long getMaxBorrowWaitMillis() {
+        return maxBorrowWaitMillis;
+    }
+
+    /**
+     * 设置获取连接的最长等待时间（毫秒）
+     *
+     * @param maxBorrowWaitMillis 获取连接的最长等待时间（毫秒）
+     *
+     * @return {@link RedisPoolStats}
+     *
+     * @since 1.0.7
+     */
+    public RedisPoolStats setMaxBorrowWaitMillis(long maxBorrowWaitMillis) {
+        this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+        return this;
+    }
+}
@@ -0,0 +1,220 @@
+package org.code4everything.boot.module.redis;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的分布式限流器，使用 GCRA（通用信元速率算法）：每个键只保存理论上下一个请求的到达时间，判断和更新在一个 Lua
+ * 脚本中原子地完成，时间以 Redis 服务器为准
+ *
+ * <p>{@link #tryAcquire(String, double, int)}每个请求访问一次 Redis；{@link #tryAcquire(String, double, int, int)}
+ * 一次从 Redis 预取一批令牌在本地消费，令牌用完或者租约到期后才再次访问 Redis，租约时长为生成这批令牌所需的时长，
+ * 因此多个节点合计最多多放行一批令牌；获取不到令牌时，在下一个令牌生成之前直接在本地拒绝。Redis 不可用时放行请求</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+@ThreadSafe
+public class RedisRateLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(RedisRateLimiter.class);
+
+    private static final String KEY_PREFIX = "boot:rate-limit:";
+
+    /**
+     * 参数依次为每个令牌的间隔（微秒）、允许突发的时长（微秒）、请求的令牌数，返回获取到的令牌数，获取不到时返回下一个令牌生成前
+     * 需要等待的时长（微秒）的相反数
+     *
+     * @since 1.0.7
+     */
+    static final RedisScript<Long> GCRA_SCRIPT = new DefaultRedisScript<>(
+            "redis.replicate_commands()\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000000 + tonumber(time[2])\n" +
+            "local interval = tonumber(ARGV[1])\n" +
+            "local tat = tonumber(redis.call('GET', KEYS[1]) or now)\n" +
+            "if tat < now then tat = now end\n" +
+            "local burst = tonumber(ARGV[2])\n" +
+            "local granted = math.min(math.floor((now + burst - tat) / interval), tonumber(ARGV[3]))\n" +
+            "if granted <= 0 then return -math.max(tat + interval - burst - now, 1) end\n" +
+            "tat = tat + granted * interval\n" +
+            "redis.call('SET', KEYS[1], string.format('%d', tat), 'PX', math.ceil((tat - now) / 1000) + 1)\n" +
+            "return granted", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 本地租约，长时间不访问的键自动清除
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, Lease> leases = CacheBuilder.newBuilder().maximumSize(100000).expireAfterAccess(1,
+            TimeUnit.MINUTES).build();
+
+    /**
+     * 构造函数，使用 {@link RedisTemplateUtils#getRedisConnectionFactory()}
+     *
+     * @since 1.0.7
+     */
+    public RedisRateLimiter() {
+        this(RedisTemplateUtils.getRedisConnectionFactory());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param factory 连接工厂，如：{@link RedisFactoryRegistry#get(String)}
+     *
+     * @since 1.0.7
+     */
+    public RedisRateLimiter(RedisConnectionFactory factory) {
+        this.redisTemplate = new StringRedisTemplate(Preconditions.checkNotNull(factory));
+    }
+
+    /**
+     * 尝试获取一个令牌，每次调用都访问 Redis
+     *
+     * @param key 限流的键
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @param burst 允许突发的令牌数
+     *
+     * @return 是否获取成功
+     *
+     * @since 1.0.7
+     */
+    public boolean tryAcquire(String key, double permitsPerSecond, int burst) {
+        return acquire(key, permitsPerSecond, burst, 1) > 0;
+    }
+
+    /**
+     * 尝试获取一个令牌，优先消费本地预取的令牌
+     *
+     * @param key 限流的键
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @param burst 允许突发的令牌数
+     * @param leaseSize 每次预取的令牌数，小于等于1时与 {@link #tryAcquire(String, double, int)}一致
+     *
+     * @return 是否获取成功
+     *
+     * @since 1.0.7
+     */
+    public boolean tryAcquire(String key, double permitsPerSecond, int burst, int leaseSize) {
+        if (leaseSize <= 1) {
+            return tryAcquire(key, permitsPerSecond, burst);
+        }
+        Lease lease;
+        try {
+            lease = leases.get(key, Lease::new);
+        } catch (ExecutionException e) {
+            return tryAcquire(key, permitsPerSecond, burst);
+        }
+        long now = System.nanoTime();
+        boolean refill;
+        synchronized (lease) {
+            if (lease.remaining > 0 && now < lease.expireNanos) {
+                lease.remaining--;
+                return true;
+            }
+            if (now < lease.deniedUntilNanos) {
+                return false;
+            }
+            // 同一时刻只有一个线程预取令牌，其他线程只获取一个令牌，不在持有锁时访问 Redis
+            refill = !lease.refilling;
+            lease.refilling = true;
+        }
+        long result = 0;
+        try {
+            result = evaluate(key, permitsPerSecond, burst, refill ? leaseSize : 1);
+        } finally {
+            synchronized (lease) {
+                if (refill) {
+                    lease.refilling = false;
+                }
+                if (result <= 0) {
+                    lease.deniedUntilNanos = Math.max(lease.deniedUntilNanos, now + TimeUnit.MICROSECONDS.toNanos(
+                            -result));
+                } else if (refill) {
+                    lease.remaining = result - 1;
+                    lease.expireNanos = now + (long) (TimeUnit.SECONDS.toNanos(result) / permitsPerSecond);
+                }
+            }
+        }
+        return result > 0;
+    }
+
+    /**
+     * 尝试获取多个令牌，令牌不足时获取剩余的令牌
+     *
+     * @param key 限流的键
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @param burst 允许突发的令牌数，小于1时等于每秒生成的令牌数
+     * @param permits 请求的令牌数
+     *
+     * @return 获取到的令牌数，Redis 不可用时返回请求的令牌数
+     *
+     * @since 1.0.7
+     */
+    public long acquire(String key, double permitsPerSecond, int burst, int permits) {
+        return Math.max(0, evaluate(key, permitsPerSecond, burst, permits));
+    }
+
+    /**
+     * 执行限流脚本
+     *
+     * @param key 限流的键
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @param burst 允许突发的令牌数，小于1时等于每秒生成的令牌数
+     * @param permits 请求的令牌数
+     *
+     * @return 获取到的令牌数，获取不到时返回下一个令牌生成前需要等待的时长（微秒）的相反数，Redis 不可用时返回请求的令牌数
+     *
+     * @since 1.0.7
+     */
+    long evaluate(String key, double permitsPerSecond, int burst, int permits) {
+        Preconditions.checkArgument(permitsPerSecond > 0 && permits > 0, "permits must be positive");
+        long intervalMicros = Math.max(1, (long) (TimeUnit.SECONDS.toMicros(1) / permitsPerSecond));
+        long burstMicros = intervalMicros * (burst < 1 ? Math.max(1, (long) permitsPerSecond) : burst);
+        try {
+            Long result = redisTemplate.execute(GCRA_SCRIPT, Collections.singletonList(KEY_PREFIX + key),
+                    String.valueOf(intervalMicros), String.valueOf(burstMicros), String.valueOf(permits));
+            return Objects.isNull(result) ? 0 : result;
+        } catch (Exception e) {
+            LOGGER.error("acquire rate limit permits failed, message -> " + e.getMessage());
+            return permits;
+        }
+    }
+
+    /**
+     * 本地预取的令牌
+     *
+     * @since 1.0.7
+     */
+    private static final class Lease {
+
+        private long remaining;
+
+        private long expireNanos;
+
+        /**
+         * 在此之前直接拒绝，不访问 Redis
+         */
+        private long deniedUntilNanos = Long.MIN_VALUE;
+
+        /**
+         * 是否有线程正在预取令牌
+         */
+        private boolean refilling;
+    }
+}
@@ -0,0 +1,116 @@
+package org.code4everything.boot.module.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis 集群的槽位计算，与 Redis 的 CRC16（XMODEM）算法一致，支持 {...} 哈希标签
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class RedisSlots {
+
+    /**
+     * 槽位数
+     *
+     * @since 1.0.7
+     */
+    public static final int SLOT_COUNT = 16384;
+
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < CRC16_TABLE.length; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) == 0 ? crc << 1 : (crc << 1) ^ 0x1021;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private RedisSlots() {}
+
+    /**
+     * 计算键的槽位，键中包含非空的 {...} 时只使用第一个花括号中的内容计算
+     *
+     * @param key 键
+     *
+     * @return 槽位，0至16383
+     *
+     * @since 1.0.7
+     */
+    public static int slot(String key) {
+        return slot(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计算键的槽位，键中包含非空的 {...} 时只使用第一个花括号中的内容计算
+     *
+     * @param key 序列化后的键
+     *
+     * @return 槽位，0至16383
+     *
+     * @since 1.0.7
+     */
+    public static int slot(byte[] key) {
+        int start = 0;
+        int end = key.length;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                for (int j = i + 1; j < key.length; j++) {
+                    if (key[j] == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        return crc16(key, start, end) & (SLOT_COUNT - 1);
+    }
+
+    /**
+     * 计算 CRC16（XMODEM）
+     *
+     * @param bytes 数据
+     * @param start 开始位置（包括）
+     * @param end 结束位置（不包括）
+     *
+     * @return 校验码
+     *
+     * @since 1.0.7
+     */
+    public static int crc16(byte[] bytes, int start, int end) {
+        int crc = 0;
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * 按槽位分组，组内保持键的顺序
+     *
+     * @param keys 键
+     *
+     * @return 槽位与键的映射
+     *
+     * @since 1.0.7
+     */
+    public static Map<Integer, List<String>> groupBySlot(Collection<String> keys) {
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(slot(key), slot -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+}
@@ -2,16 +2,32 @@ package org.code4everything.boot.module.redis;
 
 import cn.hutool.core.lang.Validator;
 import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.support.spring.FastJsonRedisSerializer;
+import com.google.common.base.Preconditions;
 import org.apache.log4j.Logger;
+import org.code4everything.boot.bean.RedisPoolBean;
 import org.code4everything.boot.config.BootConfig;
-import org.code4everything.boot.constant.StringConsts;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.util.Pool;
 
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -24,7 +40,14 @@ public class RedisTemplateUtils {
 
     private static final Logger LOGGER = Logger.getLogger(RedisTemplateUtils.class);
 
-    private static RedisConnectionFactory redisConnectionFactory = null;
+    /**
+     * {@link JedisConnectionFactory}中的连接池字段，用于获取连接池的使用情况
+     *
+     * @since 1.0.7
+     */
+    private static final Field POOL_FIELD = findPoolField();
+
+    private static volatile RedisConnectionFactory redisConnectionFactory = null;
 
     private RedisTemplateUtils() {}
 
@@ -40,14 +63,34 @@ public class RedisTemplateUtils {
     }
 
     /**
-     * 设置连接池
+     * 获取连接池，不会初始化
+     *
+     * @return 连接池，可能为null
+     *
+     * @since 1.0.7
+     */
+    static RedisConnectionFactory peekRedisConnectionFactory() {
+        return redisConnectionFactory;
+    }
+
+    /**
+     * 设置连接池，旧的连接池没有注册到 {@link RedisFactoryRegistry}时将被销毁
      *
      * @param redisConnectionFactory 连接池
      *
      * @since 1.0.0
      */
     public static void setRedisConnectionFactory(RedisConnectionFactory redisConnectionFactory) {
-        RedisTemplateUtils.redisConnectionFactory = redisConnectionFactory;
+        // 与 RedisFactoryRegistry 使用同一个锁，避免并发创建的模板绑定旧的连接池
+        synchronized (RedisFactoryRegistry.class) {
+            RedisConnectionFactory old = RedisTemplateUtils.redisConnectionFactory;
+            RedisTemplateUtils.redisConnectionFactory = redisConnectionFactory;
+            // 默认的模板绑定了旧的连接池
+            RedisFactoryRegistry.removeDefaultTemplates();
+            if (old != redisConnectionFactory) {
+                RedisFactoryRegistry.destroyUnused(RedisFactoryRegistry.DEFAULT_NAME, old);
+            }
+        }
     }
 
     /**
@@ -103,26 +146,224 @@ public class RedisTemplateUtils {
      * @since 1.0.0
      */
     public static void initRedisConnectionFactory(String hostName, Integer port, Integer database) {
-        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration();
-        StringBuilder message = new StringBuilder("connect to redis server on");
+        RedisPoolBean poolBean = new RedisPoolBean();
         if (Validator.isNotEmpty(hostName)) {
-            configuration.setHostName(hostName);
-            message.append(" host -> ").append(hostName).append(" ,");
+            poolBean.setHostName(hostName);
         }
         if (ObjectUtil.isNotNull(port)) {
-            configuration.setPort(port);
-            message.append(" port -> ").append(port).append(" ,");
+            poolBean.setPort(port);
         }
         if (ObjectUtil.isNotNull(database)) {
-            configuration.setDatabase(database);
-            message.append(" database -> ").append(database).append(" ,");
+            poolBean.setDatabase(database);
+        }
+        initRedisConnectionFactory(poolBean);
+    }
+
+    /**
+     * 初始化 Redis 连接池
+     *
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisConnectionFactory(RedisPoolBean poolBean) {
+        setRedisConnectionFactory(newConnectionFactory(poolBean));
+    }
+
+    /**
+     * 创建并初始化 Redis 连接池，配置了预热连接数时会预先建立连接
+     *
+     * @param poolBean 连接池配置 {@link RedisPoolBean}
+     *
+     * @return {@link JedisConnectionFactory}
+     *
+     * @since 1.0.7
+     */
+    public static JedisConnectionFactory newConnectionFactory(RedisPoolBean poolBean) {
+        Preconditions.checkArgument(poolBean.getMaxTotal() > 0, "max total must be positive");
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration();
+        configuration.setHostName(poolBean.getHostName());
+        configuration.setPort(poolBean.getPort());
+        configuration.setDatabase(poolBean.getDatabase());
+        if (Validator.isNotEmpty(poolBean.getPassword())) {
+            configuration.setPassword(RedisPassword.of(poolBean.getPassword()));
         }
-        redisConnectionFactory = new JedisConnectionFactory(configuration);
+        JedisConnectionFactory factory = new JedisConnectionFactory(configuration, newClientConfiguration(poolBean));
+        String server = StrUtil.format("host -> {}, port -> {}, database -> {}", poolBean.getHostName(),
+                poolBean.getPort(), poolBean.getDatabase());
+        return initFactory(factory, poolBean, server);
+    }
+
+    /**
+     * 初始化 Redis 集群连接池
+     *
+     * @param nodes 集群节点，格式为 host:port，不需要包括所有节点
+     * @param poolBean 连接池配置 {@link RedisPoolBean}，每个节点一个连接池，忽略主机、端口和数据库
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisClusterConnectionFactory(Collection<String> nodes, RedisPoolBean poolBean) {
+        setRedisConnectionFactory(newClusterConnectionFactory(nodes, poolBean));
+    }
+
+    /**
+     * 创建并初始化 Redis 集群连接池
+     *
+     * @param nodes 集群节点，格式为 host:port，不需要包括所有节点
+     * @param poolBean 连接池配置 {@link RedisPoolBean}，每个节点一个连接池，忽略主机、端口和数据库
+     *
+     * @return {@link JedisConnectionFactory}，可以通过 {@link JedisClusterNodeClient#of(RedisConnectionFactory)}进行按槽位的批量操作
+     *
+     * @since 1.0.7
+     */
+    public static JedisConnectionFactory newClusterConnectionFactory(Collection<String> nodes, RedisPoolBean poolBean) {
+        Preconditions.checkArgument(poolBean.getMaxTotal() > 0, "max total must be positive");
+        Preconditions.checkArgument(!nodes.isEmpty(), "cluster nodes must not be empty");
+        RedisClusterConfiguration configuration = new RedisClusterConfiguration(nodes);
+        if (Validator.isNotEmpty(poolBean.getPassword())) {
+            configuration.setPassword(RedisPassword.of(poolBean.getPassword()));
+        }
+        JedisConnectionFactory factory = new JedisConnectionFactory(configuration, newClientConfiguration(poolBean));
+        return initFactory(factory, poolBean, "cluster nodes -> " + nodes);
+    }
+
+    /**
+     * 初始化 Redis 哨兵连接池，主节点切换后自动连接新的主节点
+     *
+     * @param master 主节点名称
+     * @param sentinels 哨兵节点，格式为 host:port
+     * @param poolBean 连接池配置 {@link RedisPoolBean}，忽略主机和端口
+     *
+     * @since 1.0.7
+     */
+    public static void initRedisSentinelConnectionFactory(String master, Collection<String> sentinels,
+                                                          RedisPoolBean poolBean) {
+        setRedisConnectionFactory(newSentinelConnectionFactory(master, sentinels, poolBean));
+    }
+
+    /**
+     * 创建并初始化 Redis 哨兵连接池，主节点切换后自动连接新的主节点
+     *
+     * @param master 主节点名称
+     * @param sentinels 哨兵节点，格式为 host:port
+     * @param poolBean 连接池配置 {@link RedisPoolBean}，忽略主机和端口
+     *
+     * @return {@link JedisConnectionFactory}
+     *
+     * @since 1.0.7
+     */
+    public static JedisConnectionFactory newSentinelConnectionFactory(String master, Collection<String> sentinels,
+                                                                      RedisPoolBean poolBean) {
+        Preconditions.checkArgument(poolBean.getMaxTotal() > 0, "max total must be positive");
+        Preconditions.checkArgument(Validator.isNotEmpty(master), "master name must not be empty");
+        Preconditions.checkArgument(!sentinels.isEmpty(), "sentinel nodes must not be empty");
+        RedisSentinelConfiguration configuration = new RedisSentinelConfiguration(master, new HashSet<>(sentinels));
+        configuration.setDatabase(poolBean.getDatabase());
+        if (Validator.isNotEmpty(poolBean.getPassword())) {
+            configuration.setPassword(RedisPassword.of(poolBean.getPassword()));
+        }
+        JedisConnectionFactory factory = new JedisConnectionFactory(configuration, newClientConfiguration(poolBean));
+        String server = StrUtil.format("master -> {}, sentinels -> {}, database -> {}", master, sentinels,
+                poolBean.getDatabase());
+        return initFactory(factory, poolBean, server);
+    }
+
+    private static JedisConnectionFactory initFactory(JedisConnectionFactory factory, RedisPoolBean poolBean,
+                                                      String server) {
+        factory.afterPropertiesSet();
         if (BootConfig.isDebug()) {
-            String msg = message.toString();
-            if (msg.endsWith(StringConsts.Sign.COMMA)) {
-                LOGGER.info(msg.substring(0, msg.length() - 2));
+            LOGGER.info("connect to redis server on " + server);
+        }
+        warmUp(factory, Math.min(poolBean.getWarmUpConnections(), poolBean.getMaxTotal()));
+        return factory;
+    }
+
+    /**
+     * 获取当前连接池的使用情况
+     *
+     * @return {@link RedisPoolStats}，连接池未初始化、不是 Jedis 连接池或者是集群连接池时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static RedisPoolStats getPoolStats() {
+        return getPoolStats(redisConnectionFactory);
+    }
+
+    /**
+     * 获取连接池的使用情况
+     *
+     * @param factory 连接池
+     *
+     * @return {@link RedisPoolStats}，不是 Jedis 连接池时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public static RedisPoolStats getPoolStats(RedisConnectionFactory factory) {
+        if (!(factory instanceof JedisConnectionFactory) || Objects.isNull(POOL_FIELD)) {
+            return null;
+        }
+        JedisConnectionFactory jedisFactory = (JedisConnectionFactory) factory;
+        Pool<?> pool;
+        try {
+            pool = (Pool<?>) POOL_FIELD.get(jedisFactory);
+        } catch (IllegalAccessException | ClassCastException e) {
+            LOGGER.error("get redis pool failed, message -> " + e.getMessage());
+            return null;
+        }
+        if (Objects.isNull(pool)) {
+            // 未使用连接池或者连接池未初始化
+            return null;
+        }
+        int maxTotal = Objects.isNull(jedisFactory.getPoolConfig()) ? 0 : jedisFactory.getPoolConfig().getMaxTotal();
+        int active = pool.getNumActive();
+        RedisPoolStats stats = new RedisPoolStats().setActive(active).setIdle(pool.getNumIdle());
+        stats.setWaiters(pool.getNumWaiters()).setMaxTotal(maxTotal);
+        stats.setUtilization(maxTotal > 0 ? (double) active / maxTotal : 0);
+        stats.setMeanBorrowWaitMillis(pool.getMeanBorrowWaitTimeMillis());
+        return stats.setMaxBorrowWaitMillis(pool.getMaxBorrowWaitTimeMillis());
+    }
+
+    private static JedisClientConfiguration newClientConfiguration(RedisPoolBean poolBean) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(poolBean.getMaxTotal());
+        poolConfig.setMaxIdle(poolBean.getMaxIdle());
+        poolConfig.setMinIdle(poolBean.getMinIdle());
+        poolConfig.setMaxWaitMillis(poolBean.getMaxWaitMillis());
+        RedisPoolBean.ValidationPolicy policy = poolBean.getValidationPolicy();
+        poolConfig.setTestOnBorrow(policy == RedisPoolBean.ValidationPolicy.ON_BORROW);
+        poolConfig.setTestWhileIdle(policy == RedisPoolBean.ValidationPolicy.WHILE_IDLE);
+        JedisClientConfiguration.JedisClientConfigurationBuilder builder = JedisClientConfiguration.builder();
+        builder.connectTimeout(Duration.ofMillis(poolBean.getConnectTimeoutMillis()));
+        builder.readTimeout(Duration.ofMillis(poolBean.getReadTimeoutMillis()));
+        if (Validator.isNotEmpty(poolBean.getClientName())) {
+            builder.clientName(poolBean.getClientName());
+        }
+        return builder.usePooling().poolConfig(poolConfig).build();
+    }
+
+    /**
+     * 预热连接池，同时获取指定数量的连接，使连接池预先建立连接，避免启动后的第一批请求等待建立连接
+     *
+     * @param factory 连接池
+     * @param connections 连接数
+     *
+     * @since 1.0.7
+     */
+    private static void warmUp(RedisConnectionFactory factory, int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        List<RedisConnection> borrowed = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                RedisConnection connection = factory.getConnection();
+                borrowed.add(connection);
+                connection.ping();
             }
+        } catch (Exception e) {
+            LOGGER.error("warm up redis pool failed, message -> " + e.getMessage());
+        } finally {
+            borrowed.forEach(RedisConnection::close);
         }
     }
 
@@ -153,8 +394,41 @@ public class RedisTemplateUtils {
      * @since 1.0.0
      */
     public static <K, V> RedisTemplate<K, V> newTemplate(Class<K> keyType, Class<V> valueType) {
+        return newTemplate(getRedisConnectionFactory(), keyType, valueType);
+    }
+
+    /**
+     * 获取使用指定名称的连接工厂的模板，见 {@link RedisFactoryRegistry}
+     *
+     * @param <V> 值类型
+     * @param name 连接工厂的名称
+     * @param type 值类型
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    public static <V> RedisTemplate<String, V> newNamedTemplate(String name, Class<V> type) {
+        return newTemplate(RedisFactoryRegistry.get(name), String.class, type);
+    }
+
+    /**
+     * 获取使用指定连接工厂的模板
+     *
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @param factory 连接工厂
+     * @param keyType 键类型
+     * @param valueType 值类型
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    public static <K, V> RedisTemplate<K, V> newTemplate(RedisConnectionFactory factory, Class<K> keyType,
+                                                         Class<V> valueType) {
         RedisTemplate<K, V> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(getRedisConnectionFactory());
+        redisTemplate.setConnectionFactory(factory);
         if (ObjectUtil.isNotNull(keyType)) {
             if (keyType == String.class) {
                 redisTemplate.setKeySerializer(new StringRedisSerializer());
@@ -169,6 +443,41 @@ public class RedisTemplateUtils {
     }
 
 
+    /**
+     * 获取使用指定值序列化器的模板，键使用 {@link StringRedisSerializer}
+     *
+     * @param <V> 值类型
+     * @param valueSerializer 值的序列化器，如：{@link BinaryRedisSerializer}
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    public static <V> RedisTemplate<String, V> newTemplateWith(RedisSerializer<V> valueSerializer) {
+        return newTemplateWith(new StringRedisSerializer(), valueSerializer);
+    }
+
+    /**
+     * 获取使用指定序列化器的模板
+     *
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @param keySerializer 键的序列化器
+     * @param valueSerializer 值的序列化器，如：{@link BinaryRedisSerializer}
+     *
+     * @return {@link RedisTemplate}
+     *
+     * @since 1.0.7
+     */
+    public static <K, V> RedisTemplate<K, V> newTemplateWith(RedisSerializer<K> keySerializer,
+                                                             RedisSerializer<V> valueSerializer) {
+        RedisTemplate<K, V> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(getRedisConnectionFactory());
+        redisTemplate.setKeySerializer(keySerializer);
+        redisTemplate.setValueSerializer(valueSerializer);
+        return redisTemplate;
+    }
+
     /**
      * 获取模板
      *
@@ -179,6 +488,17 @@ public class RedisTemplateUtils {
      * @since 1.0.0
      */
     public static <V> RedisTemplate<String, V> newTemplate() {
-        return newTemplate(null);
+        return newTemplate((Class<V>) null);
+    }
+
+    private static Field findPoolField() {
+        try {
+            Field field = JedisConnectionFactory.class.getDeclaredField("pool");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            LOGGER.error("find pool field of jedis connection factory failed, message -> " + e.getMessage());
+            return null;
+        }
     }
 }
@@ -0,0 +1,287 @@
+package org.code4everything.boot.service;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.base.collection.RingBuffer;
+import org.code4everything.boot.bean.LogBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志服务，日志先写入有界无锁队列 {@link RingBuffer}，由后台线程批量调用 {@link LogService#saveBatch(List)}保存，请求线程不再等待日志写入数据库
+ *
+ * <p>注意：{@link #save(Object)}和 {@link #saveException(Object, Throwable)}直接返回传入的日志，而不是被装饰的日志服务的返回值</p>
+ *
+ * @author pantao
+ * @since 2019/1/26
+ **/
+public class AsyncLogService<T> implements LogService<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogService.class);
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int DEFAULT_SAMPLE_INTERVAL = 10;
+
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 队列已满时的处理策略
+     *
+     * @since 1.0.7
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 阻塞请求线程直到队列有空位
+         */
+        BLOCK,
+
+        /**
+         * 丢弃日志
+         */
+        DROP,
+
+        /**
+         * 队列使用过半时按间隔采样，只保留部分日志，异常日志不参与采样，队列已满时丢弃
+         */
+        SAMPLE
+    }
+
+    /**
+     * 被装饰的日志服务
+     *
+     * @since 1.0.7
+     */
+    private final LogService<T> logService;
+
+    /**
+     * 日志队列
+     *
+     * @since 1.0.7
+     */
+    private final RingBuffer<Entry<T>> buffer;
+
+    /**
+     * 每批最多保存的日志条数
+     *
+     * @since 1.0.7
+     */
+    private final int batchSize;
+
+    /**
+     * 队列已满时的处理策略
+     *
+     * @since 1.0.7
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * 采样间隔，每隔多少条日志保留一条
+     *
+     * @since 1.0.7
+     */
+    private final int sampleInterval;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    /**
+     * 丢弃的日志条数
+     *
+     * @since 1.0.7
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+
+    /**
+     * 构造函数，队列容量8192，每批最多保存256条日志，队列已满时丢弃日志
+     *
+     * @param logService 被装饰的日志服务
+     *
+     * @since 1.0.7
+     */
+    public AsyncLogService(LogService<T> logService) {
+        this(logService, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param logService 被装饰的日志服务
+     * @param capacity 队列容量，会向上取整为2的幂
+     * @param batchSize 每批最多保存的日志条数
+     * @param policy 队列已满时的处理策略
+     * @param sampleInterval 采样间隔，仅在 {@link OverflowPolicy#SAMPLE}策略下有效
+     *
+     * @since 1.0.7
+     */
+    public AsyncLogService(LogService<T> logService, int capacity, int batchSize, OverflowPolicy policy,
+                           int sampleInterval) {
+        Preconditions.checkArgument(batchSize > 0 && sampleInterval > 0, "batch size and interval must be positive");
+        this.logService = Preconditions.checkNotNull(logService);
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.policy = Preconditions.checkNotNull(policy);
+        this.sampleInterval = sampleInterval;
+        this.consumer = new Thread(this::consume, "boot-async-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public T save(T log) {
+        enqueue(log, null);
+        return log;
+    }
+
+    @Override
+    public void saveBatch(List<T> logs) {
+        logs.forEach(log -> enqueue(log, null));
+    }
+
+    @Override
+    public T saveException(T log, Throwable throwable) {
+        enqueue(log, throwable);
+        return log;
+    }
+
+    @Override
+    public T getLog(LogBean logBean) {
+        return logService.getLog(logBean);
+    }
+
+    /**
+     * 获取丢弃的日志条数
+     *
+     * @return 丢弃的日志条数
+     *
+     * @since 1.0.7
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 获取队列中等待保存的日志条数
+     *
+     * @return 日志条数
+     *
+     * @since 1.0.7
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 停止后台线程，并保存队列中剩余的日志，之后的日志将同步保存
+     *
+     * @param timeout 最长等待时间（毫秒）
+     *
+     * @throws InterruptedException 等待时被中断
+     * @since 1.0.7
+     */
+    public void shutdown(long timeout) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(timeout);
+        if (!consumer.isAlive()) {
+            // 保存停止期间仍然写入队列的日志
+            buffer.drain(entry -> saveNow(entry.log, entry.throwable), Integer.MAX_VALUE);
+        }
+    }
+
+    private void enqueue(T log, Throwable throwable) {
+        if (Objects.isNull(log)) {
+            return;
+        }
+        if (!running) {
+            saveNow(log, throwable);
+            return;
+        }
+        boolean sampled = policy == OverflowPolicy.SAMPLE && Objects.isNull(throwable);
+        if (sampled && buffer.size() >= buffer.capacity() >> 1 && sampleCounter.incrementAndGet() % sampleInterval != 0) {
+            dropped.increment();
+            return;
+        }
+        Entry<T> entry = new Entry<>(log, throwable);
+        while (!buffer.offer(entry)) {
+            if (policy != OverflowPolicy.BLOCK) {
+                dropped.increment();
+                return;
+            }
+            if (!running) {
+                saveNow(log, throwable);
+                return;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private void consume() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            int count = buffer.drain(entry -> {
+                if (Objects.isNull(entry.throwable)) {
+                    batch.add(entry.log);
+                } else {
+                    // 保持提交顺序，异常日志可能是对前面某条日志的更新
+                    flush(batch);
+                    saveNow(entry.log, entry.throwable);
+                }
+            }, batchSize);
+            flush(batch);
+            if (count == 0 && running) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+    }
+
+    private void flush(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            logService.saveBatch(batch);
+        } catch (Exception e) {
+            LOGGER.error("save log batch failed, message -> " + e.getMessage());
+        }
+        batch.clear();
+    }
+
+    private void saveNow(T log, Throwable throwable) {
+        try {
+            if (Objects.isNull(throwable)) {
+                logService.save(log);
+            } else {
+                logService.saveException(log, throwable);
+            }
+        } catch (Exception e) {
+            LOGGER.error("save log failed, message -> " + e.getMessage());
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T log;
+
+        private final Throwable throwable;
+
+        private Entry(T log, Throwable throwable) {
+            this.log = log;
+            this.throwable = throwable;
+        }
+    }
+}
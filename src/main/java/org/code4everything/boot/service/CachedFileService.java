@@ -0,0 +1,280 @@
+package org.code4everything.boot.service;
+
+import cn.hutool.core.util.StrUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.code4everything.boot.bean.MultipartFileBean;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 带缓存的文件服务，缓存 {@link FileService#getLocalPathByAccessUrl(String)}和 {@link
+ * FileService#getBy(MultipartFileBean)}的查询结果（包括查询不到的结果），同一个键的并发查询只会调用一次被装饰的文件服务
+ *
+ * <p>文件实体按存储路径和 MD5 码缓存，没有 MD5 码时（如：没有计算文件摘要，文件名为客户端的文件名）不缓存 {@link
+ * FileService#getBy(MultipartFileBean)}的查询结果，避免不同内容的同名文件命中同一个缓存</p>
+ *
+ * <p>保存文件后，新文件的访问路径可能还缓存着查询不到的结果，设置了访问路径解析函数时会使其失效，否则最长在 negativeTtl
+ * 之后才能访问到新文件</p>
+ *
+ * @author pantao
+ * @since 2019/1/22
+ **/
+public class CachedFileService<T> implements FileService<T> {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private static final long DEFAULT_NEGATIVE_TTL_SECONDS = 30;
+
+    /**
+     * 被装饰的文件服务
+     *
+     * @since 1.0.7
+     */
+    private final FileService<T> fileService;
+
+    /**
+     * 访问路径到本地路径的缓存
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, Lookup<String>> pathCache;
+
+    /**
+     * 文件实体缓存
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, Lookup<T>> entityCache;
+
+    /**
+     * 查询不到结果时的缓存时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private final long negativeTtlMillis;
+
+    /**
+     * 获取已保存文件的访问路径，为NULL时保存文件后不失效访问路径的缓存
+     *
+     * @since 1.0.7
+     */
+    private final Function<? super T, String> accessUrlResolver;
+
+    /**
+     * 构造函数，最多缓存10000条记录，有效期10分钟，查询不到结果时缓存30秒
+     *
+     * @param fileService 被装饰的文件服务
+     *
+     * @since 1.0.7
+     */
+    public CachedFileService(FileService<T> fileService) {
+        this(fileService, null);
+    }
+
+    /**
+     * 构造函数，最多缓存10000条记录，有效期10分钟，查询不到结果时缓存30秒
+     *
+     * @param fileService 被装饰的文件服务
+     * @param accessUrlResolver 获取已保存文件的访问路径，可以为NULL
+     *
+     * @since 1.0.7
+     */
+    public CachedFileService(FileService<T> fileService, Function<? super T, String> accessUrlResolver) {
+        this(fileService, DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_SECONDS, DEFAULT_NEGATIVE_TTL_SECONDS, TimeUnit.SECONDS,
+                accessUrlResolver);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param fileService 被装饰的文件服务
+     * @param maximumSize 每种缓存的最大记录数
+     * @param ttl 缓存有效时长
+     * @param negativeTtl 查询不到结果时的缓存有效时长，不应大于 ttl
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public CachedFileService(FileService<T> fileService, long maximumSize, long ttl, long negativeTtl,
+                             TimeUnit unit) {
+        this(fileService, maximumSize, ttl, negativeTtl, unit, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param fileService 被装饰的文件服务
+     * @param maximumSize 每种缓存的最大记录数
+     * @param ttl 缓存有效时长
+     * @param negativeTtl 查询不到结果时的缓存有效时长，不应大于 ttl
+     * @param unit 时间单位
+     * @param accessUrlResolver 获取已保存文件的访问路径，可以为NULL
+     *
+     * @since 1.0.7
+     */
+    public CachedFileService(FileService<T> fileService, long maximumSize, long ttl, long negativeTtl,
+                             TimeUnit unit, Function<? super T, String> accessUrlResolver) {
+        Preconditions.checkNotNull(fileService);
+        Preconditions.checkArgument(negativeTtl <= ttl, "negative ttl must not greater than ttl");
+        this.fileService = fileService;
+        this.accessUrlResolver = accessUrlResolver;
+        this.negativeTtlMillis = unit.toMillis(negativeTtl);
+        this.pathCache = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, unit).build();
+        this.entityCache = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, unit).build();
+    }
+
+    @Override
+    public Boolean exists(MultipartFileBean fileBean) {
+        return fileService.exists(fileBean);
+    }
+
+    @Override
+    public T getBy(MultipartFileBean fileBean) {
+        String key = entityKey(fileBean);
+        return Objects.isNull(key) ? fileService.getBy(fileBean) : lookup(entityCache, key, () -> fileService.getBy(
+                fileBean));
+    }
+
+    @Override
+    public T save(MultipartFileBean fileBean) {
+        return cacheSaved(fileBean, fileService.save(fileBean));
+    }
+
+    @Override
+    public T save(MultipartFileBean fileBean, @Nullable T file) {
+        return cacheSaved(fileBean, fileService.save(fileBean, file));
+    }
+
+    @Override
+    public String getLocalPathByAccessUrl(String accessUrl) {
+        String localPath = lookup(pathCache, accessUrl, () -> fileService.getLocalPathByAccessUrl(accessUrl));
+        return StrUtil.isEmpty(localPath) ? null : localPath;
+    }
+
+    /**
+     * 使访问路径的缓存失效
+     *
+     * @param accessUrl 访问路径
+     *
+     * @since 1.0.7
+     */
+    public void invalidateAccessUrl(String accessUrl) {
+        pathCache.invalidate(accessUrl);
+    }
+
+    /**
+     * 使文件实体的缓存失效
+     *
+     * @param fileBean {@link MultipartFileBean}
+     *
+     * @since 1.0.7
+     */
+    public void invalidate(MultipartFileBean fileBean) {
+        String key = entityKey(fileBean);
+        if (Objects.nonNull(key)) {
+            entityCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @since 1.0.7
+     */
+    public void invalidateAll() {
+        pathCache.invalidateAll();
+        entityCache.invalidateAll();
+    }
+
+    private T cacheSaved(MultipartFileBean fileBean, T saved) {
+        String key = entityKey(fileBean);
+        if (Objects.isNull(saved)) {
+            if (Objects.nonNull(key)) {
+                entityCache.invalidate(key);
+            }
+        } else {
+            if (Objects.nonNull(key)) {
+                entityCache.put(key, new Lookup<>(saved, Long.MAX_VALUE));
+            }
+            if (Objects.nonNull(accessUrlResolver)) {
+                // 保存前可能缓存了新文件访问路径查询不到的结果
+                String accessUrl = accessUrlResolver.apply(saved);
+                if (StrUtil.isNotEmpty(accessUrl)) {
+                    pathCache.invalidate(accessUrl);
+                }
+            }
+        }
+        return saved;
+    }
+
+    private <V> V lookup(Cache<String, Lookup<V>> cache, String key, Callable<V> loader) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        try {
+            Lookup<V> lookup = cache.get(key, () -> newLookup(loader.call()));
+            if (lookup.isExpired()) {
+                // 未命中的结果提前过期，只移除当前这一条，避免并发时重复加载
+                cache.asMap().remove(key, lookup);
+                lookup = cache.get(key, () -> newLookup(loader.call()));
+            }
+            return lookup.value;
+        } catch (UncheckedExecutionException e) {
+            // 被装饰的文件服务抛出的运行时异常原样抛出
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("load file info failed, key -> " + key, e.getCause());
+        }
+    }
+
+    private <V> Lookup<V> newLookup(V value) {
+        long expireAt = Objects.isNull(value) ? System.currentTimeMillis() + negativeTtlMillis : Long.MAX_VALUE;
+        return new Lookup<>(value, expireAt);
+    }
+
+    /**
+     * 获取文件实体的缓存键
+     *
+     * @param fileBean {@link MultipartFileBean}
+     *
+     * @return 缓存键，没有 MD5 码时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private static String entityKey(MultipartFileBean fileBean) {
+        String md5 = fileBean.getMd5();
+        return StrUtil.isEmpty(md5) ? null : StrUtil.nullToEmpty(fileBean.getStoragePath()) + '#' + md5;
+    }
+
+    /**
+     * 查询结果，值可以为NULL
+     *
+     * @param <V> 值类型
+     */
+    private static final class Lookup<V> {
+
+        private final V value;
+
+        private final long expireAt;
+
+        private Lookup(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired() {
+            return expireAt != Long.MAX_VALUE && System.currentTimeMillis() > expireAt;
+        }
+    }
+}
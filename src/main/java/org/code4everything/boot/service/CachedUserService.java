@@ -0,0 +1,172 @@
+package org.code4everything.boot.service;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.module.redis.NearCache;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带缓存的用户服务，缓存 {@link UserService#getUserByToken(String)}的查询结果
+ *
+ * <p>同一个请求内多次获取用户只查询一次（保存在请求域中，包括查询不到的结果）；设置了 {@link NearCache}时，
+ * 查询到的用户还会缓存在本地和 Redis 中，之后的请求不再查询被装饰的用户服务。用户退出登录或者信息变更时请调用
+ * {@link #invalidate(String)}，所有节点的缓存都会失效</p>
+ *
+ * <p>Redis 中的键为令牌的 SHA-256 摘要，令牌本身不会写入 Redis</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class CachedUserService<T> implements UserService<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(CachedUserService.class);
+
+    private static final String KEY_PREFIX = "boot:user:";
+
+    private static final String ATTRIBUTE_PREFIX = CachedUserService.class.getName() + ".USER:";
+
+    /**
+     * 请求域中查询不到用户的标记
+     *
+     * @since 1.0.7
+     */
+    private static final Object NULL_USER = new Object();
+
+    /**
+     * 被装饰的用户服务
+     *
+     * @since 1.0.7
+     */
+    private final UserService<T> userService;
+
+    /**
+     * 跨请求的缓存，为NULL时只在请求内缓存
+     *
+     * @since 1.0.7
+     */
+    private final NearCache<T> nearCache;
+
+    /**
+     * Redis 中的过期时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private final long ttlMillis;
+
+    /**
+     * 构造函数，只在同一个请求内缓存
+     *
+     * @param userService 被装饰的用户服务
+     *
+     * @since 1.0.7
+     */
+    public CachedUserService(UserService<T> userService) {
+        this.userService = Preconditions.checkNotNull(userService);
+        this.nearCache = null;
+        this.ttlMillis = 0;
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param userService 被装饰的用户服务
+     * @param nearCache 跨请求的缓存，本地缓存的过期时长应小于等于 ttl
+     * @param ttl Redis 中的过期时长，建议与令牌的有效期一致
+     * @param unit 时间单位
+     *
+     * @since 1.0.7
+     */
+    public CachedUserService(UserService<T> userService, NearCache<T> nearCache, long ttl, TimeUnit unit) {
+        Preconditions.checkArgument(ttl > 0, "ttl must be positive");
+        this.userService = Preconditions.checkNotNull(userService);
+        this.nearCache = Preconditions.checkNotNull(nearCache);
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getUserByToken(String token) {
+        if (StrUtil.isEmpty(token)) {
+            return userService.getUserByToken(token);
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        String attributeName = ATTRIBUTE_PREFIX + token;
+        if (Objects.nonNull(attributes)) {
+            Object cached = attributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+            if (Objects.nonNull(cached)) {
+                return cached == NULL_USER ? null : (T) cached;
+            }
+        }
+        T user = getUser(token);
+        if (Objects.nonNull(attributes)) {
+            attributes.setAttribute(attributeName, Objects.isNull(user) ? NULL_USER : user,
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    /**
+     * 使令牌对应的用户缓存失效，用户退出登录或者信息变更时调用
+     *
+     * @param token 令牌
+     *
+     * @since 1.0.7
+     */
+    public void invalidate(String token) {
+        if (StrUtil.isEmpty(token)) {
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (Objects.nonNull(attributes)) {
+            attributes.removeAttribute(ATTRIBUTE_PREFIX + token, RequestAttributes.SCOPE_REQUEST);
+        }
+        if (Objects.nonNull(nearCache)) {
+            nearCache.delete(redisKey(token));
+        }
+    }
+
+    /**
+     * 从跨请求的缓存获取用户，不存在时查询被装饰的用户服务，查询不到的结果不会跨请求缓存，避免登录后仍然获取不到用户
+     *
+     * @param token 令牌
+     *
+     * @return 用户
+     *
+     * @since 1.0.7
+     */
+    private T getUser(String token) {
+        if (Objects.isNull(nearCache)) {
+            return userService.getUserByToken(token);
+        }
+        String key = redisKey(token);
+        try {
+            T user = nearCache.get(key);
+            if (Objects.nonNull(user)) {
+                return user;
+            }
+        } catch (Exception e) {
+            LOGGER.error("get user from cache failed, message -> " + e.getMessage());
+            return userService.getUserByToken(token);
+        }
+        T user = userService.getUserByToken(token);
+        if (Objects.nonNull(user)) {
+            try {
+                // 回填不通知其他节点，只有 invalidate 才需要广播
+                nearCache.fill(key, user, ttlMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                LOGGER.error("cache user failed, message -> " + e.getMessage());
+            }
+        }
+        return user;
+    }
+
+    private static String redisKey(String token) {
+        return KEY_PREFIX + DigestUtil.sha256Hex(token);
+    }
+}
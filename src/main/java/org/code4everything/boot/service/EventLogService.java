@@ -0,0 +1,80 @@
+package org.code4everything.boot.service;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.bean.LogBean;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 发布日志事件的日志服务，被装饰的日志服务保存日志后，将日志交给发布者，如：{@link
+ * org.code4everything.boot.module.redis.RedisEventBus#publish(Object)}，发布失败不影响日志的保存
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class EventLogService<T> implements LogService<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(EventLogService.class);
+
+    /**
+     * 被装饰的日志服务
+     *
+     * @since 1.0.7
+     */
+    private final LogService<T> logService;
+
+    /**
+     * 日志发布者，在保存日志的线程中调用，不应阻塞
+     *
+     * @since 1.0.7
+     */
+    private final Consumer<T> publisher;
+
+    /**
+     * 构造函数
+     *
+     * @param logService 被装饰的日志服务
+     * @param publisher 日志发布者，不应阻塞
+     *
+     * @since 1.0.7
+     */
+    public EventLogService(LogService<T> logService, Consumer<T> publisher) {
+        this.logService = Preconditions.checkNotNull(logService);
+        this.publisher = Preconditions.checkNotNull(publisher);
+    }
+
+    @Override
+    public T save(T log) {
+        return publish(logService.save(log));
+    }
+
+    @Override
+    public void saveBatch(List<T> logs) {
+        logService.saveBatch(logs);
+        logs.forEach(this::publish);
+    }
+
+    @Override
+    public T saveException(T log, Throwable throwable) {
+        return publish(logService.saveException(log, throwable));
+    }
+
+    @Override
+    public T getLog(LogBean logBean) {
+        return logService.getLog(logBean);
+    }
+
+    private T publish(T log) {
+        if (Objects.nonNull(log)) {
+            try {
+                publisher.accept(log);
+            } catch (Exception e) {
+                LOGGER.error("publish log failed, message -> " + e.getMessage());
+            }
+        }
+        return log;
+    }
+}
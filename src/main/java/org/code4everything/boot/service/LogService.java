@@ -2,6 +2,8 @@ package org.code4everything.boot.service;
 
 import org.code4everything.boot.bean.LogBean;
 
+import java.util.List;
+
 /**
  * 日志服务
  *
@@ -21,6 +23,17 @@ public interface LogService<T> {
      */
     T save(T log);
 
+    /**
+     * 批量保存日志信息，默认逐条调用 {@link #save(Object)}，建议重写为批量插入
+     *
+     * @param logs 日志信息
+     *
+     * @since 1.0.7
+     */
+    default void saveBatch(List<T> logs) {
+        logs.forEach(this::save);
+    }
+
     /**
      * 保存异常信息
      *
@@ -0,0 +1,167 @@
+package org.code4everything.boot.web;
+
+import cn.hutool.core.io.IoUtil;
+import org.apache.log4j.Logger;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ReadListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非阻塞地将请求体写入文件，只有在输入流可读且上一次写入已完成时才读取，不占用容器线程
+ *
+ * @author pantao
+ * @since 2019/1/23
+ **/
+class AsyncFileReceiver implements ReadListener, CompletionHandler<Integer, ByteBuffer> {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncFileReceiver.class);
+
+    private final ServletInputStream in;
+
+    private final AsynchronousFileChannel channel;
+
+    private final MessageDigest digest;
+
+    private final long maxSize;
+
+    private final byte[] bytes;
+
+    private final CompletableFuture<AsyncFileReceiver> future;
+
+    private long position = 0;
+
+    private boolean writing = false;
+
+    private boolean allRead = false;
+
+    private boolean done = false;
+
+    AsyncFileReceiver(ServletInputStream in, AsynchronousFileChannel channel, MessageDigest digest, long maxSize,
+                      int bufferSize, CompletableFuture<AsyncFileReceiver> future) {
+        this.in = in;
+        this.channel = channel;
+        this.digest = digest;
+        this.maxSize = maxSize;
+        this.bytes = new byte[bufferSize];
+        this.future = future;
+    }
+
+    /**
+     * 获取已接收的字节数
+     *
+     * @return 已接收的字节数
+     *
+     * @since 1.0.7
+     */
+    long getSize() {
+        return position;
+    }
+
+    /**
+     * 获取摘要，未开启摘要时返回NULL
+     *
+     * @return 摘要
+     *
+     * @since 1.0.7
+     */
+    byte[] getDigest() {
+        return Objects.isNull(digest) ? null : digest.digest();
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        drain();
+    }
+
+    @Override
+    public synchronized void onAllDataRead() {
+        allRead = true;
+        if (!writing) {
+            finish();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t);
+    }
+
+    @Override
+    public void completed(Integer written, ByteBuffer attachment) {
+        synchronized (this) {
+            position += written;
+            if (attachment.hasRemaining()) {
+                channel.write(attachment, position, attachment, this);
+                return;
+            }
+            writing = false;
+            if (allRead) {
+                finish();
+                return;
+            }
+        }
+        try {
+            drain();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void failed(Throwable exc, ByteBuffer attachment) {
+        fail(exc);
+    }
+
+    /**
+     * 输入流可读时读取一块数据并发起异步写入，写入完成后再继续读取
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private synchronized void drain() throws IOException {
+        if (done || writing || !in.isReady()) {
+            return;
+        }
+        int len = in.read(bytes);
+        if (len <= 0) {
+            // 读取结束时容器会回调 onAllDataRead
+            return;
+        }
+        if (position + len > maxSize) {
+            fail(new IOException("file size must less than " + maxSize));
+            return;
+        }
+        if (Objects.nonNull(digest)) {
+            digest.update(bytes, 0, len);
+        }
+        writing = true;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, len);
+        channel.write(buffer, position, buffer, this);
+    }
+
+    private synchronized void finish() {
+        if (done) {
+            return;
+        }
+        done = true;
+        IoUtil.close(channel);
+        future.complete(this);
+    }
+
+    private synchronized void fail(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        LOGGER.error("receive file failed, message -> " + throwable.getMessage());
+        IoUtil.close(channel);
+        future.completeExceptionally(throwable);
+    }
+}
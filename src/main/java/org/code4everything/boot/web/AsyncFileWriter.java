@@ -0,0 +1,146 @@
+package org.code4everything.boot.web;
+
+import cn.hutool.core.io.IoUtil;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.bean.Response;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 非阻塞地将文件写入响应流，只有在输出流可写且文件数据已读入缓冲区时才写出，不占用容器线程
+ *
+ * @author pantao
+ * @since 2019/1/23
+ **/
+class AsyncFileWriter implements WriteListener, CompletionHandler<Integer, Void>, AsyncListener {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncFileWriter.class);
+
+    private final AsyncContext asyncContext;
+
+    private final AsynchronousFileChannel channel;
+
+    private final ServletOutputStream out;
+
+    private final long size;
+
+    private final ByteBuffer buffer;
+
+    private final CompletableFuture<Response<Long>> future;
+
+    private long position = 0;
+
+    private boolean reading = false;
+
+    private boolean done = false;
+
+    AsyncFileWriter(AsyncContext asyncContext, AsynchronousFileChannel channel, ServletOutputStream out, long size,
+                    int bufferSize, CompletableFuture<Response<Long>> future) {
+        this.asyncContext = asyncContext;
+        this.channel = channel;
+        this.out = out;
+        this.size = size;
+        this.future = future;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        // 初始状态下缓冲区为空
+        this.buffer.flip();
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        pump();
+    }
+
+    @Override
+    public void completed(Integer read, Void attachment) {
+        synchronized (this) {
+            reading = false;
+            if (read < 0) {
+                fail(new IOException("unexpected end of file"));
+                return;
+            }
+            position += read;
+            buffer.flip();
+        }
+        try {
+            pump();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void failed(Throwable exc, Void attachment) {
+        fail(exc);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {}
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        fail(new TimeoutException("response file timeout"));
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        fail(event.getThrowable());
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+
+    /**
+     * 输出流可写时持续写出，缓冲区为空时发起下一次异步读取
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private synchronized void pump() throws IOException {
+        while (!done && !reading && out.isReady()) {
+            if (buffer.hasRemaining()) {
+                out.write(buffer.array(), buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            } else if (position >= size) {
+                finish();
+            } else {
+                buffer.clear();
+                reading = true;
+                channel.read(buffer, position, null, this);
+            }
+        }
+    }
+
+    private synchronized void finish() {
+        done = true;
+        IoUtil.close(channel);
+        asyncContext.complete();
+        future.complete(new Response<>(size));
+    }
+
+    private synchronized void fail(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        LOGGER.error("response file failed, message -> " + throwable.getMessage());
+        IoUtil.close(channel);
+        asyncContext.complete();
+        future.completeExceptionally(throwable);
+    }
+}
@@ -0,0 +1,278 @@
+package org.code4everything.boot.web;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpStatus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.code4everything.boot.bean.MultipartFileBean;
+import org.code4everything.boot.bean.Response;
+import org.code4everything.boot.config.BootConfig;
+import org.code4everything.boot.service.FileService;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 异步网络工具类，基于 Servlet 3.1 非阻塞IO和 {@link AsynchronousFileChannel}，文件传输期间不占用容器线程
+ *
+ * @author pantao
+ * @since 2019/1/23
+ **/
+public class AsyncHttpUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String PART_SUFFIX = ".part";
+
+    /**
+     * 异步请求超时时长（毫秒）
+     *
+     * @since 1.0.7
+     */
+    private static long asyncTimeout = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 执行文件服务（数据库操作）的线程池
+     *
+     * @since 1.0.7
+     */
+    private static Executor executor = newDefaultExecutor();
+
+    private AsyncHttpUtils() {}
+
+    /**
+     * 设置异步请求超时时长
+     *
+     * @param asyncTimeout 超时时长（毫秒），0表示不超时
+     *
+     * @since 1.0.7
+     */
+    public static void setAsyncTimeout(long asyncTimeout) {
+        AsyncHttpUtils.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * 设置执行文件服务（数据库操作）的线程池
+     *
+     * @param executor 线程池
+     *
+     * @since 1.0.7
+     */
+    public static void setExecutor(Executor executor) {
+        AsyncHttpUtils.executor = executor;
+    }
+
+    /**
+     * 异步向浏览器响应文件，控制器方法应返回 void
+     *
+     * @param fileService 文件服务 {@link FileService}
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param <T> 文件实体类型
+     *
+     * @return 传输完成时返回文件大小
+     *
+     * @since 1.0.7
+     */
+    public static <T> CompletableFuture<Response<Long>> responseFileAsync(FileService<T> fileService,
+                                                                          HttpServletRequest request,
+                                                                          HttpServletResponse response) {
+        return responseFileAsync(fileService.getLocalPathByAccessUrl(request.getServletPath()), request, response);
+    }
+
+    /**
+     * 异步向浏览器响应文件，控制器方法应返回 void
+     *
+     * @param localPath 文件本地路径
+     * @param request HTTP请求
+     * @param response HTTP响应
+     *
+     * @return 传输完成时返回文件大小
+     *
+     * @since 1.0.7
+     */
+    public static CompletableFuture<Response<Long>> responseFileAsync(String localPath, HttpServletRequest request,
+                                                                      HttpServletResponse response) {
+        CompletableFuture<Response<Long>> future = new CompletableFuture<>();
+        if (StrUtil.isEmpty(localPath) || !FileUtil.isFile(localPath)) {
+            response.setStatus(HttpStatus.HTTP_NOT_FOUND);
+            future.complete(new Response<Long>().error(HttpStatus.HTTP_NOT_FOUND, "file not found"));
+            return future;
+        }
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(asyncTimeout);
+        AsynchronousFileChannel channel = null;
+        try {
+            channel = AsynchronousFileChannel.open(Paths.get(localPath), StandardOpenOption.READ);
+            long size = channel.size();
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(size);
+            ServletOutputStream out = response.getOutputStream();
+            AsyncFileWriter writer = new AsyncFileWriter(asyncContext, channel, out, size, BUFFER_SIZE, future);
+            asyncContext.addListener(writer);
+            out.setWriteListener(writer);
+        } catch (IOException e) {
+            IoUtil.close(channel);
+            asyncContext.complete();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 异步上传文件，文件内容为请求体，控制器方法直接返回本方法的结果即可
+     *
+     * @param fileService 文件服务 {@link FileService}
+     * @param request HTTP请求
+     * @param storagePath 文件存储路径，如：/root/boot/
+     * @param filename 文件名
+     * @param digestBytes 是否计算文件的MD5码，计算的MD5码将作为文件名
+     * @param params 自定义参数，在自己实现的 {@link FileService}方法中使用
+     * @param forceWrite 是否强制写入文件
+     * @param <T> 数据表类型
+     *
+     * @return 响应结果 {@link Response}
+     *
+     * @since 1.0.7
+     */
+    public static <T> CompletableFuture<Response<T>> uploadAsync(FileService<T> fileService,
+                                                                 HttpServletRequest request, String storagePath,
+                                                                 String filename, boolean digestBytes,
+                                                                 Map<String, Object> params, boolean forceWrite) {
+        if (request.getContentLengthLong() > BootConfig.getMaxUploadFileSize()) {
+            Response<T> result = new Response<T>().error(HttpStatus.HTTP_ENTITY_TOO_LARGE,
+                    "file size must less than " + BootConfig.getMaxUploadFileSize());
+            return CompletableFuture.completedFuture(result);
+        }
+        MultipartFileBean fileBean = new MultipartFileBean();
+        fileBean.setStoragePath(storagePath + (storagePath.endsWith(File.separator) ? "" : File.separator));
+        fileBean.setOriginalFilename(filename).setParams(params);
+        Path part = Paths.get(fileBean.getStoragePath(), filename + "." + System.nanoTime() + PART_SUFFIX);
+        CompletableFuture<AsyncFileReceiver> received = new CompletableFuture<>();
+        AsynchronousFileChannel channel = null;
+        try {
+            MessageDigest digest = digestBytes ? MessageDigest.getInstance("MD5") : null;
+            channel = AsynchronousFileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(asyncTimeout);
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new AsyncFileReceiver(in, channel, digest, BootConfig.getMaxUploadFileSize(),
+                    BUFFER_SIZE, received));
+        } catch (IOException | NoSuchAlgorithmException | IllegalStateException e) {
+            IoUtil.close(channel);
+            received.completeExceptionally(e);
+        }
+        // 文件接收完成后在线程池中执行文件服务，避免在IO线程中访问数据库
+        return received.thenApplyAsync(receiver -> {
+            fileBean.setSize(receiver.getSize());
+            byte[] md5 = receiver.getDigest();
+            if (md5 == null) {
+                fileBean.setFilename(filename);
+            } else {
+                String md5Hex = HexUtil.encodeHexStr(md5);
+                fileBean.setMd5(md5Hex).setFilename(md5Hex + StrUtil.DOT + FileUtil.extName(filename));
+            }
+            try {
+                return HttpUtils.store(fileService, fileBean, forceWrite, dest -> Files.move(part, dest.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING));
+            } finally {
+                FileUtil.del(part.toFile());
+            }
+        }, executor).exceptionally(e -> {
+            FileUtil.del(part.toFile());
+            return new Response<T>().error(HttpStatus.HTTP_UNAVAILABLE, filename + " upload failed");
+        });
+    }
+
+    /**
+     * 在线程池中上传文件，不占用容器线程
+     *
+     * @param fileService 文件服务 {@link FileService}
+     * @param file 文件 {@link MultipartFile}
+     * @param storagePath 文件存储路径，如：/root/boot/
+     * @param digestBytes 是否计算文件的MD5码（大文件不建议计算，防止堆内存泄漏）
+     * @param params 自定义参数，在自己实现的 {@link FileService}方法中使用
+     * @param forceWrite 是否强制写入文件
+     * @param <T> 数据表类型
+     *
+     * @return 响应结果 {@link Response}
+     *
+     * @since 1.0.7
+     */
+    public static <T> CompletableFuture<Response<T>> uploadAsync(FileService<T> fileService, MultipartFile file,
+                                                                 String storagePath, boolean digestBytes,
+                                                                 Map<String, Object> params, boolean forceWrite) {
+        return CompletableFuture.supplyAsync(() -> HttpUtils.upload(fileService, file, storagePath, digestBytes,
+                params, forceWrite), executor);
+    }
+
+    /**
+     * 在线程池中上传文件，不占用容器线程，适用于 Spring MVC
+     *
+     * @param fileService 文件服务 {@link FileService}
+     * @param file 文件 {@link MultipartFile}
+     * @param storagePath 文件存储路径，如：/root/boot/
+     * @param digestBytes 是否计算文件的MD5码（大文件不建议计算，防止堆内存泄漏）
+     * @param params 自定义参数，在自己实现的 {@link FileService}方法中使用
+     * @param forceWrite 是否强制写入文件
+     * @param <T> 数据表类型
+     *
+     * @return {@link DeferredResult}
+     *
+     * @since 1.0.7
+     */
+    public static <T> DeferredResult<Response<T>> uploadDeferred(FileService<T> fileService, MultipartFile file,
+                                                                 String storagePath, boolean digestBytes,
+                                                                 Map<String, Object> params, boolean forceWrite) {
+        return toDeferredResult(uploadAsync(fileService, file, storagePath, digestBytes, params, forceWrite));
+    }
+
+    /**
+     * 将 {@link CompletableFuture}转换成 {@link DeferredResult}
+     *
+     * @param future {@link CompletableFuture}
+     * @param <T> 数据类型
+     *
+     * @return {@link DeferredResult}
+     *
+     * @since 1.0.7
+     */
+    public static <T> DeferredResult<T> toDeferredResult(CompletableFuture<T> future) {
+        DeferredResult<T> deferredResult = new DeferredResult<>(asyncTimeout);
+        future.whenComplete((result, e) -> {
+            if (e == null) {
+                deferredResult.setResult(result);
+            } else {
+                deferredResult.setErrorResult(e);
+            }
+        });
+        return deferredResult;
+    }
+
+    private static Executor newDefaultExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("boot-async-http-%d").setDaemon(true).build();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1024),
+                factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,24 @@
+package org.code4everything.boot.web;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 将文件写入磁盘
+ *
+ * @author pantao
+ * @since 2019/1/23
+ **/
+@FunctionalInterface
+interface FileTransfer {
+
+    /**
+     * 将文件写入指定位置
+     *
+     * @param dest 目标文件
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    void transferTo(File dest) throws IOException;
+}
@@ -13,10 +13,16 @@ import org.code4everything.boot.bean.Response;
 import org.code4everything.boot.config.BootConfig;
 import org.code4everything.boot.constant.MessageConsts;
 import org.code4everything.boot.constant.StringConsts;
+import org.code4everything.boot.metrics.HttpMetrics;
+import org.code4everything.boot.metrics.MetricsRecorder;
 import org.code4everything.boot.service.FileService;
+import org.code4everything.boot.web.file.CachedFile;
+import org.code4everything.boot.web.file.FileCache;
+import org.code4everything.boot.web.file.GzipCompressor;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,6 +34,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * 网络工具类
@@ -39,8 +46,81 @@ public class HttpUtils {
 
     private static final Logger LOGGER = Logger.getLogger(HttpUtils.class);
 
+    /**
+     * 热点文件缓存，为NULL时不缓存
+     *
+     * @since 1.0.7
+     */
+    private static FileCache fileCache = null;
+
+    /**
+     * 预压缩文件管理，为NULL时不响应压缩文件
+     *
+     * @since 1.0.7
+     */
+    private static GzipCompressor gzipCompressor = null;
+
+    /**
+     * 指标记录器，为NULL时不记录
+     *
+     * @since 1.0.7
+     */
+    private static MetricsRecorder metricsRecorder = null;
+
+    /**
+     * 文件上传成功后的回调，为NULL时不回调
+     *
+     * @since 1.0.7
+     */
+    private static Consumer<MultipartFileBean> uploadListener = null;
+
     private HttpUtils() {}
 
+    /**
+     * 设置热点文件缓存
+     *
+     * @param fileCache {@link FileCache}，为NULL时关闭缓存
+     *
+     * @since 1.0.7
+     */
+    public static void setFileCache(FileCache fileCache) {
+        HttpUtils.fileCache = fileCache;
+    }
+
+    /**
+     * 设置预压缩文件管理
+     *
+     * @param gzipCompressor {@link GzipCompressor}，为NULL时关闭预压缩
+     *
+     * @since 1.0.7
+     */
+    public static void setGzipCompressor(GzipCompressor gzipCompressor) {
+        HttpUtils.gzipCompressor = gzipCompressor;
+    }
+
+    /**
+     * 设置指标记录器，记录文件上传和响应各阶段的耗时和字节数
+     *
+     * @param metricsRecorder {@link MetricsRecorder}，为NULL时关闭指标记录
+     *
+     * @since 1.0.7
+     */
+    public static void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        HttpUtils.metricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * 设置文件上传成功并写入磁盘后的回调（文件已存在时不回调），在请求线程中执行，不应阻塞，如：{@link
+     * org.code4everything.boot.module.redis.RedisEventBus#publish(Object)}
+     *
+     * @param uploadListener 回调，为NULL时关闭回调
+     *
+     * @since 1.0.7
+     */
+    public static void setUploadListener(Consumer<MultipartFileBean> uploadListener) {
+        HttpUtils.uploadListener = uploadListener;
+    }
+
     /**
      * 获取Token
      *
@@ -82,7 +162,7 @@ public class HttpUtils {
      */
     public static <T> ResponseEntity<InputStreamSource> responseFile(FileService<T> fileService,
                                                                      HttpServletRequest request) throws IOException {
-        return responseFile(fileService.getLocalPathByAccessUrl(request.getServletPath()));
+        return responseLocalFile(fileService.getLocalPathByAccessUrl(request.getServletPath()), request);
     }
 
     /**
@@ -96,14 +176,189 @@ public class HttpUtils {
      * @since 1.0.2
      */
     public static ResponseEntity<InputStreamSource> responseFile(String localPath) throws IOException {
+        return responseLocalFile(localPath, null);
+    }
+
+    /**
+     * 向浏览器响应文件，开启了文件缓存时会校验请求头 If-None-Match，开启了预压缩时会根据请求头 Accept-Encoding 响应压缩后的文件
+     *
+     * @param localPath 文件本地路径
+     * @param request HTTP请求，可以为NULL
+     *
+     * @return 文件流
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    public static ResponseEntity<InputStreamSource> responseLocalFile(String localPath,
+                                                                      HttpServletRequest request) throws IOException {
+        MetricsRecorder recorder = metricsRecorder;
+        if (Objects.isNull(recorder)) {
+            return negotiate(localPath, request);
+        }
+        long start = System.nanoTime();
+        ResponseEntity<InputStreamSource> entity = negotiate(localPath, request);
+        recorder.recordLatency(HttpMetrics.RESPONSE_FILE_TOTAL, System.nanoTime() - start);
+        long length = entity.getHeaders().getContentLength();
+        if (length > 0) {
+            recorder.recordBytes(HttpMetrics.RESPONSE_FILE_BYTES, length);
+        }
+        return entity;
+    }
+
+    /**
+     * 根据请求头 Accept-Encoding 选择响应原文件还是预压缩文件，开启了文件缓存时预压缩文件也会被缓存
+     *
+     * @param localPath 文件本地路径
+     * @param request HTTP请求，可以为NULL
+     *
+     * @return 文件流
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private static ResponseEntity<InputStreamSource> negotiate(String localPath,
+                                                               HttpServletRequest request) throws IOException {
+        if (StrUtil.isEmpty(localPath)) {
+            return ResponseEntity.notFound().build();
+        }
+        GzipCompressor compressor = gzipCompressor;
+        boolean compressible = ObjectUtil.isNotNull(compressor) && compressor.isCompressible(localPath);
+        if (compressible && ObjectUtil.isNotNull(request)) {
+            if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                return responseFile(localPath, localPath, request, null, true);
+            }
+            FileCache cache = fileCache;
+            if (ObjectUtil.isNotNull(cache)) {
+                // 已缓存压缩版本时不需要检查原文件和压缩文件
+                CachedFile cachedFile = cache.getIfPresent(localPath, GzipCompressor.GZIP);
+                if (ObjectUtil.isNotNull(cachedFile)) {
+                    return responseFile(cachedFile, request, GzipCompressor.GZIP, true);
+                }
+            }
+            // 压缩文件不存在时会在后台生成，本次响应原文件
+            String gzipPath = compressor.getCompressed(localPath);
+            if (ObjectUtil.isNotNull(gzipPath)) {
+                return responseFile(localPath, gzipPath, request, GzipCompressor.GZIP, true);
+            }
+        }
+        return responseFile(localPath, localPath, request, null, compressible);
+    }
+
+    /**
+     * 请求头 Accept-Encoding 是否接受 gzip，按权重判断，如：gzip;q=0 表示不接受，没有列出 gzip 时使用 * 的权重
+     *
+     * @param acceptEncoding 请求头 Accept-Encoding，可以为NULL
+     *
+     * @return 是否接受 gzip
+     *
+     * @since 1.0.7
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (StrUtil.isBlank(acceptEncoding)) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim();
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 1 && Character.toLowerCase(param.charAt(0)) == 'q' && param.charAt(1) == '=') {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        // 权重格式错误时视为不接受
+                        quality = 0;
+                    }
+                }
+            }
+            if (GzipCompressor.GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                gzip = Math.max(gzip, quality);
+            } else if ("*".equals(coding)) {
+                any = Math.max(any, quality);
+            }
+        }
+        return (gzip < 0 ? any : gzip) > 0;
+    }
+
+    /**
+     * 向浏览器响应文件
+     *
+     * @param localPath 文件本地路径
+     * @param encodedPath 编码后的文件本地路径，未编码时与 localPath 相同
+     * @param request HTTP请求，可以为NULL
+     * @param contentEncoding 文件的编码，如：gzip，为NULL时表示未编码
+     * @param vary 是否需要设置响应头 Vary: Accept-Encoding
+     *
+     * @return 文件流
+     *
+     * @throws IOException 可能发生的异常
+     * @since 1.0.7
+     */
+    private static ResponseEntity<InputStreamSource> responseFile(String localPath, String encodedPath,
+                                                                  HttpServletRequest request, String contentEncoding,
+                                                                  boolean vary) throws IOException {
+        FileCache cache = fileCache;
+        if (ObjectUtil.isNotNull(cache)) {
+            CachedFile cachedFile = cache.get(localPath, contentEncoding, encodedPath);
+            if (ObjectUtil.isNotNull(cachedFile)) {
+                return responseFile(cachedFile, request, contentEncoding, vary);
+            }
+        }
         FileSystemResource file = null;
-        if (FileUtil.exist(localPath)) {
-            file = new FileSystemResource(localPath);
+        if (FileUtil.exist(encodedPath)) {
+            file = new FileSystemResource(encodedPath);
         }
         if (ObjectUtil.isNull(file)) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok().contentLength(file.contentLength()).contentType(MediaType.APPLICATION_OCTET_STREAM).body(new InputStreamResource(file.getInputStream()));
+        return encode(ResponseEntity.ok(), contentEncoding, vary).contentLength(file.contentLength()).contentType(MediaType.APPLICATION_OCTET_STREAM).body(new InputStreamResource(file.getInputStream()));
+    }
+
+    /**
+     * 响应缓存的文件，请求头 If-None-Match 与ETag匹配时响应304
+     *
+     * @param cachedFile {@link CachedFile}
+     * @param request HTTP请求，可以为NULL
+     * @param contentEncoding 文件的编码，如：gzip，为NULL时表示未编码
+     * @param vary 是否需要设置响应头 Vary: Accept-Encoding
+     *
+     * @return 文件流
+     *
+     * @since 1.0.7
+     */
+    private static ResponseEntity<InputStreamSource> responseFile(CachedFile cachedFile, HttpServletRequest request,
+                                                                  String contentEncoding, boolean vary) {
+        String etag = cachedFile.getEtag();
+        if (ObjectUtil.isNotNull(request) && etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return encode(ResponseEntity.status(HttpStatus.HTTP_NOT_MODIFIED), contentEncoding, vary).eTag(etag).build();
+        }
+        return encode(ResponseEntity.ok(), contentEncoding, vary).eTag(etag).lastModified(cachedFile.getLastModified()).contentLength(cachedFile.getLength()).contentType(MediaType.APPLICATION_OCTET_STREAM).body(new InputStreamResource(cachedFile.getInputStream()));
+    }
+
+    /**
+     * 设置内容编码相关的响应头
+     *
+     * @param builder {@link ResponseEntity.BodyBuilder}
+     * @param contentEncoding 文件的编码，为NULL时表示未编码
+     * @param vary 是否需要设置响应头 Vary: Accept-Encoding
+     *
+     * @return {@link ResponseEntity.BodyBuilder}
+     *
+     * @since 1.0.7
+     */
+    private static ResponseEntity.BodyBuilder encode(ResponseEntity.BodyBuilder builder, String contentEncoding,
+                                                     boolean vary) {
+        if (vary) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (ObjectUtil.isNotNull(contentEncoding)) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        return builder;
     }
 
     /**
@@ -227,9 +482,12 @@ public class HttpUtils {
         if (CollectionUtil.isEmpty(fileMap)) {
             return new Response<>(HttpStatus.HTTP_BAD_REQUEST, MessageConsts.FILE_UNAVAILABLE_ZH);
         } else {
+            MetricsRecorder recorder = metricsRecorder;
+            long start = Objects.isNull(recorder) ? 0 : System.nanoTime();
             ArrayList<Response<T>> fileList = new ArrayList<>();
             fileMap.values().forEach(file -> fileList.add(upload(fileService, file, storagePath, digestBytes, params,
                     forceWrite)));
+            record(recorder, HttpMetrics.MULTI_UPLOAD_TOTAL, start);
             return new Response<>(fileList);
         }
     }
@@ -349,6 +607,8 @@ public class HttpUtils {
         if (file.getSize() > BootConfig.getMaxUploadFileSize()) {
             return result.error("file size must less than " + BootConfig.getMaxUploadFileSize());
         }
+        MetricsRecorder recorder = metricsRecorder;
+        long start = Objects.isNull(recorder) ? 0 : System.nanoTime();
         MultipartFileBean fileBean = new MultipartFileBean();
         fileBean.setStoragePath(storagePath + (storagePath.endsWith(File.separator) ? "" : File.separator));
         // 设置文件信息
@@ -357,6 +617,7 @@ public class HttpUtils {
             try {
                 // 设置MD5
                 fileBean.setMd5(DigestUtil.md5Hex(file.getBytes()));
+                record(recorder, HttpMetrics.UPLOAD_DIGEST, start);
             } catch (Exception e) {
                 LOGGER.error(StrUtil.format("get md5 of file[{}] failed, message -> {}", ofn, e.getMessage()));
                 return result.error(HttpStatus.HTTP_UNAVAILABLE, ofn + " upload failed");
@@ -366,6 +627,32 @@ public class HttpUtils {
             fileBean.setFilename(ofn);
         }
         fileBean.setOriginalFilename(ofn).setSize(file.getSize()).setParams(params);
+        result = store(fileService, fileBean, forceWrite, file::transferTo);
+        if (Objects.nonNull(recorder)) {
+            record(recorder, HttpMetrics.UPLOAD_TOTAL, start);
+            recorder.recordBytes(HttpMetrics.UPLOAD_BYTES, file.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * 检测文件是否存在，并按需写入磁盘和数据库
+     *
+     * @param fileService 文件服务 {@link FileService}
+     * @param fileBean 文件信息 {@link MultipartFileBean}
+     * @param forceWrite 是否强制写入文件
+     * @param transfer 将文件写入磁盘的方法
+     * @param <T> 数据表类型
+     *
+     * @return 响应结果 {@link Response}
+     *
+     * @since 1.0.7
+     */
+    static <T> Response<T> store(FileService<T> fileService, MultipartFileBean fileBean, boolean forceWrite,
+                                 FileTransfer transfer) {
+        Response<T> result = new Response<>();
+        MetricsRecorder recorder = metricsRecorder;
+        long start = Objects.isNull(recorder) ? 0 : System.nanoTime();
         // 检测文件是否存在
         Boolean exists = fileService.exists(fileBean);
         boolean shouldWrite = false;
@@ -380,17 +667,49 @@ public class HttpUtils {
             // 不存在时则可以写入磁盘
             shouldWrite = true;
         }
+        start = record(recorder, HttpMetrics.UPLOAD_EXISTS, start);
         if (shouldWrite || forceWrite) {
             try {
                 // 写入磁盘
-                file.transferTo(new File(fileBean.getStoragePath() + fileBean.getFilename()));
+                transfer.transferTo(new File(fileBean.getStoragePath() + fileBean.getFilename()));
             } catch (Exception e) {
                 LOGGER.error("upload file failed, message -> " + e.getMessage());
-                return result.error(HttpStatus.HTTP_UNAVAILABLE, ofn + " upload failed");
+                return result.error(HttpStatus.HTTP_UNAVAILABLE, fileBean.getOriginalFilename() + " upload failed");
             }
+            start = record(recorder, HttpMetrics.UPLOAD_TRANSFER, start);
             // 将数据写入数据库
             t = fileService.save(fileBean, t);
+            record(recorder, HttpMetrics.UPLOAD_SAVE, start);
+            // 只在文件写入磁盘后回调，文件已存在时不回调
+            Consumer<MultipartFileBean> listener = uploadListener;
+            if (Objects.nonNull(listener)) {
+                try {
+                    listener.accept(fileBean);
+                } catch (Exception e) {
+                    LOGGER.error("notify upload listener failed, message -> " + e.getMessage());
+                }
+            }
         }
         return Objects.isNull(t) ? result.setMsg(fileBean.getFilename()) : result.setData(t);
     }
+
+    /**
+     * 记录从开始时间到现在的耗时
+     *
+     * @param recorder 指标记录器，为NULL时不记录
+     * @param name 指标名称
+     * @param start 开始时间（纳秒）
+     *
+     * @return 当前时间（纳秒），可作为下一阶段的开始时间
+     *
+     * @since 1.0.7
+     */
+    private static long record(MetricsRecorder recorder, String name, long start) {
+        if (Objects.isNull(recorder)) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        recorder.recordLatency(name, now - start);
+        return now;
+    }
 }
@@ -0,0 +1,127 @@
+package org.code4everything.boot.web.file;
+
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 缓存在内存中的文件
+ *
+ * @author pantao
+ * @since 2019/1/21
+ **/
+public final class CachedFile {
+
+    /**
+     * 规范化后的文件路径
+     *
+     * @since 1.0.7
+     */
+    private final String path;
+
+    /**
+     * 文件内容（堆外内存）
+     *
+     * @since 1.0.7
+     */
+    private final ByteBuffer content;
+
+    /**
+     * 文件的ETag
+     *
+     * @since 1.0.7
+     */
+    private final String etag;
+
+    /**
+     * 文件最后修改时间
+     *
+     * @since 1.0.7
+     */
+    private final long lastModified;
+
+    /**
+     * 构造函数
+     *
+     * @param path 规范化后的文件路径
+     * @param bytes 文件内容
+     * @param lastModified 文件最后修改时间
+     *
+     * @since 1.0.7
+     */
+    CachedFile(String path, byte[] bytes, long lastModified) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.etag = "\"" + DigestUtil.md5Hex(bytes) + "\"";
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        this.content = buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取规范化后的文件路径
+     *
+     * @return 文件路径
+     *
+     * @since 1.0.7
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 获取文件的ETag
+     *
+     * @return ETag
+     *
+     * @since 1.0.7
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * 获取文件大小
+     *
+     * @return 文件大小
+     *
+     * @since 1.0.7
+     */
+    public int getLength() {
+        return content.limit();
+    }
+
+    /**
+     * 获取文件最后修改时间
+     *
+     * @return 文件最后修改时间
+     *
+     * @since 1.0.7
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * 获取文件内容的只读视图，每次调用返回独立的读取位置
+     *
+     * @return {@link ByteBuffer}
+     *
+     * @since 1.0.7
+     */
+    public ByteBuffer getContent() {
+        return content.duplicate();
+    }
+
+    /**
+     * 获取文件输入流
+     *
+     * @return {@link InputStream}
+     *
+     * @since 1.0.7
+     */
+    public InputStream getInputStream() {
+        return new ByteBufferInputStream(getContent());
+    }
+}
@@ -0,0 +1,256 @@
+package org.code4everything.boot.web.file;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.watch.SimpleWatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.base.FileUtils;
+import org.code4everything.boot.config.BootConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 热点小文件缓存，按文件大小加权淘汰（LRU），文件内容保存在堆外内存中
+ *
+ * <p>除原文件外，还可以缓存文件的编码版本（如：预压缩的 .gz 文件）。命中缓存时会检查文件的最后修改时间和大小（不读取文件内容），
+ * 文件已变化或已删除时重新加载，没有监听目录时也不会响应旧的内容</p>
+ *
+ * @author pantao
+ * @since 2019/1/21
+ **/
+public class FileCache {
+
+    private static final Logger LOGGER = Logger.getLogger(FileCache.class);
+
+    /**
+     * 编码版本的键中路径与编码的分隔符，不会出现在路径中
+     *
+     * @since 1.0.7
+     */
+    private static final char ENCODING_SEPARATOR = '\0';
+
+    /**
+     * 可缓存的单个文件最大字节数
+     *
+     * @since 1.0.7
+     */
+    private final long maxFileSize;
+
+    /**
+     * 文件缓存，键为规范化后的文件路径，编码版本的键为路径加编码
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, CachedFile> cache;
+
+    /**
+     * 构造函数
+     *
+     * @param maxBytes 缓存总字节数上限
+     * @param maxFileSize 可缓存的单个文件最大字节数
+     *
+     * @since 1.0.7
+     */
+    public FileCache(long maxBytes, int maxFileSize) {
+        Preconditions.checkArgument(maxBytes > 0 && maxFileSize > 0, "cache size must be positive");
+        this.maxFileSize = maxFileSize;
+        this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes).weigher((String key, CachedFile file) ->
+                file.getLength()).build();
+    }
+
+    /**
+     * 获取缓存的文件，文件不存在或过大时返回NULL，文件已变化时重新加载
+     *
+     * @param localPath 文件本地路径
+     *
+     * @return {@link CachedFile}
+     *
+     * @throws IOException 读取文件时可能发生的异常
+     * @since 1.0.7
+     */
+    public CachedFile get(String localPath) throws IOException {
+        return get(localPath, null, localPath);
+    }
+
+    /**
+     * 获取缓存的文件编码版本，不存在时从编码后的文件加载，编码后的文件不存在或过大时返回NULL
+     *
+     * @param localPath 原文件本地路径
+     * @param encoding 编码，如：gzip，为NULL时表示原文件
+     * @param encodedPath 编码后的文件本地路径
+     *
+     * @return {@link CachedFile}，内容为编码后的文件
+     *
+     * @throws IOException 读取文件时可能发生的异常
+     * @since 1.0.7
+     */
+    public CachedFile get(String localPath, String encoding, String encodedPath) throws IOException {
+        String key = key(normalize(Paths.get(localPath)), encoding);
+        CachedFile cachedFile = validate(key, cache.getIfPresent(key));
+        if (Objects.nonNull(cachedFile)) {
+            return cachedFile;
+        }
+        String path = normalize(Paths.get(encodedPath));
+        File file = new File(path);
+        if (!file.isFile() || file.length() > maxFileSize) {
+            return null;
+        }
+        try {
+            // 同一文件的并发加载只会读取一次磁盘
+            cachedFile = cache.get(key, () -> load(path, file));
+        } catch (ExecutionException e) {
+            throw new IOException("cache file[" + encodedPath + "] failed", e.getCause());
+        }
+        if (file.lastModified() != cachedFile.getLastModified() || file.length() != cachedFile.getLength()) {
+            // 加载期间文件发生了变化，失效通知可能已经丢失（加载中的键无法失效），移除本次加载的内容
+            cache.asMap().remove(key, cachedFile);
+            return null;
+        }
+        return cachedFile;
+    }
+
+    /**
+     * 获取已缓存的文件编码版本，只检查文件是否变化，不会加载文件
+     *
+     * @param localPath 原文件本地路径
+     * @param encoding 编码，如：gzip，为NULL时表示原文件
+     *
+     * @return {@link CachedFile}，未缓存或文件已变化时返回NULL
+     *
+     * @since 1.0.7
+     */
+    public CachedFile getIfPresent(String localPath, String encoding) {
+        String key = key(normalize(Paths.get(localPath)), encoding);
+        return validate(key, cache.getIfPresent(key));
+    }
+
+    /**
+     * 使指定文件及其编码版本的缓存失效，预压缩文件变化时也会使原文件的压缩版本失效
+     *
+     * @param localPath 文件本地路径
+     *
+     * @since 1.0.7
+     */
+    public void invalidate(String localPath) {
+        String path = normalize(Paths.get(localPath));
+        cache.invalidate(path);
+        cache.invalidate(key(path, GzipCompressor.GZIP));
+        if (path.endsWith(GzipCompressor.GZIP_SUFFIX)) {
+            String source = path.substring(0, path.length() - GzipCompressor.GZIP_SUFFIX.length());
+            cache.invalidate(key(source, GzipCompressor.GZIP));
+        }
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @since 1.0.7
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 获取已缓存的文件数量
+     *
+     * @return 已缓存的文件数量
+     *
+     * @since 1.0.7
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 监听目录，目录下的文件发生变化时使对应的缓存失效
+     *
+     * @param directory 文件目录
+     *
+     * @since 1.0.7
+     */
+    public void watch(String directory) {
+        FileUtils.watchFile(directory, new SimpleWatcher() {
+            @Override
+            public void onCreate(WatchEvent<?> event, Path currentPath) {
+                onChange(event, currentPath);
+            }
+
+            @Override
+            public void onModify(WatchEvent<?> event, Path currentPath) {
+                onChange(event, currentPath);
+            }
+
+            @Override
+            public void onDelete(WatchEvent<?> event, Path currentPath) {
+                onChange(event, currentPath);
+            }
+
+            @Override
+            public void onOverflow(WatchEvent<?> event, Path currentPath) {
+                // 事件丢失时无法确定哪些文件发生了变化
+                invalidateAll();
+            }
+        });
+    }
+
+    private void onChange(WatchEvent<?> event, Path currentPath) {
+        Path changed = currentPath.resolve((Path) event.context());
+        invalidate(changed.toString());
+        if (BootConfig.isDebug()) {
+            LOGGER.info("file cache invalidated -> " + changed);
+        }
+    }
+
+    /**
+     * 检查缓存的文件是否与磁盘上的一致，不一致（包括文件已删除）时移除缓存
+     *
+     * @param key 缓存的键
+     * @param cachedFile 缓存的文件，可以为NULL
+     *
+     * @return {@link CachedFile}，不一致时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private CachedFile validate(String key, CachedFile cachedFile) {
+        if (Objects.isNull(cachedFile)) {
+            return null;
+        }
+        File file = new File(cachedFile.getPath());
+        if (file.lastModified() == cachedFile.getLastModified() && file.length() == cachedFile.getLength()) {
+            return cachedFile;
+        }
+        cache.asMap().remove(key, cachedFile);
+        return null;
+    }
+
+    /**
+     * 读取文件，先获取最后修改时间，读取期间的修改可以在加载后被发现
+     *
+     * @param path 规范化后的文件路径
+     * @param file 文件
+     *
+     * @return {@link CachedFile}
+     *
+     * @since 1.0.7
+     */
+    private static CachedFile load(String path, File file) {
+        long lastModified = file.lastModified();
+        return new CachedFile(path, FileUtil.readBytes(file), lastModified);
+    }
+
+    private static String key(String path, String encoding) {
+        return Objects.isNull(encoding) ? path : path + ENCODING_SEPARATOR + encoding;
+    }
+
+    private static String normalize(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+}
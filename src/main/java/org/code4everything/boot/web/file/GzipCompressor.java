@@ -0,0 +1,193 @@
+package org.code4everything.boot.web.file;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.code4everything.boot.config.BootConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预压缩文件管理，为可压缩的文件在后台生成 .gz 文件，响应时直接发送压缩后的文件，不在请求线程中压缩
+ *
+ * @author pantao
+ * @since 2019/1/24
+ **/
+public class GzipCompressor {
+
+    public static final String GZIP = "gzip";
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final Logger LOGGER = Logger.getLogger(GzipCompressor.class);
+
+    private static final String[] DEFAULT_EXTENSIONS = {"json", "csv", "js", "css", "html", "htm", "txt", "xml", "svg"};
+
+    private static final long DEFAULT_MIN_SIZE = 1024;
+
+    private static final int MAX_INCOMPRESSIBLE = 10000;
+
+    /**
+     * 可压缩的文件扩展名（小写）
+     *
+     * @since 1.0.7
+     */
+    private final Set<String> extensions;
+
+    /**
+     * 小于该大小的文件不压缩
+     *
+     * @since 1.0.7
+     */
+    private final long minSize;
+
+    /**
+     * 压缩线程池
+     *
+     * @since 1.0.7
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 正在压缩的文件
+     *
+     * @since 1.0.7
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 压缩后没有变小的文件，值为文件的最后修改时间，数量有上限，被淘汰的文件在下次请求时重新压缩
+     *
+     * @since 1.0.7
+     */
+    private final Cache<String, Long> incompressible = CacheBuilder.newBuilder().maximumSize(MAX_INCOMPRESSIBLE)
+            .build();
+
+    /**
+     * 构造函数，使用一个压缩线程
+     *
+     * @since 1.0.7
+     */
+    public GzipCompressor() {
+        this(1, 256, DEFAULT_MIN_SIZE, DEFAULT_EXTENSIONS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param threads 压缩线程数
+     * @param queueSize 等待压缩的最大文件数，超出时放弃压缩，下次请求时重新提交
+     * @param minSize 小于该大小的文件不压缩
+     * @param extensions 可压缩的文件扩展名
+     *
+     * @since 1.0.7
+     */
+    public GzipCompressor(int threads, int queueSize, long minSize, String... extensions) {
+        Preconditions.checkArgument(threads > 0 && queueSize > 0, "threads and queue size must be positive");
+        this.minSize = minSize;
+        this.extensions = new HashSet<>();
+        Arrays.stream(extensions).forEach(extension -> this.extensions.add(extension.toLowerCase()));
+        ThreadFactoryBuilder factoryBuilder = new ThreadFactoryBuilder().setNameFormat("boot-gzip-%d").setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueSize), factoryBuilder.build(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 文件类型是否可压缩
+     *
+     * @param localPath 文件本地路径
+     *
+     * @return 是否可压缩
+     *
+     * @since 1.0.7
+     */
+    public boolean isCompressible(String localPath) {
+        return extensions.contains(FileUtil.extName(localPath).toLowerCase());
+    }
+
+    /**
+     * 获取预压缩文件路径，预压缩文件不存在或已过期时提交后台压缩任务并返回NULL
+     *
+     * @param localPath 文件本地路径
+     *
+     * @return 预压缩文件路径
+     *
+     * @since 1.0.7
+     */
+    public String getCompressed(String localPath) {
+        File source = new File(localPath);
+        long lastModified = source.lastModified();
+        if (lastModified == 0 || Objects.equals(incompressible.getIfPresent(localPath), lastModified)) {
+            return null;
+        }
+        String gzipPath = localPath + GZIP_SUFFIX;
+        if (new File(gzipPath).lastModified() >= lastModified) {
+            return gzipPath;
+        }
+        if (source.length() >= minSize && pending.add(localPath)) {
+            try {
+                executor.execute(() -> compress(localPath));
+            } catch (RejectedExecutionException e) {
+                // 队列已满，下次请求时重新提交
+                pending.remove(localPath);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 关闭压缩线程池
+     *
+     * @since 1.0.7
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void compress(String localPath) {
+        File source = new File(localPath).getAbsoluteFile();
+        Path temp = null;
+        try {
+            // 先写入临时文件，再原子地替换，避免读到不完整的压缩文件
+            temp = Files.createTempFile(source.getParentFile().toPath(), "." + source.getName() + ".", GZIP_SUFFIX);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                Files.copy(source.toPath(), out);
+            }
+            if (Files.size(temp) >= source.length()) {
+                incompressible.put(localPath, source.lastModified());
+            } else {
+                Files.move(temp, new File(localPath + GZIP_SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                if (BootConfig.isDebug()) {
+                    LOGGER.info("gzip file created -> " + localPath + GZIP_SUFFIX);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(StrUtil.format("gzip file[{}] failed, message -> {}", localPath, e.getMessage()));
+        } finally {
+            if (temp != null) {
+                FileUtil.del(temp.toFile());
+            }
+            pending.remove(localPath);
+        }
+    }
+}
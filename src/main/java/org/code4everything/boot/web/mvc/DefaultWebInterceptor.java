@@ -1,28 +1,39 @@
 package org.code4everything.boot.web.mvc;
 
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.alibaba.fastjson.JSONObject;
 import com.google.common.base.Preconditions;
 import org.apache.log4j.Logger;
 import org.code4everything.boot.bean.ConfigBean;
+import org.code4everything.boot.bean.RateLimitBean;
 import org.code4everything.boot.config.BootConfig;
 import org.code4everything.boot.interfaces.InterceptHandler;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.code4everything.boot.log.trace.Span;
+import org.code4everything.boot.log.trace.Tracer;
+import org.code4everything.boot.module.redis.RedisRateLimiter;
+import org.code4everything.boot.web.HttpUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Objects;
 
 /**
- * 默认拦截器<br>拦截顺序依次为：黑名单 - 白名单 - 拦截名单
+ * 默认拦截器<br>拦截顺序依次为：黑名单 - 限流 - 白名单 - 拦截名单<br>开启 {@link Tracer}时每个请求是一个根片段，请求内的 {@link
+ * org.code4everything.boot.annotations.AopLog}方法调用是它的子片段
  *
  * @author pantao
  * @since 2018/11/4
  */
-public final class DefaultWebInterceptor implements HandlerInterceptor {
+public final class DefaultWebInterceptor implements AsyncHandlerInterceptor {
 
     private static final Logger LOGGER = Logger.getLogger(DefaultWebInterceptor.class);
 
+    private static final String SPAN_ATTRIBUTE = DefaultWebInterceptor.class.getName() + ".SPAN";
+
     /**
      * 配置信息
      *
@@ -30,6 +41,13 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
      */
     private static ConfigBean configBean;
 
+    /**
+     * 限流器，配置了限流规则并且没有设置时使用默认的连接池
+     *
+     * @since 1.0.7
+     */
+    private static volatile RedisRateLimiter rateLimiter;
+
     /**
      * 拦截处理器
      *
@@ -68,6 +86,17 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
         DefaultWebInterceptor.configBean = configBean;
     }
 
+    /**
+     * 设置限流器
+     *
+     * @param rateLimiter {@link RedisRateLimiter}
+     *
+     * @since 1.0.7
+     */
+    public static void setRateLimiter(RedisRateLimiter rateLimiter) {
+        DefaultWebInterceptor.rateLimiter = rateLimiter;
+    }
+
     /**
      * 默认拦截器
      *
@@ -81,6 +110,38 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        Span span = startSpan(request, response);
+        boolean proceed;
+        try {
+            proceed = doPreHandle(request, response, handler);
+        } catch (Exception | Error e) {
+            // 抛出异常时不会调用本拦截器的 afterCompletion
+            Tracer.finish(span, e);
+            throw e;
+        }
+        if (!proceed) {
+            // 请求被拦截时不会调用 afterCompletion
+            Tracer.finish(span, null);
+        }
+        return proceed;
+    }
+
+    /**
+     * 异步请求开始，请求的片段将在 {@link #afterCompletion}中结束
+     *
+     * @param request {@link HttpServletRequest}
+     * @param response {@link HttpServletResponse}
+     * @param handler {@link Object}
+     *
+     * @since 1.0.7
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Tracer.detach((Span) request.getAttribute(SPAN_ATTRIBUTE));
+    }
+
+    private boolean doPreHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         Preconditions.checkNotNull(DefaultWebInterceptor.configBean);
         String url = request.getServletPath();
         if (BootConfig.isDebug()) {
@@ -94,6 +155,15 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
             interceptHandler.handleBlackList(request, response, handler);
             return false;
         }
+        // 限流，异步请求再次分派时已经获取过令牌
+        RateLimitBean rateLimitBean = request.getDispatcherType() == DispatcherType.ASYNC ? null : findRateLimit(url);
+        if (Objects.nonNull(rateLimitBean) && !tryAcquire(request, rateLimitBean)) {
+            if (BootConfig.isDebug()) {
+                LOGGER.info(StrUtil.format("url -> {}, rate limited", url));
+            }
+            interceptHandler.handleRateLimited(request, response, handler, rateLimitBean);
+            return false;
+        }
         // 白名单
         if (StrUtil.startWithAny(url, DefaultWebInterceptor.configBean.getWhitePrefixes())) {
             if (BootConfig.isDebug()) {
@@ -112,6 +182,56 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 查找第一个匹配的限流规则
+     *
+     * @param url 请求路径
+     *
+     * @return 限流规则，没有匹配的规则时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private static RateLimitBean findRateLimit(String url) {
+        RateLimitBean[] rateLimits = DefaultWebInterceptor.configBean.getRateLimits();
+        if (Objects.nonNull(rateLimits)) {
+            for (RateLimitBean rateLimitBean : rateLimits) {
+                if (StrUtil.startWith(url, rateLimitBean.getPrefix())) {
+                    return rateLimitBean;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按限流规则获取令牌，限流的键为规则的前缀加上客户端IP或令牌的摘要（令牌本身不会写入 Redis）
+     *
+     * @param request {@link HttpServletRequest}
+     * @param rateLimitBean 限流规则
+     *
+     * @return 是否获取成功
+     *
+     * @since 1.0.7
+     */
+    private static boolean tryAcquire(HttpServletRequest request, RateLimitBean rateLimitBean) {
+        if (Objects.isNull(rateLimiter)) {
+            synchronized (DefaultWebInterceptor.class) {
+                if (Objects.isNull(rateLimiter)) {
+                    rateLimiter = new RedisRateLimiter();
+                }
+            }
+        }
+        String key = rateLimitBean.getPrefix();
+        if (rateLimitBean.getKeyType() == RateLimitBean.KeyType.TOKEN) {
+            String token = HttpUtils.getToken(request);
+            key += StrUtil.isBlank(token) ? "ip:" + request.getRemoteAddr() : "token:" + DigestUtil.sha256Hex(token);
+        } else if (rateLimitBean.getKeyType() == RateLimitBean.KeyType.IP) {
+            key += "ip:" + request.getRemoteAddr();
+        }
+        return rateLimiter.tryAcquire(key, rateLimitBean.getPermitsPerSecond(), rateLimitBean.getBurst(),
+                rateLimitBean.getLeaseSize());
+    }
+
     /**
      * 拦截之后的处理
      *
@@ -143,6 +263,45 @@ public final class DefaultWebInterceptor implements HandlerInterceptor {
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
                                 Exception ex) throws Exception {
-        interceptHandler.afterCompletion(request, response, handler, ex);
+        try {
+            interceptHandler.afterCompletion(request, response, handler, ex);
+        } finally {
+            Tracer.finish((Span) request.getAttribute(SPAN_ATTRIBUTE), ex);
+        }
+    }
+
+    /**
+     * 开始请求的片段，延续请求头中的调用链编号，并在响应头中返回调用链编号。异步请求再次分派时继续使用原来的片段
+     *
+     * @param request {@link HttpServletRequest}
+     * @param response {@link HttpServletResponse}
+     *
+     * @return {@link Span}，未开启追踪时返回NULL
+     *
+     * @since 1.0.7
+     */
+    private Span startSpan(HttpServletRequest request, HttpServletResponse response) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            Span span = (Span) request.getAttribute(SPAN_ATTRIBUTE);
+            if (Objects.nonNull(span)) {
+                Tracer.attach(span);
+                return span;
+            }
+        }
+        if (!Tracer.isEnabled()) {
+            return null;
+        }
+        String traceId = request.getHeader(Tracer.TRACE_ID_HEADER);
+        String parentId = request.getHeader(Tracer.SPAN_ID_HEADER);
+        if (!Tracer.isValidId(traceId)) {
+            traceId = null;
+        }
+        if (!Tracer.isValidId(parentId)) {
+            parentId = null;
+        }
+        Span span = Tracer.start(request.getMethod() + " " + request.getServletPath(), traceId, parentId);
+        request.setAttribute(SPAN_ATTRIBUTE, span);
+        response.setHeader(Tracer.TRACE_ID_HEADER, span.getTraceId());
+        return span;
     }
 }
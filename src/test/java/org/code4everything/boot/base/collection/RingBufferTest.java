@@ -0,0 +1,52 @@
+package org.code4everything.boot.base.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RingBufferTest {
+
+    @Test
+    public void offerAndPoll() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        Assert.assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(4));
+        Assert.assertEquals(0, buffer.poll().intValue());
+        Assert.assertTrue(buffer.offer(4));
+        Assert.assertEquals(4, buffer.drain(i -> {}, 10));
+        Assert.assertNull(buffer.poll());
+    }
+
+    @Test
+    public void threadSafe() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int offset = p * 100000;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    while (!buffer.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        while (received.size() < 400000) {
+            Integer e = buffer.poll();
+            if (e != null) {
+                Assert.assertTrue(received.add(e));
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertTrue(buffer.isEmpty());
+    }
+}
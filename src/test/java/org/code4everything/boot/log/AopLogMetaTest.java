@@ -0,0 +1,104 @@
+package org.code4everything.boot.log;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.code4everything.boot.annotations.AopLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+public class AopLogMetaTest {
+
+    @After
+    public void tearDown() {
+        AopLogUtils.resetMethodStats();
+    }
+
+    @Test
+    public void methodStats() throws NoSuchMethodException {
+        Method utilDate = Target.class.getMethod("format", java.util.Date.class);
+        Method sqlDate = Target.class.getMethod("format", java.sql.Date.class);
+        AopLogMeta utilMeta = AopLogMeta.of(newJoinPoint(new Target(), utilDate));
+        AopLogMeta sqlMeta = AopLogMeta.of(newJoinPoint(new Target(), sqlDate));
+        String utilName = Target.class.getName() + "#format(java.util.Date)";
+        Assert.assertEquals(utilName, utilMeta.getFullName());
+        // 同名类型的重载方法分别统计
+        Assert.assertNotSame(utilMeta.getStats(), sqlMeta.getStats());
+
+        utilMeta.getStats().record(1000, false);
+        utilMeta.getStats().record(2000, true);
+        Assert.assertSame(utilMeta.getStats(), AopLogUtils.getMethodStats(utilName));
+        Assert.assertEquals(2, AopLogUtils.getMethodStats().get(utilName).getCount());
+        Assert.assertEquals(1, AopLogUtils.getMethodStats().get(utilName).getErrorCount());
+        Assert.assertEquals(0, AopLogUtils.getMethodStats().get(Target.class.getName() + "#format(java.sql.Date)")
+                .getCount());
+
+        AopLogUtils.resetMethodStats();
+        Assert.assertEquals(0, AopLogUtils.getMethodStats().get(utilName).getCount());
+    }
+
+    @Test
+    public void cacheScannedMeta() {
+        JoinPoint joinPoint = newJoinPoint(new Target(), "hello", "boot");
+        AopLogMeta meta = AopLogMeta.of(joinPoint);
+        Assert.assertEquals("hello", meta.getDescription());
+        // 非方法切点也只扫描一次，令牌桶在调用之间共享
+        Assert.assertSame(meta, AopLogMeta.of(joinPoint));
+        Assert.assertTrue(meta.sample());
+        Assert.assertFalse(AopLogMeta.of(joinPoint).sample());
+    }
+
+    static JoinPoint newJoinPoint(Object target, String methodName, Object... args) {
+        Signature signature = (Signature) Proxy.newProxyInstance(AopLogMetaTest.class.getClassLoader(),
+                new Class<?>[]{Signature.class}, (proxy, method, methodArgs) -> "getName".equals(method.getName()) ?
+                        methodName : null);
+        return newJoinPoint(target, signature, args);
+    }
+
+    static JoinPoint newJoinPoint(Object target, Method targetMethod, Object... args) {
+        MethodSignature signature = (MethodSignature) Proxy.newProxyInstance(AopLogMetaTest.class.getClassLoader(),
+                new Class<?>[]{MethodSignature.class}, (proxy, method, methodArgs) -> {
+                    if ("getMethod".equals(method.getName())) {
+                        return targetMethod;
+                    }
+                    return "getName".equals(method.getName()) ? targetMethod.getName() : null;
+                });
+        return newJoinPoint(target, signature, args);
+    }
+
+    private static JoinPoint newJoinPoint(Object target, Signature signature, Object[] args) {
+        return (JoinPoint) Proxy.newProxyInstance(AopLogMetaTest.class.getClassLoader(),
+                new Class<?>[]{JoinPoint.class}, (proxy, method, methodArgs) -> {
+                    switch (method.getName()) {
+                        case "getTarget":
+                            return target;
+                        case "getSignature":
+                            return signature;
+                        case "getArgs":
+                            return args;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    public static class Target {
+
+        @AopLog(value = "hello", permitsPerSecond = 1)
+        public String hello(String name) {
+            return "hello " + name;
+        }
+
+        public String format(java.util.Date date) {
+            return date.toString();
+        }
+
+        public String format(java.sql.Date date) {
+            return date.toString();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.code4everything.boot.log;
+
+import com.alibaba.fastjson.JSON;
+import org.code4everything.boot.bean.LogBean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+
+public class ArgsSerializerTest {
+
+    @After
+    public void tearDown() {
+        ArgsSerializer.setMaxArgLength(1024);
+        ArgsSerializer.setMaxTotalLength(4096);
+    }
+
+    @Test
+    public void serialize() {
+        byte[] bytes = new byte[1 << 20];
+        String args = ArgsSerializer.serialize(new Object[]{"boot", 1, null, bytes, new ByteArrayInputStream(bytes)});
+        Assert.assertEquals("[\"boot\",1,null,\"byte[1048576]\",\"java.io.ByteArrayInputStream\"]", args);
+    }
+
+    @Test
+    public void multipartFile() {
+        MultipartFile file = (MultipartFile) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{MultipartFile.class}, (proxy, method, args) -> {
+                    if ("getOriginalFilename".equals(method.getName())) {
+                        return "boot.txt";
+                    }
+                    return "getSize".equals(method.getName()) ? 16L : null;
+                });
+        Assert.assertEquals("[\"MultipartFile[boot.txt,16]\"]", ArgsSerializer.serialize(new Object[]{file}));
+    }
+
+    @Test
+    public void truncate() {
+        ArgsSerializer.setMaxArgLength(64);
+        String args = ArgsSerializer.serialize(new Object[]{new String(new char[10000]).replace('\0', 'a')});
+        Assert.assertTrue(args.length() < 100);
+        Assert.assertEquals(1, JSON.parseArray(args).size());
+    }
+
+    @Test
+    public void lazy() {
+        LogBean logBean = new LogBean().setRawArgs(new Object[]{"boot"});
+        Assert.assertNotNull(logBean.getRawArgs());
+        Assert.assertEquals("[\"boot\"]", logBean.getArgs());
+        Assert.assertNull(logBean.getRawArgs());
+    }
+}
@@ -0,0 +1,23 @@
+package org.code4everything.boot.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CorrelationSlotTest {
+
+    @Test
+    public void putAndRemove() {
+        CorrelationSlot slot = CorrelationSlot.current();
+        for (int i = 0; i < 4; i++) {
+            slot.put("key" + i, "log" + i);
+        }
+        Assert.assertEquals("log1", slot.remove("key1"));
+        Assert.assertNull(slot.remove("key1"));
+        // 使用移除后空闲的位置，不覆盖其他条目
+        slot.put("key4", "log4");
+        Assert.assertEquals("log0", slot.remove("key0"));
+        Assert.assertEquals("log2", slot.remove("key2"));
+        Assert.assertEquals("log3", slot.remove("key3"));
+        Assert.assertEquals("log4", slot.remove("key4"));
+    }
+}
@@ -0,0 +1,107 @@
+package org.code4everything.boot.log;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DeferredResultSupportTest {
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private final List<Runnable> completionHandlers = new ArrayList<>();
+
+    private final List<Runnable> timeoutHandlers = new ArrayList<>();
+
+    private HttpServletRequest request;
+
+    @Before
+    public void setUp() {
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void completeKeepsExistingCallback() throws Exception {
+        DeferredResult<String> deferredResult = new DeferredResult<>();
+        AtomicBoolean existing = new AtomicBoolean();
+        deferredResult.onCompletion(() -> existing.set(true));
+        AtomicReference<Object> value = new AtomicReference<>();
+        Assert.assertTrue(DeferredResultSupport.onCompletion(deferredResult, (result, e) -> value.set(result)));
+
+        startProcessing(deferredResult);
+        deferredResult.setResult("done");
+        Assert.assertNull(value.get());
+        completionHandlers.forEach(Runnable::run);
+        Assert.assertEquals("done", value.get());
+        Assert.assertTrue(existing.get());
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        DeferredResult<String> deferredResult = new DeferredResult<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Assert.assertTrue(DeferredResultSupport.onCompletion(deferredResult, (result, e) -> error.set(e)));
+
+        startProcessing(deferredResult);
+        timeoutHandlers.forEach(Runnable::run);
+        completionHandlers.forEach(Runnable::run);
+        Assert.assertNotNull(error.get());
+    }
+
+    @Test
+    public void withoutRequest() {
+        RequestContextHolder.resetRequestAttributes();
+        Assert.assertFalse(DeferredResultSupport.onCompletion(new DeferredResult<>(), (result, e) -> {}));
+    }
+
+    private void startProcessing(DeferredResult<?> deferredResult) throws Exception {
+        AsyncWebRequest asyncWebRequest = (AsyncWebRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{AsyncWebRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addCompletionHandler":
+                            completionHandlers.add((Runnable) args[0]);
+                            return null;
+                        case "addTimeoutHandler":
+                            timeoutHandlers.add((Runnable) args[0]);
+                            return null;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+        WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+        manager.setAsyncWebRequest(asyncWebRequest);
+        manager.startDeferredResultProcessing(deferredResult);
+    }
+}
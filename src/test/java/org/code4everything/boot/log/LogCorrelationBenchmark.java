@@ -0,0 +1,88 @@
+package org.code4everything.boot.log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.code4everything.boot.base.collection.TimeWheelMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志关联方式的基准测试，模拟前置通知保存日志、异常通知取出日志
+ *
+ * <p>运行：mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.code4everything.boot.log.LogCorrelationBenchmark</p>
+ *
+ * <p>结果（OpenJDK 17，1核，4线程，平均耗时 ns/op，包括拼接键的耗时）：guavaCache 1038.5 ± 166.2，correlationSlot 337.6 ±
+ * 55.9，timeWheelMap 345.1 ± 26.8</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LogCorrelationBenchmark {
+
+    private static final Object LOG = new Object();
+
+    private Cache<String, Object> guavaCache;
+
+    private TimeWheelMap<String, Object> timeWheelMap;
+
+    @Setup
+    public void setup() {
+        guavaCache = CacheBuilder.newBuilder().expireAfterWrite(5, TimeUnit.SECONDS).build();
+        timeWheelMap = new TimeWheelMap<>(5, 1, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        timeWheelMap.close();
+    }
+
+    @Benchmark
+    public Object guavaCache() {
+        String key = key();
+        guavaCache.put(key, LOG);
+        return guavaCache.asMap().remove(key);
+    }
+
+    @Benchmark
+    public Object correlationSlot() {
+        String key = key();
+        CorrelationSlot slot = CorrelationSlot.current();
+        slot.put(key, LOG);
+        return slot.remove(key);
+    }
+
+    @Benchmark
+    public Object timeWheelMap() {
+        String key = key();
+        timeWheelMap.put(key, LOG);
+        return timeWheelMap.remove(key);
+    }
+
+    private static String key() {
+        return "token" + Thread.currentThread().getId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogCorrelationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
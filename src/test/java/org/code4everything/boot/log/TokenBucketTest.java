@@ -0,0 +1,20 @@
+package org.code4everything.boot.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void tryAcquire() {
+        TokenBucket bucket = new TokenBucket(10);
+        int acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (bucket.tryAcquire()) {
+                acquired++;
+            }
+        }
+        // 桶容量为一秒的令牌数
+        Assert.assertTrue(acquired >= 10 && acquired <= 11);
+    }
+}
@@ -0,0 +1,64 @@
+package org.code4everything.boot.log.codec;
+
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.bean.LogExBean;
+import org.code4everything.boot.log.spool.SpooledException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class LogBeanCodecTest {
+
+    @Test
+    public void streamRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (LogBeanWriter writer = new LogBeanWriter(bytes)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(newLogBean(i));
+            }
+            writer.write(newLogBean(100), new IllegalStateException("failed"));
+        }
+        try (LogBeanReader reader = new LogBeanReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < 100; i++) {
+                LogExBean<LogBean> logExBean = reader.read();
+                assertLogBean(i, logExBean.getLog());
+                Assert.assertNull(logExBean.getThrowable());
+            }
+            LogExBean<LogBean> logExBean = reader.read();
+            assertLogBean(100, logExBean.getLog());
+            SpooledException exception = (SpooledException) logExBean.getThrowable();
+            Assert.assertEquals(IllegalStateException.class.getName(), exception.getClassName());
+            Assert.assertEquals("failed", exception.getMessage());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void encodeNullFields() {
+        LogBean logBean = LogBeanCodec.decode(LogBeanCodec.encode(new LogBean().setExecutedTime(-3L)));
+        Assert.assertNull(logBean.getClassName());
+        Assert.assertNull(logBean.getArgs());
+        Assert.assertNull(logBean.getExecutedNanos());
+        Assert.assertEquals(Long.valueOf(-3), logBean.getExecutedTime());
+    }
+
+    private static LogBean newLogBean(int i) {
+        long nanos = 1_234_567L * i;
+        return new LogBean().setClassName("com.example.UserService").setMethodName("get" + (i % 3))
+                .setDescription("查询用户").setArgs("[" + i + "]").setExecutedNanos(nanos)
+                .setExecutedTime(nanos / 1_000_000);
+    }
+
+    private static void assertLogBean(int i, LogBean logBean) {
+        LogBean expected = newLogBean(i);
+        Assert.assertEquals(expected.getClassName(), logBean.getClassName());
+        Assert.assertEquals(expected.getMethodName(), logBean.getMethodName());
+        Assert.assertEquals(expected.getDescription(), logBean.getDescription());
+        Assert.assertEquals(expected.getArgs(), logBean.getArgs());
+        Assert.assertEquals(expected.getExecutedNanos(), logBean.getExecutedNanos());
+        Assert.assertEquals(expected.getExecutedTime(), logBean.getExecutedTime());
+    }
+}
@@ -0,0 +1,64 @@
+package org.code4everything.boot.log.spool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+public class LogSpoolTest {
+
+    @Test
+    public void replayAfterReopen() throws IOException {
+        File directory = Files.createTempDirectory("spool").toFile();
+        LogSpool spool = new LogSpool(directory, 1024, 4);
+        for (int i = 0; i < 100; i++) {
+            spool.append(("record-" + i).getBytes());
+        }
+        Assert.assertEquals(10, spool.peek(10).size());
+        spool.commit();
+        spool.close();
+
+        spool = new LogSpool(directory, 1024, 4);
+        List<byte[]> records = spool.peek(1000);
+        Assert.assertEquals(90, records.size());
+        Assert.assertEquals("record-10", new String(records.get(0)));
+        spool.commit();
+        Assert.assertTrue(spool.isEmpty());
+        Assert.assertEquals(1, spool.getSegmentCount());
+        spool.close();
+    }
+
+    @Test
+    public void dropOldestWhenFull() throws IOException {
+        LogSpool spool = new LogSpool(Files.createTempDirectory("spool").toFile(), 1024, 4);
+        for (int i = 0; i < 1000; i++) {
+            spool.append(("record-" + i).getBytes());
+        }
+        Assert.assertEquals(4, spool.getSegmentCount());
+        Assert.assertTrue(spool.getDroppedSegments() > 0);
+        List<byte[]> records = spool.peek(1000);
+        Assert.assertEquals("record-999", new String(records.get(records.size() - 1)));
+        spool.close();
+    }
+
+    @Test
+    public void accessAfterClose() throws IOException {
+        LogSpool spool = new LogSpool(Files.createTempDirectory("spool").toFile(), 1024, 4);
+        spool.append("record".getBytes());
+        spool.close();
+        Assert.assertTrue(spool.isClosed());
+        Assert.assertTrue(spool.peek(10).isEmpty());
+        spool.force();
+        spool.commit();
+        spool.close();
+        try {
+            spool.append("record".getBytes());
+            Assert.fail();
+        } catch (IOException e) {
+            // 已关闭
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.code4everything.boot.log.spool;
+
+import org.code4everything.boot.bean.LogBean;
+import org.code4everything.boot.service.LogService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SpoolingLogServiceTest {
+
+    private static final SpoolCodec<String> CODEC = new SpoolCodec<String>() {
+        @Override
+        public byte[] encode(String log) {
+            return log.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    public void replayInOrder() throws IOException, InterruptedException {
+        List<String> saved = Collections.synchronizedList(new ArrayList<>());
+        LogSpool spool = new LogSpool(Files.createTempDirectory("spool").toFile(), 4096, 4);
+        SpoolingLogService<String> service = new SpoolingLogService<>(new RecordingLogService(saved), spool, CODEC);
+        for (int i = 0; i < 50; i++) {
+            service.save("log-" + i);
+            if (i % 10 == 0) {
+                service.saveException("log-" + i, new IllegalStateException());
+            }
+        }
+        for (int i = 0; i < 100 && saved.size() < 55; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(55, saved.size());
+        for (int i = 0; i < 50; i += 10) {
+            // 异常日志在对应的日志之后保存
+            Assert.assertTrue(saved.indexOf("log-" + i) < saved.indexOf("exception:log-" + i));
+        }
+        Assert.assertEquals("log-49", saved.get(saved.size() - 1));
+
+        service.close();
+        Assert.assertTrue(spool.isClosed());
+        // 关闭后直接保存
+        service.save("closed");
+        Assert.assertEquals("closed", saved.get(saved.size() - 1));
+    }
+
+    @Test
+    public void exceptionUpdatesSavedLog() throws IOException, InterruptedException {
+        List<Row> rows = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> throwables = Collections.synchronizedList(new ArrayList<>());
+        LogSpool spool = new LogSpool(Files.createTempDirectory("spool").toFile(), 4096, 4);
+        SpoolingLogService<Row> service = new SpoolingLogService<>(new RowLogService(rows, throwables), spool,
+                ROW_CODEC);
+        Row first = service.save(new Row("first"));
+        Row second = service.save(new Row("second"));
+        // 保存时还没有持久化
+        Assert.assertNull(first.id);
+        service.saveException(first, new IllegalStateException("boom"));
+        for (int i = 0; i < 100 && throwables.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        service.close();
+
+        // 异常更新到已保存的日志上，而不是新增一条日志
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("first", rows.get(0).content);
+        Assert.assertEquals("boom", rows.get(0).exception);
+        Assert.assertNull(rows.get(1).exception);
+        Assert.assertNull(second.id);
+
+        // 异常只按类名和信息恢复，不会实例化原始异常类型
+        Assert.assertEquals(1, throwables.size());
+        SpooledException spooled = (SpooledException) throwables.get(0);
+        Assert.assertEquals(IllegalStateException.class.getName(), spooled.getClassName());
+        Assert.assertEquals("boom", spooled.getMessage());
+    }
+
+    private static final SpoolCodec<Row> ROW_CODEC = new SpoolCodec<Row>() {
+        @Override
+        public byte[] encode(Row log) {
+            return log.content.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Row decode(byte[] bytes) {
+            return new Row(new String(bytes, StandardCharsets.UTF_8));
+        }
+    };
+
+    private static class Row {
+
+        private final String content;
+
+        private Long id;
+
+        private String exception;
+
+        private Row(String content) {
+            this.content = content;
+        }
+    }
+
+    private static class RowLogService implements LogService<Row> {
+
+        private final AtomicLong ids = new AtomicLong();
+
+        private final List<Row> rows;
+
+        private final List<Throwable> throwables;
+
+        private RowLogService(List<Row> rows, List<Throwable> throwables) {
+            this.rows = rows;
+            this.throwables = throwables;
+        }
+
+        @Override
+        public Row save(Row log) {
+            log.id = ids.incrementAndGet();
+            rows.add(log);
+            return log;
+        }
+
+        @Override
+        public Row saveException(Row log, Throwable throwable) {
+            throwables.add(throwable);
+            if (log.id == null) {
+                save(log);
+            }
+            log.exception = throwable.getMessage();
+            return log;
+        }
+
+        @Override
+        public Row getLog(LogBean logBean) {
+            return null;
+        }
+    }
+
+    private static class RecordingLogService implements LogService<String> {
+
+        private final List<String> saved;
+
+        private RecordingLogService(List<String> saved) {
+            this.saved = saved;
+        }
+
+        @Override
+        public String save(String log) {
+            saved.add(log);
+            return log;
+        }
+
+        @Override
+        public String saveException(String log, Throwable throwable) {
+            saved.add("exception:" + log);
+            return log;
+        }
+
+        @Override
+        public String getLog(LogBean logBean) {
+            return null;
+        }
+    }
+}
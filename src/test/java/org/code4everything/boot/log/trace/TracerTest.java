@@ -0,0 +1,88 @@
+package org.code4everything.boot.log.trace;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TracerTest {
+
+    @After
+    public void tearDown() {
+        Tracer.setExporter(null);
+        Tracer.shutdown();
+        Tracer.setEnabled(false);
+        Tracer.drainSpans();
+    }
+
+    @Test
+    public void nestedSpans() {
+        Tracer.setEnabled(true);
+        Span root = Tracer.start("GET /user", "4bf92f3577b34da6", null);
+        Span child = Tracer.start("UserService#get(String)");
+        Span grandchild = Tracer.start("UserDao#find(String)");
+        Tracer.finish(grandchild, null);
+        Span sibling = Tracer.start("UserDao#count()");
+        Tracer.finish(sibling, new IllegalStateException());
+        Tracer.finish(child, null);
+        Tracer.finish(root, null);
+        Assert.assertNull(Tracer.currentSpan());
+
+        List<Span> spans = Tracer.drainSpans();
+        Assert.assertEquals(4, spans.size());
+        Assert.assertSame(grandchild, spans.get(0));
+        Assert.assertSame(root, spans.get(3));
+        spans.forEach(span -> Assert.assertEquals("4bf92f3577b34da6", span.getTraceId()));
+        Assert.assertEquals(child.getSpanId(), grandchild.getParentId());
+        Assert.assertEquals(child.getSpanId(), sibling.getParentId());
+        Assert.assertEquals(root.getSpanId(), child.getParentId());
+        Assert.assertEquals(IllegalStateException.class.getName(), sibling.getError());
+        Assert.assertTrue(root.getDurationNanos() >= child.getDurationNanos());
+    }
+
+    @Test
+    public void detachAndDisabled() {
+        Assert.assertNull(Tracer.start("disabled"));
+        Tracer.setEnabled(true);
+        Span async = Tracer.start("async");
+        Tracer.detach(async);
+        Assert.assertNull(Tracer.currentSpan());
+        Span next = Tracer.start("next");
+        Assert.assertNull(next.getParentId());
+        Assert.assertNotEquals(async.getTraceId(), next.getTraceId());
+        Tracer.finish(next, null);
+        Tracer.finish(async, null);
+        Tracer.finish(async, null);
+        Assert.assertEquals(2, Tracer.drainSpans().size());
+    }
+
+    @Test
+    public void validId() {
+        Assert.assertTrue(Tracer.isValidId(Tracer.newId()));
+        Assert.assertFalse(Tracer.isValidId("abc\r\n"));
+        Assert.assertFalse(Tracer.isValidId(null));
+    }
+
+    @Test
+    public void shutdownExportsRemaining() throws InterruptedException {
+        List<Span> exported = Collections.synchronizedList(new ArrayList<>());
+        Tracer.setEnabled(true);
+        Tracer.setExporter(exported::addAll);
+        Tracer.finish(Tracer.start("first"), null);
+        Tracer.finish(Tracer.start("second"), null);
+        Tracer.shutdown();
+
+        Assert.assertEquals(2, exported.size());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            Assert.assertNotEquals("boot-span-exporter", thread.getName());
+        }
+        // 停止后再次设置导出器会重新启动导出线程
+        Tracer.setExporter(exported::addAll);
+        Tracer.finish(Tracer.start("third"), null);
+        Tracer.shutdown();
+        Assert.assertEquals(3, exported.size());
+    }
+}
@@ -0,0 +1,48 @@
+package org.code4everything.boot.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void indexOf() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = Histogram.indexOf(value);
+            Assert.assertTrue(value <= Histogram.highestValueOf(index));
+            if (index > 0) {
+                Assert.assertTrue(value > Histogram.highestValueOf(index - 1));
+            }
+        }
+        Assert.assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void getValueAtPercentile() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+        Assert.assertEquals(100000, histogram.getCount());
+        Assert.assertEquals(100000000, histogram.getMax());
+        assertNear(50000000, histogram.getValueAtPercentile(50));
+        assertNear(99000000, histogram.getValueAtPercentile(99));
+        assertNear(99900000, histogram.getValueAtPercentile(99.9));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void recorder() {
+        MemoryMetricsRecorder recorder = new MemoryMetricsRecorder();
+        recorder.recordLatency(HttpMetrics.UPLOAD_TOTAL, 100);
+        recorder.recordBytes(HttpMetrics.UPLOAD_BYTES, 1024);
+        recorder.recordBytes(HttpMetrics.UPLOAD_BYTES, 1024);
+        Assert.assertEquals(1, recorder.getHistogram(HttpMetrics.UPLOAD_TOTAL).getCount());
+        Assert.assertEquals(2048, recorder.getBytes(HttpMetrics.UPLOAD_BYTES));
+    }
+
+    private void assertNear(long expected, long actual) {
+        Assert.assertTrue(actual + " is not near " + expected, Math.abs(actual - expected) <= expected / 32);
+    }
+}
@@ -0,0 +1,86 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryRedisSerializerTest {
+
+    @Test
+    public void roundTrip() {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", 10086L);
+        user.put("name", "潘滔");
+        user.put("score", 99.5D);
+        user.put("balance", new BigDecimal("12.30"));
+        user.put("enabled", true);
+        user.put("avatar", null);
+        List<Object> friends = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> friend = new LinkedHashMap<>();
+            friend.put("id", i);
+            friend.put("name", "friend" + i);
+            friends.add(friend);
+        }
+        user.put("friends", friends);
+
+        BinaryRedisSerializer<Object> serializer = new BinaryRedisSerializer<>(Object.class);
+        byte[] bytes = serializer.serialize(user);
+        Assert.assertEquals(user, serializer.deserialize(bytes));
+        Assert.assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    public void compressAboveThreshold() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add("aaaaaaaaaaaaaaaaaaaa" + i);
+        }
+        BinaryRedisSerializer<Object> compressed = new BinaryRedisSerializer<>(Object.class, 64);
+        BinaryRedisSerializer<Object> raw = new BinaryRedisSerializer<>(Object.class, -1);
+        byte[] compressedBytes = compressed.serialize(values);
+        byte[] rawBytes = raw.serialize(values);
+        Assert.assertEquals(1, compressedBytes[0]);
+        Assert.assertTrue(compressedBytes.length < rawBytes.length);
+        Assert.assertEquals(values, compressed.deserialize(compressedBytes));
+        Assert.assertEquals(values, raw.deserialize(compressedBytes));
+    }
+
+    @Test
+    public void bytesValue() {
+        BinaryRedisSerializer<Object> serializer = new BinaryRedisSerializer<>(Object.class);
+        byte[] value = {1, 2, 3, -1};
+        Assert.assertArrayEquals(value, (byte[]) serializer.deserialize(serializer.serialize(value)));
+    }
+
+    @Test
+    public void rejectOversizedHeader() {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add("aaaaaaaaaaaaaaaaaaaa" + i);
+        }
+        byte[] bytes = new BinaryRedisSerializer<>(Object.class, 64).serialize(values);
+        // 解压后超过限制
+        try {
+            new BinaryRedisSerializer<>(Object.class, 64, 256).deserialize(bytes);
+            Assert.fail();
+        } catch (SerializationException e) {
+            Assert.assertTrue(e.getMessage().contains("too large"));
+        }
+
+        // 伪造的长度（约2GB）不会被用来分配内存
+        byte[] forged = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x00};
+        try {
+            new BinaryRedisSerializer<>(Object.class).deserialize(forged);
+            Assert.fail();
+        } catch (SerializationException e) {
+            Assert.assertTrue(e.getMessage().contains("too large"));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class CacheAsideLoaderTest {
+
+    @Test
+    public void entryRoundTrip() {
+        byte[] value = "user".getBytes(StandardCharsets.UTF_8);
+        CacheEntry entry = CacheEntry.decode(CacheEntry.encode(1000L, 25, value));
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(1000L, entry.expireAt);
+        Assert.assertEquals(25, entry.delta);
+        Assert.assertArrayEquals(value, entry.value);
+
+        CacheEntry nullEntry = CacheEntry.decode(CacheEntry.encode(1000L, 25, null));
+        Assert.assertNotNull(nullEntry);
+        Assert.assertNull(nullEntry.value);
+
+        // 不是缓存条目时当作未命中
+        Assert.assertNull(CacheEntry.decode(null));
+        Assert.assertNull(CacheEntry.decode("{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void refreshEarly() {
+        CacheEntry entry = CacheEntry.decode(CacheEntry.encode(10000L, 100, new byte[0]));
+        Assert.assertNotNull(entry);
+        // 已经过期时总是刷新
+        Assert.assertTrue(entry.shouldRefresh(10000L, 1, 1));
+        // 系数为0时过期前不刷新
+        Assert.assertFalse(entry.shouldRefresh(9999L, 0, 0.001));
+
+        Random random = new Random(7);
+        int far = 0;
+        int near = 0;
+        for (int i = 0; i < 10000; i++) {
+            double r = 1 - random.nextDouble();
+            far += entry.shouldRefresh(9000L, 1, r) ? 1 : 0;
+            near += entry.shouldRefresh(9950L, 1, r) ? 1 : 0;
+        }
+        // 距离过期10倍加载耗时时几乎不刷新，距离0.5倍时约有 e^-0.5 的概率刷新
+        Assert.assertTrue(far < 10);
+        Assert.assertTrue(near > 5500 && near < 6600);
+    }
+}
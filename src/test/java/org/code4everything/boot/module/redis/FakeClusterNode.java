@@ -0,0 +1,266 @@
+package org.code4everything.boot.module.redis;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用于测试的 Redis 集群节点，通过 RESP 协议支持 CLUSTER SLOTS、GET、SET、PSETEX、DEL 和 EVAL（只支持 SET PX 脚本）
+ *
+ * <p>同一个集群的节点共享槽位的归属，键不属于当前节点时返回 MOVED</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class FakeClusterNode implements AutoCloseable {
+
+    private static final String HOST = "127.0.0.1";
+
+    private final ServerSocket server;
+
+    private final int[] owners;
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+    private final AtomicInteger commands = new AtomicInteger();
+
+    /**
+     * 构造函数，启动节点
+     *
+     * @param owners 槽位归属的节点端口，同一个集群的节点共享，为0的槽位归属第一个启动的节点
+     *
+     * @throws IOException 启动失败
+     */
+    public FakeClusterNode(int[] owners) throws IOException {
+        this.owners = owners;
+        this.server = new ServerSocket(0, 50, InetAddress.getByName(HOST));
+        synchronized (owners) {
+            for (int i = 0; i < owners.length; i++) {
+                if (owners[i] == 0) {
+                    owners[i] = getPort();
+                }
+            }
+        }
+        Thread acceptor = new Thread(this::accept, "fake-redis-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public String getNode() {
+        return HOST + ":" + getPort();
+    }
+
+    public Map<String, byte[]> getValues() {
+        return values;
+    }
+
+    public Map<String, Long> getTtls() {
+        return ttls;
+    }
+
+    /**
+     * 获取收到的命令数，不包括 CLUSTER SLOTS
+     *
+     * @return 命令数
+     */
+    public int getCommandCount() {
+        return commands.get();
+    }
+
+    /**
+     * 将槽位迁移到指定节点
+     *
+     * @param slot 槽位
+     * @param target 目标节点
+     */
+    public void moveSlot(int slot, FakeClusterNode target) {
+        synchronized (owners) {
+            owners[slot] = target.getPort();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> handle(socket), "fake-redis-client-" + getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                execute(command, reply);
+                out.write(reply.toByteArray());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 连接已关闭
+        }
+    }
+
+    private void execute(List<byte[]> command, ByteArrayOutputStream reply) throws IOException {
+        String name = string(command.get(0)).toUpperCase();
+        if ("CLUSTER".equals(name)) {
+            writeSlots(reply);
+            return;
+        }
+        commands.incrementAndGet();
+        if ("PING".equals(name)) {
+            reply.write(bytes("+PONG\r\n"));
+            return;
+        }
+        if (command.size() < 2) {
+            // 关闭连接时的 QUIT
+            reply.write(bytes("+OK\r\n"));
+            return;
+        }
+        // EVAL 脚本 键数 键 值 过期时间
+        byte[] key = "EVAL".equals(name) ? command.get(3) : command.get(1);
+        int slot = RedisSlots.slot(key);
+        int owner;
+        synchronized (owners) {
+            owner = owners[slot];
+        }
+        if (owner != getPort()) {
+            reply.write(bytes("-MOVED " + slot + " " + HOST + ":" + owner + "\r\n"));
+            return;
+        }
+        String keyName = string(key);
+        switch (name) {
+            case "GET":
+                writeBulk(reply, values.get(keyName));
+                break;
+            case "SET":
+                values.put(keyName, command.get(2));
+                ttls.remove(keyName);
+                reply.write(bytes("+OK\r\n"));
+                break;
+            case "PSETEX":
+                values.put(keyName, command.get(3));
+                ttls.put(keyName, Long.parseLong(string(command.get(2))));
+                reply.write(bytes("+OK\r\n"));
+                break;
+            case "EVAL":
+                values.put(keyName, command.get(4));
+                ttls.put(keyName, Long.parseLong(string(command.get(5))));
+                reply.write(bytes("+OK\r\n"));
+                break;
+            case "DEL":
+                ttls.remove(keyName);
+                reply.write(bytes(":" + (values.remove(keyName) == null ? 0 : 1) + "\r\n"));
+                break;
+            default:
+                reply.write(bytes("-ERR unknown command '" + name + "'\r\n"));
+        }
+    }
+
+    private void writeSlots(ByteArrayOutputStream reply) throws IOException {
+        List<int[]> ranges = new ArrayList<>();
+        synchronized (owners) {
+            int start = 0;
+            for (int slot = 1; slot <= owners.length; slot++) {
+                if (slot == owners.length || owners[slot] != owners[start]) {
+                    ranges.add(new int[]{start, slot - 1, owners[start]});
+                    start = slot;
+                }
+            }
+        }
+        reply.write(bytes("*" + ranges.size() + "\r\n"));
+        for (int[] range : ranges) {
+            reply.write(bytes("*3\r\n:" + range[0] + "\r\n:" + range[1] + "\r\n*2\r\n"));
+            writeBulk(reply, bytes(HOST));
+            reply.write(bytes(":" + range[2] + "\r\n"));
+        }
+    }
+
+    private static void writeBulk(ByteArrayOutputStream reply, byte[] value) throws IOException {
+        if (value == null) {
+            reply.write(bytes("$-1\r\n"));
+            return;
+        }
+        reply.write(bytes("$" + value.length + "\r\n"));
+        reply.write(value);
+        reply.write(bytes("\r\n"));
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<byte[]> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = Integer.parseInt(readLine(in).substring(1));
+            byte[] arg = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(arg, read, length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+            readLine(in);
+            command.add(arg);
+        }
+        return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                return null;
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package org.code4everything.boot.module.redis;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存中的 Redis 集群，槽位平均分配到各个节点，用于离线测试
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class InMemoryClusterNodeClient implements ClusterNodeClient {
+
+    private final String[] nodes;
+
+    private final Map<String, Map<ByteBuffer, byte[]>> data = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> roundTrips = new ConcurrentHashMap<>();
+
+    public InMemoryClusterNodeClient(int nodeCount) {
+        nodes = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = "127.0.0.1:" + (7000 + i);
+            data.put(nodes[i], new ConcurrentHashMap<>());
+            roundTrips.put(nodes[i], new AtomicInteger());
+        }
+    }
+
+    @Override
+    public String getNode(int slot) {
+        return nodes[slot * nodes.length / RedisSlots.SLOT_COUNT];
+    }
+
+    @Override
+    public List<byte[]> get(String node, List<byte[]> keys) {
+        Map<ByteBuffer, byte[]> store = pipeline(node, keys);
+        List<byte[]> values = new ArrayList<>(keys.size());
+        keys.forEach(key -> values.add(store.get(ByteBuffer.wrap(key))));
+        return values;
+    }
+
+    @Override
+    public void set(String node, List<byte[]> keys, List<byte[]> values, long ttlMillis) {
+        Map<ByteBuffer, byte[]> store = pipeline(node, keys);
+        for (int i = 0; i < keys.size(); i++) {
+            store.put(ByteBuffer.wrap(keys.get(i)), values.get(i));
+        }
+    }
+
+    @Override
+    public void delete(String node, List<byte[]> keys) {
+        Map<ByteBuffer, byte[]> store = pipeline(node, keys);
+        keys.forEach(key -> store.remove(ByteBuffer.wrap(key)));
+    }
+
+    public String[] getNodes() {
+        return nodes;
+    }
+
+    public int getRoundTrips(String node) {
+        return roundTrips.get(node).get();
+    }
+
+    public int size(String node) {
+        return data.get(node).size();
+    }
+
+    /**
+     * 模拟一次管道往返，键不属于节点时与 Redis 一样返回 MOVED
+     */
+    private Map<ByteBuffer, byte[]> pipeline(String node, List<byte[]> keys) {
+        for (byte[] key : keys) {
+            int slot = RedisSlots.slot(key);
+            if (!getNode(slot).equals(node)) {
+                throw new IllegalStateException("MOVED " + slot + " " + getNode(slot));
+            }
+        }
+        roundTrips.get(node).incrementAndGet();
+        return data.get(node);
+    }
+}
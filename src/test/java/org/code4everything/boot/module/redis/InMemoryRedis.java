@@ -0,0 +1,175 @@
+package org.code4everything.boot.module.redis;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 用于测试的内存 Redis，只支持字符串的读写、删除和发布，支持管道
+ *
+ * <p>管道中失败的命令与 Jedis 一致：关闭管道时抛出 {@link RedisPipelineException}，其中包含每个命令的结果或异常</p>
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class InMemoryRedis {
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+    private final List<String> published = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile Consumer<String> onGet = key -> {};
+
+    private final List<Integer> pipelines = Collections.synchronizedList(new ArrayList<>());
+
+    private final ThreadLocal<List<Object>> pipeline = new ThreadLocal<>();
+
+    private volatile String failingKey;
+
+    private final RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(
+            InMemoryRedis.class.getClassLoader(), new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "openPipeline":
+                        pipeline.set(new ArrayList<>());
+                        return null;
+                    case "isPipelined":
+                        return pipeline.get() != null;
+                    case "closePipeline":
+                        return closePipeline();
+                    default:
+                        break;
+                }
+                Object result;
+                try {
+                    result = execute(method, args);
+                } catch (IllegalStateException e) {
+                    if (pipeline.get() == null) {
+                        throw e;
+                    }
+                    result = e;
+                }
+                if (pipeline.get() == null) {
+                    return result;
+                }
+                pipeline.get().add(result);
+                return method.getReturnType() == boolean.class ? false : null;
+            });
+
+    /**
+     * 获取模板，键使用 {@link StringRedisSerializer}
+     *
+     * @param serializer 值的序列化器
+     * @param <V> 值类型
+     *
+     * @return {@link RedisTemplate}
+     */
+    public <V> RedisTemplate<String, V> newTemplate(RedisSerializer<V> serializer) {
+        RedisConnectionFactory factory = (RedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection : null);
+        RedisTemplate<String, V> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(serializer);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 设置读取键时的回调，用于模拟读取期间发生的并发操作
+     *
+     * @param onGet 回调，参数为键
+     */
+    public void setOnGet(Consumer<String> onGet) {
+        this.onGet = onGet;
+    }
+
+    /**
+     * 设置执行失败的键，对这个键的命令都会抛出异常
+     *
+     * @param failingKey 键，为NULL时不失败
+     */
+    public void setFailingKey(String failingKey) {
+        this.failingKey = failingKey;
+    }
+
+    /**
+     * 获取每个管道中的命令数
+     *
+     * @return 命令数
+     */
+    public List<Integer> getPipelines() {
+        return pipelines;
+    }
+
+    public Map<String, byte[]> getValues() {
+        return values;
+    }
+
+    public List<String> getPublished() {
+        return published;
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Object execute(Method method, Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof byte[] && string((byte[]) args[0]).equals(
+                failingKey)) {
+            throw new IllegalStateException("failed on " + failingKey);
+        }
+        switch (method.getName()) {
+            case "get":
+                String key = string((byte[]) args[0]);
+                onGet.accept(key);
+                return values.get(key);
+            case "set":
+                values.put(string((byte[]) args[0]), (byte[]) args[1]);
+                return true;
+            case "setEx":
+            case "pSetEx":
+                values.put(string((byte[]) args[0]), (byte[]) args[2]);
+                return true;
+            case "del":
+                long count = 0;
+                for (byte[] bytes : (byte[][]) args[0]) {
+                    count += values.remove(string(bytes)) == null ? 0 : 1;
+                }
+                return count;
+            case "publish":
+                published.add(string((byte[]) args[1]));
+                return 1L;
+            default:
+                return method.getReturnType() == boolean.class ? false : null;
+        }
+    }
+
+    private List<Object> closePipeline() {
+        List<Object> results = pipeline.get();
+        pipeline.remove();
+        if (results == null) {
+            return Collections.emptyList();
+        }
+        pipelines.add(results.size());
+        for (Object result : results) {
+            if (result instanceof Exception) {
+                throw new RedisPipelineException((Exception) result, results);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,107 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisCluster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JedisClusterNodeClientTest {
+
+    private final int[] owners = new int[RedisSlots.SLOT_COUNT];
+
+    private FakeClusterNode first;
+
+    private FakeClusterNode second;
+
+    private JedisCluster cluster;
+
+    private JedisClusterNodeClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        first = new FakeClusterNode(owners);
+        second = new FakeClusterNode(owners);
+        // 后一半槽位归属第二个节点
+        for (int slot = RedisSlots.SLOT_COUNT / 2; slot < RedisSlots.SLOT_COUNT; slot++) {
+            first.moveSlot(slot, second);
+        }
+        cluster = new JedisCluster(new HostAndPort("127.0.0.1", first.getPort()));
+        client = new JedisClusterNodeClient(cluster);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cluster.close();
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void refresh() {
+        Assert.assertEquals(first.getNode(), client.getNode(0));
+        Assert.assertEquals(first.getNode(), client.getNode(RedisSlots.SLOT_COUNT / 2 - 1));
+        Assert.assertEquals(second.getNode(), client.getNode(RedisSlots.SLOT_COUNT / 2));
+        Assert.assertEquals(second.getNode(), client.getNode(RedisSlots.SLOT_COUNT - 1));
+    }
+
+    @Test
+    public void pipeline() {
+        List<byte[]> keys = keysOn(first, 3);
+        List<byte[]> values = Arrays.asList(bytes("a"), bytes("b"), bytes("c"));
+        client.set(first.getNode(), keys, values, 0);
+        client.set(first.getNode(), keys.subList(0, 1), values.subList(0, 1), 60000);
+        Assert.assertEquals(Long.valueOf(60000), first.getTtls().get(string(keys.get(0))));
+
+        List<byte[]> results = client.get(first.getNode(), keys);
+        Assert.assertEquals("a", string(results.get(0)));
+        Assert.assertEquals("c", string(results.get(2)));
+        client.delete(first.getNode(), keys);
+        Assert.assertTrue(first.getValues().isEmpty());
+    }
+
+    @Test
+    public void redirect() {
+        byte[] key = keysOn(first, 1).get(0);
+        int slot = RedisSlots.slot(key);
+        Assert.assertEquals(first.getNode(), client.getNode(slot));
+        // 槽位迁移后，管道中收到 MOVED 的键通过集群重试，并刷新映射
+        first.moveSlot(slot, second);
+        second.getValues().put(string(key), bytes("moved"));
+        List<byte[]> results = client.get(first.getNode(), Collections.singletonList(key));
+        Assert.assertEquals("moved", string(results.get(0)));
+        Assert.assertEquals(second.getNode(), client.getNode(slot));
+
+        // 带过期时间的重试通过脚本设置
+        client.set(first.getNode(), Collections.singletonList(key), Collections.singletonList(bytes("v")), 1000);
+        Assert.assertEquals("v", string(second.getValues().get(string(key))));
+        Assert.assertEquals(Long.valueOf(1000), second.getTtls().get(string(key)));
+    }
+
+    private List<byte[]> keysOn(FakeClusterNode node, int count) {
+        byte[][] keys = new byte[count][];
+        int found = 0;
+        for (int i = 0; found < count; i++) {
+            byte[] key = bytes("key:" + i);
+            if (owners[RedisSlots.slot(key)] == node.getPort()) {
+                keys[found++] = key;
+            }
+        }
+        return Arrays.asList(keys);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
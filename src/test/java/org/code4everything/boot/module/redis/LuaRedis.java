@@ -0,0 +1,121 @@
+package org.code4everything.boot.module.redis;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用于测试 Lua 脚本的 Redis，通过 LuaJ 执行脚本，支持 TIME、GET 和 SET（PX），时间由测试控制
+ *
+ * @author pantao
+ * @since 2019/1/30
+ **/
+public class LuaRedis {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final Map<String, Long> ttls = new HashMap<>();
+
+    private long nowMicros = 1548806400000000L;
+
+    private int calls;
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public Map<String, Long> getTtls() {
+        return ttls;
+    }
+
+    public int getCalls() {
+        return calls;
+    }
+
+    public void advance(long micros) {
+        nowMicros += micros;
+    }
+
+    /**
+     * 执行脚本，返回值按 Redis 的规则转换为整数
+     *
+     * @param script 脚本
+     * @param keys 键
+     * @param args 参数
+     *
+     * @return 脚本的返回值
+     */
+    public synchronized long eval(String script, List<String> keys, String... args) {
+        calls++;
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("replicate_commands", new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                return LuaValue.TRUE;
+            }
+        });
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return command(varargs);
+            }
+        });
+        globals.set("redis", redis);
+        LuaValue string = globals.get("string");
+        LuaValue format = string.get("format");
+        string.set("format", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                // LuaJ 的 %d 只支持32位整数，Redis 使用的 Lua 5.1 支持64位整数
+                if ("%d".equals(varargs.checkjstring(1))) {
+                    return LuaValue.valueOf(String.valueOf((long) varargs.checkdouble(2)));
+                }
+                return format.invoke(varargs);
+            }
+        });
+        globals.set("KEYS", toTable(keys.toArray(new String[0])));
+        globals.set("ARGV", toTable(args));
+        return globals.load(script).call().tolong();
+    }
+
+    private LuaValue command(Varargs args) {
+        String command = args.checkjstring(1).toUpperCase();
+        switch (command) {
+            case "TIME":
+                return LuaValue.listOf(new LuaValue[]{LuaValue.valueOf(String.valueOf(nowMicros / 1000000)),
+                        LuaValue.valueOf(String.valueOf(nowMicros % 1000000))});
+            case "GET":
+                String value = values.get(args.checkjstring(2));
+                // Redis 的空回复在 Lua 中为false
+                return value == null ? LuaValue.FALSE : LuaValue.valueOf(value);
+            case "SET":
+                String key = args.checkjstring(2);
+                values.put(key, args.checkjstring(3));
+                if (args.narg() >= 5 && "PX".equalsIgnoreCase(args.checkjstring(4))) {
+                    ttls.put(key, Long.parseLong(args.checkjstring(5)));
+                } else {
+                    ttls.remove(key);
+                }
+                return LuaValue.valueOf("OK");
+            default:
+                throw new UnsupportedOperationException(command);
+        }
+    }
+
+    private static LuaTable toTable(String[] values) {
+        LuaValue[] array = new LuaValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            array[i] = LuaValue.valueOf(values[i]);
+        }
+        return LuaValue.listOf(array);
+    }
+}
@@ -0,0 +1,87 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+public class NearCacheTest {
+
+    private final InMemoryRedis redis = new InMemoryRedis();
+
+    private final NearCache<String> cache = new NearCache<>(redis.newTemplate(new StringRedisSerializer()), null,
+            "test");
+
+    @Test
+    public void getAndInvalidate() {
+        cache.set("user:1", "pantao");
+        Assert.assertEquals("pantao", cache.get("user:1"));
+        Assert.assertEquals(1, cache.getLocalSize());
+
+        // 其他程序修改了 Redis 中的值，失效前仍然返回本地的值
+        redis.getValues().put("user:1", "god".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("pantao", cache.get("user:1"));
+        cache.invalidateLocal("user:1");
+        Assert.assertEquals("god", cache.get("user:1"));
+
+        cache.delete("user:1");
+        Assert.assertNull(cache.get("user:1"));
+        Assert.assertEquals(0, cache.getLocalSize());
+    }
+
+    @Test
+    public void invalidateWhileLoading() {
+        cache.set("user:1", "pantao");
+        cache.invalidateLocal("user:1");
+        // 读取期间同一个键失效，不写入本地缓存
+        redis.setOnGet(key -> cache.invalidateLocal(key));
+        Assert.assertEquals("pantao", cache.get("user:1"));
+        Assert.assertEquals(0, cache.getLocalSize());
+
+        // 读取期间其他键失效，不影响写入本地缓存
+        redis.setOnGet(key -> cache.invalidateLocal("user:2"));
+        Assert.assertEquals("pantao", cache.get("user:1"));
+        Assert.assertEquals(1, cache.getLocalSize());
+    }
+
+    @Test
+    public void onMessage() {
+        cache.set("user:1", "pantao");
+        cache.get("user:1");
+        Assert.assertEquals(1, cache.getLocalSize());
+
+        // 格式错误的通知被忽略
+        cache.onMessage(new DefaultMessage(bytes("boot:near-cache:test"), bytes("user:1")), null);
+        Assert.assertEquals(1, cache.getLocalSize());
+
+        cache.onMessage(new DefaultMessage(bytes("boot:near-cache:test"), bytes("other-node\nuser:1")), null);
+        Assert.assertEquals(0, cache.getLocalSize());
+    }
+
+    @Test
+    public void ownFillSkipsKeyspaceEvents() {
+        NearCache<String> listening = new NearCache<>(redis.newTemplate(new StringRedisSerializer()),
+                new RedisMessageListenerContainer(), "test");
+        listening.listenKeyspaceEvents(0, "user:");
+        listening.fill("user:1", "pantao", 1, TimeUnit.MINUTES);
+        Assert.assertEquals(1, listening.getLocalSize());
+
+        // 回填产生的 set 和 expire 通知不失效本地缓存
+        listening.onMessage(new DefaultMessage(bytes("__keyspace@0__:user:1"), bytes("set")), null);
+        listening.onMessage(new DefaultMessage(bytes("__keyspace@0__:user:1"), bytes("expire")), null);
+        Assert.assertEquals(1, listening.getLocalSize());
+
+        // 之后其他程序的写入仍然失效本地缓存
+        listening.onMessage(new DefaultMessage(bytes("__keyspace@0__:user:1"), bytes("set")), null);
+        Assert.assertEquals(0, listening.getLocalSize());
+        listening.close();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
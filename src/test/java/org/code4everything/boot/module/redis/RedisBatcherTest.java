@@ -0,0 +1,96 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RedisBatcherTest {
+
+    private final InMemoryRedis redis = new InMemoryRedis();
+
+    private RedisBatcher<String> batcher;
+
+    @After
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    public void sizeFlush() throws Exception {
+        // 时间窗口足够长，只有达到批量大小时才会执行
+        batcher = new RedisBatcher<>(redis.newTemplate(new StringRedisSerializer()), 4, 1, TimeUnit.HOURS);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(batcher.set("key" + i, "value" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Collections.singletonList(4), redis.getPipelines());
+        // 等待执行线程处理完这一批，执行期间排队的操作会在同一次执行中被处理
+        batcher.flush().get(5, TimeUnit.SECONDS);
+
+        // 不足批量大小的操作等待时间窗口或者手动执行
+        CompletableFuture<Void> delete = batcher.delete("key0");
+        Thread.sleep(50);
+        Assert.assertFalse(delete.isDone());
+        batcher.flush().get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(delete.isDone());
+        Assert.assertEquals(Arrays.asList(4, 1), redis.getPipelines());
+    }
+
+    @Test
+    public void windowFlush() throws Exception {
+        batcher = new RedisBatcher<>(redis.newTemplate(new StringRedisSerializer()), 100, 20, TimeUnit.MILLISECONDS);
+        CompletableFuture<Void> first = batcher.set("a", "1");
+        CompletableFuture<Void> second = batcher.set("b", "2", 1, TimeUnit.MINUTES);
+        CompletableFuture<String> third = batcher.get("a");
+        Assert.assertEquals("1", third.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(first.isDone() && second.isDone());
+        // 三个操作在时间窗口后的一个管道中执行
+        Assert.assertEquals(Collections.singletonList(3), redis.getPipelines());
+    }
+
+    @Test
+    public void ordering() throws Exception {
+        batcher = new RedisBatcher<>(redis.newTemplate(new StringRedisSerializer()), 100, 1, TimeUnit.HOURS);
+        batcher.set("key", "old");
+        CompletableFuture<String> before = batcher.get("key");
+        batcher.set("key", "new");
+        CompletableFuture<String> after = batcher.get("key");
+        batcher.delete("key");
+        CompletableFuture<String> deleted = batcher.get("key");
+        batcher.flush().get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(Arrays.asList("old", "new", null), Arrays.asList(before.get(), after.get(),
+                deleted.get()));
+        Assert.assertEquals(Collections.singletonList(6), redis.getPipelines());
+    }
+
+    @Test
+    public void perOperationFailure() throws Exception {
+        batcher = new RedisBatcher<>(redis.newTemplate(new StringRedisSerializer()), 100, 1, TimeUnit.HOURS);
+        redis.setFailingKey("bad");
+        CompletableFuture<Void> set = batcher.set("good", "value");
+        CompletableFuture<String> failed = batcher.get("bad");
+        CompletableFuture<String> get = batcher.get("good");
+        batcher.flush().get(5, TimeUnit.SECONDS);
+
+        // 只有失败的操作异常结束，其他操作的结果（包括反序列化后的值）不受影响
+        Assert.assertNull(set.get());
+        Assert.assertEquals("value", get.get());
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RedisClusterBatcherTest {
+
+    private InMemoryClusterNodeClient cluster;
+
+    private RedisClusterBatcher<String> batcher;
+
+    @Before
+    public void setUp() {
+        cluster = new InMemoryClusterNodeClient(3);
+        batcher = new RedisClusterBatcher<>(cluster, new StringRedisSerializer(), new StringRedisSerializer(), 3);
+    }
+
+    @After
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    public void slot() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        Assert.assertEquals(0x31C3, RedisSlots.crc16(check, 0, check.length));
+        Assert.assertEquals(12182, RedisSlots.slot("foo"));
+        Assert.assertEquals(5061, RedisSlots.slot("bar"));
+        Assert.assertEquals(RedisSlots.slot("user1000"), RedisSlots.slot("{user1000}.following"));
+        Assert.assertEquals(RedisSlots.slot("bar"), RedisSlots.slot("foo{bar}{zap}"));
+        // 空的哈希标签使用整个键
+        Assert.assertNotEquals(RedisSlots.slot(""), RedisSlots.slot("foo{}{bar}"));
+        Assert.assertEquals(1, RedisSlots.groupBySlot(Arrays.asList("{a}1", "{a}2", "{a}3")).size());
+    }
+
+    @Test
+    public void roundTripPerNode() {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            values.put("key:" + i, "value:" + i);
+        }
+        batcher.setAll(values);
+        List<String> keys = new ArrayList<>(values.keySet());
+        keys.add("missing");
+        Map<String, String> results = batcher.getAll(keys);
+        Assert.assertEquals(values, results);
+        Assert.assertEquals(new ArrayList<>(values.keySet()), new ArrayList<>(results.keySet()));
+        int total = 0;
+        for (String node : cluster.getNodes()) {
+            // 一次 setAll 和一次 getAll
+            Assert.assertEquals(2, cluster.getRoundTrips(node));
+            total += cluster.size(node);
+        }
+        Assert.assertEquals(1000, total);
+
+        batcher.deleteAll(values.keySet());
+        Assert.assertTrue(batcher.getAll(values.keySet()).isEmpty());
+    }
+
+    @Test
+    public void hashTagOnOneNode() {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            values.put("{user:1}:" + i, String.valueOf(i));
+        }
+        batcher.setAll(values);
+        int nodes = 0;
+        for (String node : cluster.getNodes()) {
+            nodes += cluster.getRoundTrips(node);
+        }
+        Assert.assertEquals(1, nodes);
+    }
+}
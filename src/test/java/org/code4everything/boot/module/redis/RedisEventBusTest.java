@@ -0,0 +1,188 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisEventBusTest {
+
+    @Test
+    public void publish() {
+        List<String> values = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if ("execute".equals(method.getName())) {
+                        Assert.assertEquals("XADD", args[0]);
+                        byte[][] params = (byte[][]) args[1];
+                        Assert.assertEquals("events", new String(params[0], StandardCharsets.UTF_8));
+                        values.add(new String(params[params.length - 1], StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
+        RedisTemplate<String, String> template = new StringTemplate() {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                int before = values.size();
+                action.doInRedis(connection);
+                batches.add(values.size() - before);
+                return Collections.emptyList();
+            }
+        };
+        RedisEventBus<String> bus = new RedisEventBus<>(template, "events", 1024, 16, 1000);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(bus.publish("event-" + i));
+        }
+        bus.close();
+        Assert.assertFalse(bus.publish("closed"));
+        Assert.assertEquals(100, values.size());
+        Assert.assertEquals("event-0", values.get(0));
+        Assert.assertEquals("event-99", values.get(99));
+        Assert.assertTrue(batches.stream().allMatch(size -> size <= 16));
+        Assert.assertEquals(1, bus.getDroppedCount());
+    }
+
+    @Test
+    public void partialFailure() {
+        RedisTemplate<String, String> template = new StringTemplate() {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                // 第二条 XADD 失败
+                Exception error = new IllegalStateException("OOM command not allowed");
+                throw new RedisPipelineException(error, Arrays.asList("1-0", error, "1-2"));
+            }
+        };
+        RedisEventBus<String> bus = new RedisEventBus<>(template, "events", 1024, 16, 1000);
+        bus.flush(Arrays.asList("a", "b", "c"));
+        Assert.assertEquals(1, bus.getDroppedCount());
+        // 没有返回结果的命令也计入丢弃数
+        bus.flush(Arrays.asList("a", "b", "c", "d"));
+        Assert.assertEquals(3, bus.getDroppedCount());
+        bus.close();
+    }
+
+    @Test
+    public void parse() {
+        List<Object> entries = Arrays.asList(
+                Arrays.asList(bytes("1-0"), Arrays.asList(bytes("v"), bytes("upload"))),
+                Arrays.asList(bytes("1-1"), Arrays.asList(bytes("other"), bytes("x"), bytes("v"), bytes("log"))),
+                // 已被裁剪的消息
+                Arrays.asList(bytes("1-2"), null));
+        Object reply = Collections.singletonList(Arrays.asList(bytes("events"), entries));
+        List<String> ids = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        RedisEventConsumer.parse(reply, new StringRedisSerializer(), ids, events);
+        Assert.assertEquals(Arrays.asList("1-0", "1-1", "1-2"), ids);
+        Assert.assertEquals(Arrays.asList("upload", "log"), events);
+
+        ids.clear();
+        RedisEventConsumer.parse(null, new StringRedisSerializer(), ids, events);
+        Assert.assertTrue(ids.isEmpty());
+    }
+
+    @Test
+    public void consumeAndRetry() throws InterruptedException {
+        // 模拟一个流和一个消费组：消息编号到事件，已投递但未确认的消息编号
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            entries.put("1-" + i, "event-" + i);
+        }
+        Set<String> delivered = new LinkedHashSet<>();
+        Set<String> pending = Collections.synchronizedSet(new LinkedHashSet<>());
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if (!"execute".equals(method.getName())) {
+                        return method.getReturnType() == boolean.class ? false : null;
+                    }
+                    byte[][] params = (byte[][]) args[1];
+                    switch ((String) args[0]) {
+                        case "XREADGROUP":
+                            boolean readPending = "0".equals(string(params[params.length - 1]));
+                            List<Object> messages = new ArrayList<>();
+                            entries.forEach((id, event) -> {
+                                if (readPending ? pending.contains(id) : delivered.add(id)) {
+                                    pending.add(id);
+                                    messages.add(Arrays.asList(bytes(id), Arrays.asList(bytes("v"), bytes(event))));
+                                }
+                            });
+                            if (messages.isEmpty()) {
+                                Thread.sleep(10);
+                                return null;
+                            }
+                            return Collections.singletonList(Arrays.asList(bytes("events"), messages));
+                        case "XACK":
+                            for (int i = 2; i < params.length; i++) {
+                                pending.remove(string(params[i]));
+                            }
+                            return (long) params.length - 2;
+                        default:
+                            return "OK";
+                    }
+                });
+        RedisConnectionFactory factory = (RedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection : null);
+        RedisTemplate<String, String> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new StringRedisSerializer());
+        template.afterPropertiesSet();
+
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        RedisEventConsumer<String> consumer = new RedisEventConsumer<>(template, "events", "group", "node-1",
+                events -> {
+                    if (attempts.incrementAndGet() == 1) {
+                        throw new IllegalStateException("handler failed");
+                    }
+                    handled.addAll(events);
+                }, 10, 10);
+        for (int i = 0; i < 100 && (handled.size() < 5 || !pending.isEmpty()); i++) {
+            Thread.sleep(20);
+        }
+        consumer.close();
+        // 第一次处理失败后从待确认列表中重新读取
+        Assert.assertEquals(Arrays.asList("event-0", "event-1", "event-2", "event-3", "event-4"), handled);
+        Assert.assertTrue(pending.isEmpty());
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class StringTemplate extends RedisTemplate<String, String> {
+
+        @Override
+        public RedisSerializer<?> getKeySerializer() {
+            return new StringRedisSerializer();
+        }
+
+        @Override
+        public RedisSerializer<?> getValueSerializer() {
+            return new StringRedisSerializer();
+        }
+    }
+}
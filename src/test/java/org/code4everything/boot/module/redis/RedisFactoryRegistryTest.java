@@ -0,0 +1,120 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisFactoryRegistryTest {
+
+    private final AtomicInteger destroyed = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        RedisFactoryRegistry.destroyAll();
+        RedisFactoryRegistry.removeRoute("session:");
+        RedisFactoryRegistry.removeRoute("session:admin:");
+        RedisTemplateUtils.setRedisConnectionFactory(null);
+    }
+
+    @Test
+    public void defaultTemplateFollowsFactory() {
+        RedisConnectionFactory first = newFactory(true);
+        RedisTemplateUtils.setRedisConnectionFactory(first);
+        RedisTemplate<String, String> template = RedisFactoryRegistry.getTemplate(RedisFactoryRegistry.DEFAULT_NAME,
+                String.class);
+        Assert.assertSame(first, template.getConnectionFactory());
+        Assert.assertSame(template, RedisFactoryRegistry.routeTemplate("user:1", String.class));
+
+        // 替换默认连接池后，模板绑定新的连接池
+        RedisConnectionFactory second = newFactory(true);
+        RedisTemplateUtils.setRedisConnectionFactory(second);
+        template = RedisFactoryRegistry.getTemplate(RedisFactoryRegistry.DEFAULT_NAME, String.class);
+        Assert.assertSame(second, template.getConnectionFactory());
+        // 旧的默认连接池被销毁
+        Assert.assertEquals(1, destroyed.get());
+    }
+
+    @Test
+    public void registerDestroysReplaced() {
+        RedisConnectionFactory shared = newFactory(true);
+        RedisFactoryRegistry.register("cache", shared);
+        RedisFactoryRegistry.register("session", shared);
+        RedisTemplate<String, String> template = RedisFactoryRegistry.getTemplate("cache", String.class);
+
+        // 仍被其他名称使用的连接工厂不会被销毁
+        RedisConnectionFactory replacement = newFactory(true);
+        RedisFactoryRegistry.register("cache", replacement);
+        Assert.assertEquals(0, destroyed.get());
+        Assert.assertNotSame(template, RedisFactoryRegistry.getTemplate("cache", String.class));
+
+        // 重复注册同一个连接工厂不会销毁它
+        RedisFactoryRegistry.register("cache", replacement);
+        Assert.assertEquals(0, destroyed.get());
+
+        RedisFactoryRegistry.register("session", newFactory(true));
+        Assert.assertEquals(1, destroyed.get());
+    }
+
+    @Test
+    public void route() {
+        RedisFactoryRegistry.register("session", newFactory(true));
+        RedisFactoryRegistry.register("admin", newFactory(true));
+        RedisFactoryRegistry.addRoute("session:", "session");
+        RedisFactoryRegistry.addRoute("session:admin:", "admin");
+        Assert.assertEquals("session", RedisFactoryRegistry.route("session:10086"));
+        // 最长的前缀优先
+        Assert.assertEquals("admin", RedisFactoryRegistry.route("session:admin:1"));
+        Assert.assertEquals(RedisFactoryRegistry.DEFAULT_NAME, RedisFactoryRegistry.route("user:1"));
+
+        // 销毁后路由也被删除
+        RedisFactoryRegistry.destroy("admin");
+        Assert.assertEquals("session", RedisFactoryRegistry.route("session:admin:1"));
+        Assert.assertEquals(1, destroyed.get());
+        Assert.assertFalse(RedisFactoryRegistry.getNames().contains("admin"));
+    }
+
+    @Test
+    public void checkHealth() {
+        RedisFactoryRegistry.register("up", newFactory(true));
+        RedisFactoryRegistry.register("down", newFactory(false));
+        Assert.assertTrue(RedisFactoryRegistry.checkHealth("up").isUp());
+        RedisHealth down = RedisFactoryRegistry.checkHealth("down");
+        Assert.assertFalse(down.isUp());
+        Assert.assertTrue(down.getMessage().contains("connection refused"));
+
+        List<RedisHealth> healths = RedisFactoryRegistry.checkHealth();
+        Assert.assertEquals("down", healths.get(1).getName());
+        Assert.assertEquals("up", healths.get(2).getName());
+    }
+
+    private RedisConnectionFactory newFactory(boolean up) {
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if ("ping".equals(method.getName())) {
+                        if (up) {
+                            return "PONG";
+                        }
+                        throw new IllegalStateException("connection refused");
+                    }
+                    return null;
+                });
+        return (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class, DisposableBean.class}, (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return connection;
+                    }
+                    if ("destroy".equals(method.getName())) {
+                        destroyed.incrementAndGet();
+                    }
+                    return null;
+                });
+    }
+}
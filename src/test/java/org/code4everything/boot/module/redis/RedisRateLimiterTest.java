@@ -0,0 +1,98 @@
+package org.code4everything.boot.module.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RedisRateLimiterTest {
+
+    private static final String KEY = "boot:rate-limit:api";
+
+    private static final long INTERVAL = 50000;
+
+    private final LuaRedis redis = new LuaRedis();
+
+    @Test
+    public void gcraScript() {
+        // 每个令牌间隔50毫秒，允许突发5个令牌
+        Assert.assertEquals(3, eval(3));
+        Assert.assertEquals(2, eval(3));
+        long tat = Long.parseLong(redis.getValues().get(KEY));
+        // 过期时间为理论到达时间减去当前时间（毫秒）再加1
+        Assert.assertEquals(Long.valueOf(5 * INTERVAL / 1000 + 1), redis.getTtls().get(KEY));
+
+        // 令牌用完时返回下一个令牌生成前需要等待的时长
+        Assert.assertEquals(-INTERVAL, eval(1));
+        redis.advance(INTERVAL / 2);
+        Assert.assertEquals(-INTERVAL / 2, eval(1));
+        Assert.assertEquals(tat, Long.parseLong(redis.getValues().get(KEY)));
+        redis.advance(INTERVAL / 2);
+        Assert.assertEquals(1, eval(3));
+
+        // 长时间空闲后最多突发5个令牌
+        redis.advance(INTERVAL * 100);
+        Assert.assertEquals(5, eval(10));
+    }
+
+    @Test
+    public void lease() throws InterruptedException {
+        RedisRateLimiter limiter = new RedisRateLimiter(newFactory());
+        int allowed = 0;
+        for (int i = 0; i < 40; i++) {
+            allowed += limiter.tryAcquire("api", 20, 25, 10) ? 1 : 0;
+        }
+        Assert.assertEquals(25, allowed);
+        // 10 + 10 + 5，之后的拒绝在下一个令牌生成之前只访问一次 Redis
+        Assert.assertEquals(4, redis.getCalls());
+
+        Thread.sleep(INTERVAL / 1000 + 10);
+        redis.advance(INTERVAL + 10000);
+        Assert.assertTrue(limiter.tryAcquire("api", 20, 25, 10));
+        Assert.assertFalse(limiter.tryAcquire("api", 20, 25, 10));
+        Assert.assertEquals(6, redis.getCalls());
+    }
+
+    @Test
+    public void acquireNeverNegative() {
+        RedisRateLimiter limiter = new RedisRateLimiter(newFactory());
+        Assert.assertEquals(1, limiter.acquire("api", 1, 1, 5));
+        Assert.assertEquals(0, limiter.acquire("api", 1, 1, 5));
+        Assert.assertFalse(limiter.tryAcquire("api", 1, 1));
+    }
+
+    private long eval(int permits) {
+        return redis.eval(RedisRateLimiter.GCRA_SCRIPT.getScriptAsString(), Collections.singletonList(KEY),
+                String.valueOf(INTERVAL), String.valueOf(INTERVAL * 5), String.valueOf(permits));
+    }
+
+    private RedisConnectionFactory newFactory() {
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                    if ("evalSha".equals(method.getName()) || "eval".equals(method.getName())) {
+                        // 参数依次为脚本（或摘要）、返回类型、键数、键和参数
+                        int numKeys = (int) args[2];
+                        List<String> keysAndArgs = new ArrayList<>();
+                        for (byte[] bytes : (byte[][]) args[3]) {
+                            keysAndArgs.add(new String(bytes, StandardCharsets.UTF_8));
+                        }
+                        return redis.eval(RedisRateLimiter.GCRA_SCRIPT.getScriptAsString(), keysAndArgs.subList(0,
+                                numKeys), keysAndArgs.subList(numKeys, keysAndArgs.size()).toArray(new String[0]));
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+        return (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class}, (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        return connection;
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+}
@@ -0,0 +1,181 @@
+package org.code4everything.boot.module.redis;
+
+import com.alibaba.fastjson.support.spring.FastJsonRedisSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 序列化器的基准测试，比较 FastJsonRedisSerializer 和 BinaryRedisSerializer 的序列化、反序列化耗时，并在启动时打印序列化后的大小
+ *
+ * <p>运行：mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.code4everything.boot.module.redis.RedisSerializerBenchmark</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    private final FastJsonRedisSerializer<Order> fastJson = new FastJsonRedisSerializer<>(Order.class);
+
+    private final BinaryRedisSerializer<Order> binary = new BinaryRedisSerializer<>(Order.class);
+
+    private final BinaryRedisSerializer<Order> uncompressed = new BinaryRedisSerializer<>(Order.class, -1);
+
+    private Order order;
+
+    private byte[] fastJsonBytes;
+
+    private byte[] binaryBytes;
+
+    private byte[] uncompressedBytes;
+
+    @Setup
+    public void setup() {
+        order = new Order();
+        order.setId(20190130000001L);
+        order.setUserName("pantao");
+        order.setAmount(1999.99D);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Item item = new Item();
+            item.setSku("SKU-" + i);
+            item.setQuantity(i + 1);
+            item.setPrice(9.9D * i);
+            items.add(item);
+        }
+        order.setItems(items);
+        fastJsonBytes = fastJson.serialize(order);
+        binaryBytes = binary.serialize(order);
+        uncompressedBytes = uncompressed.serialize(order);
+        System.out.println("fastjson bytes -> " + fastJsonBytes.length + ", binary bytes -> " + binaryBytes.length +
+                ", uncompressed binary bytes -> " + uncompressedBytes.length);
+    }
+
+    @Benchmark
+    public byte[] fastJsonSerialize() {
+        return fastJson.serialize(order);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binary.serialize(order);
+    }
+
+    @Benchmark
+    public Order fastJsonDeserialize() {
+        return fastJson.deserialize(fastJsonBytes);
+    }
+
+    @Benchmark
+    public Order binaryDeserialize() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] uncompressedSerialize() {
+        return uncompressed.serialize(order);
+    }
+
+    @Benchmark
+    public Order uncompressedDeserialize() {
+        return uncompressed.deserialize(uncompressedBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RedisSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Order {
+
+        private long id;
+
+        private String userName;
+
+        private double amount;
+
+        private List<Item> items;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    public static class Item {
+
+        private String sku;
+
+        private int quantity;
+
+        private double price;
+
+        public String getSku() {
+            return sku;
+        }
+
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+    }
+}
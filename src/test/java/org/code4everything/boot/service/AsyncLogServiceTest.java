@@ -0,0 +1,42 @@
+package org.code4everything.boot.service;
+
+import org.code4everything.boot.bean.LogBean;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AsyncLogServiceTest {
+
+    @Test
+    public void keepSubmissionOrder() throws InterruptedException {
+        List<String> saved = Collections.synchronizedList(new ArrayList<>());
+        AsyncLogService<String> service = new AsyncLogService<>(new LogService<String>() {
+            @Override
+            public String save(String log) {
+                saved.add(log);
+                return log;
+            }
+
+            @Override
+            public String saveException(String log, Throwable throwable) {
+                saved.add("exception:" + log);
+                return log;
+            }
+
+            @Override
+            public String getLog(LogBean logBean) {
+                return null;
+            }
+        });
+        service.save("a");
+        service.save("b");
+        service.saveException("b", new IllegalStateException());
+        service.save("c");
+        service.shutdown(5000);
+        Assert.assertEquals(Arrays.asList("a", "b", "exception:b", "c"), saved);
+    }
+}
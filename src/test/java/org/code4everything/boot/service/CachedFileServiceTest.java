@@ -0,0 +1,96 @@
+package org.code4everything.boot.service;
+
+import org.code4everything.boot.bean.MultipartFileBean;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedFileServiceTest {
+
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private final FileService<String> fileService = new FileService<String>() {
+
+        @Override
+        public String getBy(MultipartFileBean fileBean) {
+            queries.incrementAndGet();
+            if ("broken".equals(fileBean.getFilename())) {
+                throw new IllegalArgumentException("broken");
+            }
+            return files.get("/files/" + fileBean.getFilename());
+        }
+
+        @Override
+        public String save(MultipartFileBean fileBean) {
+            String accessUrl = "/files/" + fileBean.getFilename();
+            files.put(accessUrl, fileBean.getStoragePath() + fileBean.getFilename());
+            return accessUrl;
+        }
+
+        @Override
+        public String getLocalPathByAccessUrl(String accessUrl) {
+            queries.incrementAndGet();
+            return files.get(accessUrl);
+        }
+    };
+
+    @Test
+    public void cacheLookup() {
+        CachedFileService<String> cachedFileService = new CachedFileService<>(fileService);
+        files.put("/files/a.txt", "/data/a.txt");
+        Assert.assertEquals("/data/a.txt", cachedFileService.getLocalPathByAccessUrl("/files/a.txt"));
+        Assert.assertEquals("/data/a.txt", cachedFileService.getLocalPathByAccessUrl("/files/a.txt"));
+        // 查询不到的结果也会被缓存
+        Assert.assertNull(cachedFileService.getLocalPathByAccessUrl("/files/b.txt"));
+        Assert.assertNull(cachedFileService.getLocalPathByAccessUrl("/files/b.txt"));
+        Assert.assertEquals(2, queries.get());
+
+        cachedFileService.invalidateAccessUrl("/files/a.txt");
+        Assert.assertEquals("/data/a.txt", cachedFileService.getLocalPathByAccessUrl("/files/a.txt"));
+        Assert.assertEquals(3, queries.get());
+    }
+
+    @Test
+    public void saveInvalidatesAccessUrl() {
+        CachedFileService<String> cachedFileService = new CachedFileService<>(fileService, accessUrl -> accessUrl);
+        MultipartFileBean fileBean = new MultipartFileBean().setFilename("a.txt").setMd5("md5-a");
+        fileBean.setStoragePath("/data/");
+        Assert.assertNull(cachedFileService.getBy(fileBean));
+        Assert.assertNull(cachedFileService.getLocalPathByAccessUrl("/files/a.txt"));
+
+        Assert.assertEquals("/files/a.txt", cachedFileService.save(fileBean));
+        // 保存的结果直接写入缓存，访问路径查询不到的结果被失效
+        Assert.assertEquals("/files/a.txt", cachedFileService.getBy(fileBean));
+        Assert.assertEquals("/data/a.txt", cachedFileService.getLocalPathByAccessUrl("/files/a.txt"));
+        Assert.assertEquals(3, queries.get());
+    }
+
+    @Test
+    public void entityKeyedByMd5() {
+        CachedFileService<String> cachedFileService = new CachedFileService<>(fileService);
+        files.put("/files/a.txt", "/data/a.txt");
+        MultipartFileBean first = new MultipartFileBean().setFilename("a.txt").setMd5("md5-a");
+        MultipartFileBean renamed = new MultipartFileBean().setFilename("b.txt").setMd5("md5-a");
+        Assert.assertEquals("/data/a.txt", cachedFileService.getBy(first));
+        // 相同内容的文件命中同一个缓存
+        Assert.assertEquals("/data/a.txt", cachedFileService.getBy(renamed));
+        Assert.assertEquals(1, queries.get());
+
+        // 没有 MD5 码时不缓存，同名的不同文件不会命中缓存
+        MultipartFileBean noDigest = new MultipartFileBean().setFilename("a.txt");
+        Assert.assertEquals("/data/a.txt", cachedFileService.getBy(noDigest));
+        files.remove("/files/a.txt");
+        Assert.assertNull(cachedFileService.getBy(noDigest));
+        Assert.assertEquals(3, queries.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void loaderExceptionPropagates() {
+        new CachedFileService<>(fileService).getBy(new MultipartFileBean().setFilename("broken").setMd5("md5"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.code4everything.boot.service;
+
+import org.code4everything.boot.module.redis.InMemoryRedis;
+import org.code4everything.boot.module.redis.NearCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedUserServiceTest {
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void getUserByToken() {
+        AtomicInteger calls = new AtomicInteger();
+        CachedUserService<String> userService = new CachedUserService<>(token -> {
+            calls.incrementAndGet();
+            return "admin".equals(token) ? "pantao" : null;
+        });
+
+        RequestContextHolder.setRequestAttributes(newRequestAttributes());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("pantao", userService.getUserByToken("admin"));
+            Assert.assertNull(userService.getUserByToken("guest"));
+        }
+        Assert.assertEquals(2, calls.get());
+
+        // 退出登录后重新查询
+        userService.invalidate("admin");
+        Assert.assertEquals("pantao", userService.getUserByToken("admin"));
+        Assert.assertEquals(3, calls.get());
+
+        // 新的请求
+        RequestContextHolder.setRequestAttributes(newRequestAttributes());
+        Assert.assertEquals("pantao", userService.getUserByToken("admin"));
+        Assert.assertEquals(4, calls.get());
+
+        // 不在请求中时不缓存
+        RequestContextHolder.resetRequestAttributes();
+        userService.getUserByToken("admin");
+        userService.getUserByToken("admin");
+        Assert.assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void fillWithoutBroadcast() {
+        InMemoryRedis redis = new InMemoryRedis();
+        NearCache<String> nearCache = new NearCache<>(redis.newTemplate(new StringRedisSerializer()),
+                new RedisMessageListenerContainer(), "user");
+        AtomicInteger calls = new AtomicInteger();
+        CachedUserService<String> userService = new CachedUserService<>(token -> {
+            calls.incrementAndGet();
+            return "pantao";
+        }, nearCache, 1, TimeUnit.HOURS);
+
+        Assert.assertEquals("pantao", userService.getUserByToken("admin"));
+        Assert.assertEquals("pantao", userService.getUserByToken("admin"));
+        // 未命中后的回填写入 Redis 和本地缓存，不通知其他节点
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, nearCache.getLocalSize());
+        Assert.assertEquals(1, redis.getValues().size());
+        Assert.assertTrue(redis.getPublished().isEmpty());
+
+        userService.invalidate("admin");
+        Assert.assertEquals(1, redis.getPublished().size());
+        Assert.assertEquals(0, nearCache.getLocalSize());
+        Assert.assertTrue(redis.getValues().isEmpty());
+    }
+
+    private RequestAttributes newRequestAttributes() {
+        Map<String, Object> attributes = new HashMap<>(4);
+        return (RequestAttributes) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RequestAttributes.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        case "removeAttribute":
+                            return attributes.remove(args[0]);
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
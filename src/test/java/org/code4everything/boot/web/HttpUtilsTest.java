@@ -0,0 +1,116 @@
+package org.code4everything.boot.web;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ZipUtil;
+import org.code4everything.boot.web.file.FileCache;
+import org.code4everything.boot.web.file.GzipCompressor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HttpUtilsTest {
+
+    private final Map<String, String> headers = new HashMap<>(4);
+
+    private final FileCache fileCache = new FileCache(1 << 20, 1 << 16);
+
+    private final GzipCompressor gzipCompressor = new GzipCompressor(1, 1, 1 << 20, "js");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("boot-http").toFile();
+        HttpUtils.setFileCache(fileCache);
+        HttpUtils.setGzipCompressor(gzipCompressor);
+    }
+
+    @After
+    public void tearDown() {
+        HttpUtils.setFileCache(null);
+        HttpUtils.setGzipCompressor(null);
+        gzipCompressor.shutdown();
+        FileUtil.del(directory);
+    }
+
+    @Test
+    public void acceptsGzip() {
+        Assert.assertTrue(HttpUtils.acceptsGzip("gzip, deflate"));
+        Assert.assertTrue(HttpUtils.acceptsGzip("deflate;q=1.0, GZIP;q=0.5"));
+        Assert.assertTrue(HttpUtils.acceptsGzip("br, *;q=0.1"));
+        Assert.assertFalse(HttpUtils.acceptsGzip(null));
+        Assert.assertFalse(HttpUtils.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(HttpUtils.acceptsGzip("gzip; q=0.000, *"));
+        Assert.assertFalse(HttpUtils.acceptsGzip("*;q=0"));
+        Assert.assertFalse(HttpUtils.acceptsGzip("identity, gzipped"));
+    }
+
+    @Test
+    public void negotiateGzip() throws IOException {
+        File file = new File(directory, "app.js");
+        FileUtil.writeUtf8String(new String(new char[4096]).replace('\0', 'a'), file);
+        File gzipFile = new File(directory, "app.js" + GzipCompressor.GZIP_SUFFIX);
+        FileUtil.writeBytes(ZipUtil.gzip(FileUtil.readBytes(file)), gzipFile);
+        gzipFile.setLastModified(file.lastModified() + 1000);
+        HttpServletRequest request = newRequest();
+
+        // 不接受压缩时响应原文件
+        ResponseEntity<InputStreamSource> entity = HttpUtils.responseLocalFile(file.getPath(), request);
+        Assert.assertNull(entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(HttpHeaders.ACCEPT_ENCODING, entity.getHeaders().getFirst(HttpHeaders.VARY));
+        Assert.assertEquals(4096, entity.getHeaders().getContentLength());
+
+        headers.put(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        entity = HttpUtils.responseLocalFile(file.getPath(), request);
+        Assert.assertEquals(GzipCompressor.GZIP, entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(gzipFile.length(), entity.getHeaders().getContentLength());
+        Assert.assertEquals(2, fileCache.size());
+
+        // 命中缓存时从缓存响应压缩版本
+        entity = HttpUtils.responseLocalFile(file.getPath(), request);
+        Assert.assertEquals(GzipCompressor.GZIP, entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+
+        // 压缩文件删除后，即使没有监听目录，原文件的压缩版本也会失效
+        Assert.assertTrue(gzipFile.delete());
+        headers.put(HttpHeaders.IF_NONE_MATCH, entity.getHeaders().getETag());
+        entity = HttpUtils.responseLocalFile(file.getPath(), request);
+        Assert.assertNull(entity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(200, entity.getStatusCodeValue());
+        Assert.assertEquals(1, fileCache.size());
+    }
+
+    @Test
+    public void notModified() throws IOException {
+        File file = new File(directory, "app.png");
+        FileUtil.writeUtf8String("png", file);
+        ResponseEntity<InputStreamSource> entity = HttpUtils.responseLocalFile(file.getPath(), newRequest());
+        Assert.assertNull(entity.getHeaders().getFirst(HttpHeaders.VARY));
+
+        headers.put(HttpHeaders.IF_NONE_MATCH, entity.getHeaders().getETag());
+        entity = HttpUtils.responseLocalFile(file.getPath(), newRequest());
+        Assert.assertEquals(304, entity.getStatusCodeValue());
+        Assert.assertEquals(404, HttpUtils.responseLocalFile(null, newRequest()).getStatusCodeValue());
+    }
+
+    private HttpServletRequest newRequest() {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    if ("getHeader".equals(method.getName())) {
+                        return headers.get(args[0]);
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+}
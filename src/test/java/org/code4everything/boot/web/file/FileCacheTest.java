@@ -0,0 +1,69 @@
+package org.code4everything.boot.web.file;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class FileCacheTest {
+
+    private File directory;
+
+    private final FileCache fileCache = new FileCache(1024, 16);
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("boot-file-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.del(directory);
+    }
+
+    @Test
+    public void getAndInvalidate() throws IOException {
+        File file = new File(directory, "a.txt");
+        FileUtil.writeUtf8String("boot", file);
+        CachedFile cachedFile = fileCache.get(file.getPath());
+        Assert.assertEquals(4, cachedFile.getLength());
+        // 不同写法的同一路径共用一个缓存
+        Assert.assertSame(cachedFile, fileCache.get(directory.getPath() + "/./a.txt"));
+        Assert.assertEquals(1, fileCache.size());
+
+        fileCache.invalidate(directory.getPath() + "/../" + directory.getName() + "/a.txt");
+        Assert.assertEquals(0, fileCache.size());
+        Assert.assertEquals(4, fileCache.get(file.getPath()).getLength());
+    }
+
+    @Test
+    public void reloadChangedFile() throws IOException {
+        File file = new File(directory, "a.txt");
+        FileUtil.writeUtf8String("boot", file);
+        Assert.assertEquals(4, fileCache.get(file.getPath()).getLength());
+
+        // 没有监听目录时，命中缓存也能发现文件已变化
+        FileUtil.writeUtf8String("boot-surface", file);
+        Assert.assertEquals(12, fileCache.get(file.getPath()).getLength());
+        Assert.assertNotNull(fileCache.getIfPresent(file.getPath(), null));
+
+        Assert.assertTrue(file.delete());
+        Assert.assertNull(fileCache.getIfPresent(file.getPath(), null));
+        Assert.assertNull(fileCache.get(file.getPath()));
+        Assert.assertEquals(0, fileCache.size());
+    }
+
+    @Test
+    public void skipMissingOrLargeFile() throws IOException {
+        Assert.assertNull(fileCache.get(new File(directory, "missing.txt").getPath()));
+        File file = new File(directory, "large.txt");
+        FileUtil.writeUtf8String("file larger than 16 bytes", file);
+        Assert.assertNull(fileCache.get(file.getPath()));
+        Assert.assertEquals(0, fileCache.size());
+    }
+}
@@ -0,0 +1,149 @@
+package org.code4everything.boot.web.mvc;
+
+import org.code4everything.boot.bean.ConfigBean;
+import org.code4everything.boot.bean.RateLimitBean;
+import org.code4everything.boot.log.trace.Span;
+import org.code4everything.boot.log.trace.Tracer;
+import org.code4everything.boot.module.redis.RedisRateLimiter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultWebInterceptorTest {
+
+    private final Map<String, Object> attributes = new HashMap<>(4);
+
+    private final Map<String, String> headers = new HashMap<>(4);
+
+    private DispatcherType dispatcherType = DispatcherType.REQUEST;
+
+    @Before
+    public void setUp() {
+        DefaultWebInterceptor.setConfigBean(new ConfigBean().setBlackPrefixes(new String[0]).setWhitePrefixes(
+                new String[0]).setInterceptPrefixes(new String[0]));
+        Tracer.setEnabled(true);
+        Tracer.drainSpans();
+    }
+
+    @After
+    public void tearDown() {
+        Tracer.setEnabled(false);
+        DefaultWebInterceptor.setRateLimiter(null);
+        while (Tracer.currentSpan() != null) {
+            Tracer.detach(Tracer.currentSpan());
+        }
+    }
+
+    @Test
+    public void rateLimitOncePerRequest() throws Exception {
+        List<String> keys = new ArrayList<>();
+        RedisConnectionFactory factory = (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class}, (proxy, method, args) -> null);
+        DefaultWebInterceptor.setRateLimiter(new RedisRateLimiter(factory) {
+            @Override
+            public boolean tryAcquire(String key, double permitsPerSecond, int burst, int leaseSize) {
+                keys.add(key);
+                return true;
+            }
+        });
+        DefaultWebInterceptor.setConfigBean(new ConfigBean().setBlackPrefixes(new String[0]).setWhitePrefixes(
+                new String[0]).setInterceptPrefixes(new String[0]).setRateLimits(new RateLimitBean().setPrefix(
+                "/api/").setPermitsPerSecond(10).setKeyType(RateLimitBean.KeyType.TOKEN)));
+        headers.put("token", "secret-token");
+        DefaultWebInterceptor interceptor = new DefaultWebInterceptor();
+        HttpServletRequest request = newRequest();
+        HttpServletResponse response = newResponse();
+        Assert.assertTrue(interceptor.preHandle(request, response, null));
+        dispatcherType = DispatcherType.ASYNC;
+        Assert.assertTrue(interceptor.preHandle(request, response, null));
+
+        Assert.assertEquals(1, keys.size());
+        // 令牌只以摘要的形式出现在键中
+        Assert.assertFalse(keys.get(0).contains("secret-token"));
+        Assert.assertTrue(keys.get(0).startsWith("/api/token:"));
+    }
+
+    @Test
+    public void asyncDispatchKeepsSpan() throws Exception {
+        DefaultWebInterceptor interceptor = new DefaultWebInterceptor();
+        HttpServletRequest request = newRequest();
+        HttpServletResponse response = newResponse();
+        Assert.assertTrue(interceptor.preHandle(request, response, null));
+        String traceId = headers.get(Tracer.TRACE_ID_HEADER);
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        Assert.assertNull(Tracer.currentSpan());
+
+        // 异步结果完成后再次分派
+        dispatcherType = DispatcherType.ASYNC;
+        Assert.assertTrue(interceptor.preHandle(request, response, null));
+        Assert.assertEquals(traceId, headers.get(Tracer.TRACE_ID_HEADER));
+        interceptor.afterCompletion(request, response, null, null);
+
+        List<Span> spans = Tracer.drainSpans();
+        Assert.assertEquals(1, spans.size());
+        Assert.assertEquals(traceId, spans.get(0).getTraceId());
+        Assert.assertNull(Tracer.currentSpan());
+    }
+
+    @Test
+    public void preHandleExceptionFinishesSpan() throws Exception {
+        DefaultWebInterceptor.setConfigBean(null);
+        try {
+            new DefaultWebInterceptor().preHandle(newRequest(), newResponse(), null);
+            Assert.fail();
+        } catch (NullPointerException e) {
+            // 异常原样抛出
+        }
+        List<Span> spans = Tracer.drainSpans();
+        Assert.assertEquals(1, spans.size());
+        Assert.assertNotNull(spans.get(0).getError());
+        Assert.assertNull(Tracer.currentSpan());
+    }
+
+    private HttpServletRequest newRequest() {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getDispatcherType":
+                            return dispatcherType;
+                        case "getServletPath":
+                            return "/api/user";
+                        case "getMethod":
+                            return "GET";
+                        case "getRemoteAddr":
+                            return "127.0.0.1";
+                        case "getHeader":
+                            return headers.get(args[0]);
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        case "removeAttribute":
+                            return attributes.remove(args[0]);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private HttpServletResponse newResponse() {
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if ("setHeader".equals(method.getName())) {
+                        headers.put((String) args[0], (String) args[1]);
+                    }
+                    return null;
+                });
+    }
+}